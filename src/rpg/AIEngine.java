@@ -0,0 +1,47 @@
+package rpg;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Package private interface of the engines a character's decision can be handed to.
+ *
+ * date: 10/18/26
+ */
+interface AIEngine {
+
+	/**
+	 * Chooses the action of a living character.
+	 *
+	 * @param c, the Character deciding
+	 * @return int, the packed Action to play, or Action.NONE if the engine has nothing to say,
+	 * 		for a search when no enemy is close enough to search against, in which case the
+	 * 		caller should fall back to the simple rules
+	 */
+	int chooseAction(Character c);
+
+	/**
+	 * Gives the engine a condition to give up a decision early, looked at about as often as the
+	 * clock. A decision given up returns the best action found so far, which the caller should
+	 * not trust. Engines that decide at once ignore it.
+	 *
+	 * @param stop, a BooleanSupplier, true once the decision being made is no longer wanted;
+	 * 		called from the threads searching
+	 */
+	default void stopWhen(BooleanSupplier stop) {
+	}
+
+	/**
+	 * Starts the clock of a team's turn afresh, for engines whose time budget is per turn. A
+	 * new turn of the model starts it on its own; this is for a turn played over again, as the
+	 * ponderer plays its guesses. Engines with no budget ignore it.
+	 */
+	default void startTurn() {
+	}
+
+	/**
+	 * Lets go of the threads the engine searches on, once it will not be asked to decide again.
+	 * Engines deciding on the calling thread have nothing to let go of.
+	 */
+	default void close() {
+	}
+}
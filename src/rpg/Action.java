@@ -0,0 +1,47 @@
+package rpg;
+
+/**
+ * Package private helpers for the actions searched by the AI, each packed into a single int:
+ * the kind of action in the top two bits and the index of the target tile in the rest. A move
+ * targets the tile walked to, an attack the tile of the unit attacked, and a defense its own tile.
+ * Boards are at most 32767 tiles on a side, so a tile index always fits in 30 bits.
+ *
+ * date: 10/18/26
+ */
+final class Action {
+	static final int MOVE = 0;
+	static final int ATTACK = 1;
+	static final int DEFEND = 2;
+	static final int NONE = -1; //no action, never a valid packed action
+
+	private static final int CELL_BITS = 30;
+	private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+
+	private Action() {
+	}
+
+	/**
+	 * @param kind, an int, MOVE, ATTACK or DEFEND
+	 * @param cell, an int, the index of the target tile
+	 * @return int, the packed action
+	 */
+	static int of(int kind, int cell) {
+		return (kind << CELL_BITS) | cell;
+	}
+
+	/**
+	 * @param action, an int, a packed action
+	 * @return int, MOVE, ATTACK or DEFEND
+	 */
+	static int kindOf(int action) {
+		return action >>> CELL_BITS;
+	}
+
+	/**
+	 * @param action, an int, a packed action
+	 * @return int, the index of the target tile
+	 */
+	static int cellOf(int action) {
+		return action & CELL_MASK;
+	}
+}
@@ -0,0 +1,173 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that lists the legal actions of a unit in a SearchState, most promising
+ * first, so a search cuts off bad branches early. Attacks come first, killing blows before the
+ * rest and harder hits before softer ones, then moves, the ones ending closest to an enemy
+ * first, and defending last.
+ *
+ * Vampires walk up to the game's move range and attack along rows and columns, as the player
+ * does. Werewolves walk up to the AI's steps and also attack diagonally, as the AI does.
+ *
+ * date: 10/18/26
+ */
+class ActionGenerator {
+	// row and column offsets of the tiles a unit attacks, along rows and columns first
+	private static final int[] REACH_ROW = {0, -1, 1, 0, -1, -1, 1, 1};
+	private static final int[] REACH_COL = {-1, 0, 0, 1, -1, 1, -1, 1};
+
+	// ordering bonuses, far apart so each kind of action stays in its own band
+	private static final long KILL = 3L << 40;
+	private static final long HIT = 2L << 40;
+	private static final long WALK = 1L << 40;
+	private static final int INDEX_BITS = 20; //low bits of a key holding the action's position
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+
+	private final Board board;
+	private final int[] moveRange; //tiles a unit walks per move, by faction
+	private final int[] reach; //tiles around a unit it can attack, 4 or 8, by faction
+	private final int[] stamp; //generation in which a tile was last reached by the move search
+	private final int[] steps;
+	private int[] queue = new int[64];
+	private long[] keys = new long[64]; //ordering key of each action, packed with its position
+	private int[] scratch = new int[64];
+	private int generation;
+	private int count; //actions listed by the last call to generate()
+
+	/**
+	 * Constructs a generator for a board.
+	 *
+	 * @param board, the Board units stand on
+	 * @param playerMoves, an int, the most tiles a vampire walks per move
+	 * @param aiMoves, an int, the most tiles a werewolf walks per move
+	 */
+	ActionGenerator(Board board, int playerMoves, int aiMoves) {
+		this.board = board;
+		this.moveRange = new int[] {playerMoves, aiMoves};
+		this.reach = new int[] {4, 8};
+		this.stamp = new int[board.size()];
+		this.steps = new int[board.size()];
+	}
+
+	/**
+	 * Lists the legal actions of a living unit, most promising first.
+	 *
+	 * @param state, the SearchState to act in
+	 * @param unit, an int, the index of the unit in the state
+	 * @param out, an int[] to fill with packed actions, grown if it is too small
+	 * @return int[], the filled array, which is out unless it had to grow. The number of
+	 * 		actions is read with getCount().
+	 */
+	int[] generate(SearchState state, int unit, int[] out) {
+		count = 0;
+		byte faction = state.getFaction(unit);
+		int from = state.getCell(unit);
+		int row = board.rowOf(from);
+		int col = board.colOf(from);
+		// attacks on enemies within reach
+		for (int i = 0; i < reach[faction]; i++) {
+			int r = row + REACH_ROW[i];
+			int c = col + REACH_COL[i];
+			if (!board.inBounds(r, c)) {
+				continue;
+			}
+			int target = state.unitAt(board.index(r, c));
+			if (target >= 0 && state.getFaction(target) != faction) {
+				int damage = state.getAttack(unit) - (state.isDefending(target) ? state.getDefense(target) : 0);
+				add(Action.of(Action.ATTACK, board.index(r, c)), (damage >= state.getHP(target) ? KILL : HIT) + damage);
+			}
+		}
+		// moves to every free tile within range, breadth first
+		if (++generation == 0) {
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+		stamp[from] = generation;
+		steps[from] = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		for (int head = 0; head < tail; head++) {
+			int cell = queue[head];
+			if (cell != from) {
+				add(Action.of(Action.MOVE, cell), WALK - nearestEnemy(state, faction, cell));
+			}
+			if (steps[cell] == moveRange[faction]) {
+				continue;
+			}
+			int r0 = board.rowOf(cell);
+			int c0 = board.colOf(cell);
+			for (int i = 0; i < 4; i++) {
+				int r = r0 + REACH_ROW[i];
+				int c = c0 + REACH_COL[i];
+				if (!board.inBounds(r, c)) {
+					continue;
+				}
+				int n = board.index(r, c);
+				if (stamp[n] != generation && state.isFree(n)) {
+					stamp[n] = generation;
+					steps[n] = steps[cell] + 1;
+					if (tail == queue.length) {
+						queue = Arrays.copyOf(queue, tail * 2);
+					}
+					queue[tail++] = n;
+				}
+			}
+		}
+		add(Action.of(Action.DEFEND, from), 0);
+		// sort by key, highest first, keeping the order actions were found in among equal keys
+		Arrays.sort(keys, 0, count);
+		if (out.length < count) {
+			out = new int[Math.max(count, out.length * 2)];
+		}
+		for (int i = 0; i < count; i++) {
+			out[i] = scratch[INDEX_MASK - (int) (keys[count - 1 - i] & INDEX_MASK)];
+		}
+		return out;
+	}
+
+	/**
+	 * @return int, the number of actions listed by the last call to generate()
+	 */
+	int getCount() {
+		return count;
+	}
+
+	/**
+	 * Adds an action with its ordering key.
+	 *
+	 * @param action, an int, the packed action
+	 * @param key, a long, higher for more promising actions, below 2^42
+	 */
+	private void add(int action, long key) {
+		if (count == scratch.length) {
+			scratch = Arrays.copyOf(scratch, count * 2);
+			keys = Arrays.copyOf(keys, count * 2);
+		}
+		scratch[count] = action;
+		// among equal keys the action found first must sort last, so it comes out first
+		keys[count] = (key << INDEX_BITS) | (INDEX_MASK - count);
+		count++;
+	}
+
+	/**
+	 * @param state, the SearchState
+	 * @param faction, a byte, the faction looking for an enemy
+	 * @param cell, an int, the tile to measure from
+	 * @return int, the steps along rows and columns to the closest living enemy in the state,
+	 * 		or 0 if there is none
+	 */
+	private int nearestEnemy(SearchState state, byte faction, int cell) {
+		int row = board.rowOf(cell);
+		int col = board.colOf(cell);
+		int best = Integer.MAX_VALUE;
+		for (int i = 0; i < state.size(); i++) {
+			if (state.isAlive(i) && state.getFaction(i) != faction) {
+				int other = state.getCell(i);
+				best = Math.min(best, Math.abs(board.rowOf(other) - row) + Math.abs(board.colOf(other) - col));
+			}
+		}
+		return best == Integer.MAX_VALUE ? 0 : best;
+	}
+}
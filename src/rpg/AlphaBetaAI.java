@@ -0,0 +1,330 @@
+package rpg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Package private class that chooses the action of a character by searching the Skirmish around it
+ * with alpha-beta pruning. The side deciding picks the best position for itself and the enemies
+ * the worst.
+ *
+ * The time budget is for the team's whole turn, and each decision gets its share from a
+ * TurnClock. The search deepens one action at a time until its share runs out and answers with
+ * the best action of the deepest search that finished, so the turn is always over within the
+ * budget. The action stored for the position in the transposition table is tried first, then the
+ * action that last caused a cutoff at the same depth, then the rest in the order of the
+ * ActionGenerator; at the root the best action of the previous depth goes first. Every action is played on a single
+ * SearchState and undone on the way back, so the search allocates nothing per position.
+ *
+ * With more than one thread the search runs lazy SMP: every thread searches the same fight on its
+ * own, half of them one action deeper, and they share only the transposition table, so what one
+ * thread learns about a position cuts the work of the others. The answer is the one of the thread
+ * that finished the deepest search.
+ *
+ * date: 10/18/26
+ */
+class AlphaBetaAI implements AIEngine {
+	private static final int MAX_PLY = 32; //most actions searched ahead
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+	private static final int CLOCK_CHECK = 255; //nodes between looks at the clock, plus one
+	private static final int TABLE_BITS = 18; //the transposition table holds 2^18 positions
+
+	private final RPGModel model;
+	private final TurnClock clock; //hands out the time of each decision in a turn
+	private long decisionNanos; //time the decision being made may take
+	private final int radius; //units further than this from the deciding character are left out
+	private final TranspositionTable table = new TranspositionTable(TABLE_BITS);
+	private final List<Searcher> searchers = new ArrayList<>();
+	private final ForkJoinPool pool; //runs the searchers, or null with a single thread
+	private final long[] plyKeys = new long[MAX_PLY]; //hash of each ply of the current decision
+	private Skirmish skirmish; //the fight being searched
+	private byte side; //faction of the character deciding
+	private int decisions; //decisions made so far, so results of older fights never match
+	private BooleanSupplier stop = () -> false; //gives up a decision early when true
+	private long nodes;
+	private int depthReached;
+
+	/**
+	 * Constructs a single threaded search AI for a game.
+	 *
+	 * @param model, the RPGModel to play in
+	 * @param aiMoves, an int, the most tiles a werewolf walks per move
+	 * @param budgetMillis, an int, the most time a team's turn may take, in milliseconds
+	 */
+	AlphaBetaAI(RPGModel model, int aiMoves, int budgetMillis) {
+		this(model, aiMoves, budgetMillis, 1);
+	}
+
+	/**
+	 * Constructs a search AI for a game.
+	 *
+	 * @param model, the RPGModel to play in
+	 * @param aiMoves, an int, the most tiles a werewolf walks per move
+	 * @param budgetMillis, an int, the most time a team's turn may take, in milliseconds
+	 * @param threads, an int, the number of threads searching at once
+	 */
+	AlphaBetaAI(RPGModel model, int aiMoves, int budgetMillis, int threads) {
+		this.model = model;
+		int playerMoves = model.getConfig().getMoveRange();
+		this.clock = new TurnClock(model, budgetMillis);
+		this.radius = Skirmish.radiusFor(playerMoves, aiMoves);
+		for (int i = 0; i < threads; i++) {
+			searchers.add(new Searcher(new ActionGenerator(model.getBoard(), playerMoves, aiMoves), i % 2));
+		}
+		this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+
+	@Override
+	public int chooseAction(Character c) {
+		long start = System.nanoTime();
+		decisionNanos = clock.share(c, start);
+		nodes = 0;
+		depthReached = 0;
+		skirmish = Skirmish.around(model, c, radius, MAX_PLY);
+		if (skirmish == null) {
+			return Action.NONE;
+		}
+		side = skirmish.getSide();
+		long salt = Zobrist.key(Zobrist.SEARCH, 0, ++decisions);
+		for (int ply = 0; ply < MAX_PLY; ply++) {
+			plyKeys[ply] = salt ^ Zobrist.key(Zobrist.TURN, 0, ply);
+		}
+		for (Searcher searcher : searchers) {
+			searcher.prepare(skirmish.getState().copy(), start);
+		}
+		if (pool == null) {
+			searchers.get(0).call();
+		} else {
+			try {
+				for (Future<Void> done : pool.invokeAll(searchers)) {
+					done.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Alpha-beta search failed", e.getCause());
+			}
+		}
+		Searcher deepest = searchers.get(0);
+		for (Searcher searcher : searchers) {
+			nodes += searcher.nodes;
+			if (searcher.depthReached > deepest.depthReached) {
+				deepest = searcher;
+			}
+		}
+		depthReached = deepest.depthReached;
+		return deepest.best;
+	}
+
+	@Override
+	public void stopWhen(BooleanSupplier stop) {
+		this.stop = stop;
+	}
+
+	@Override
+	public void startTurn() {
+		clock.start();
+	}
+
+	@Override
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return int, the depth in actions of the deepest search that finished in the last decision
+	 */
+	int getDepthReached() {
+		return depthReached;
+	}
+
+	/**
+	 * @return long, the number of positions visited by the last decision, over every thread
+	 */
+	long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return int, the number of threads searching at once
+	 */
+	int getThreads() {
+		return searchers.size();
+	}
+
+	/**
+	 * Moves an action to the front of a list, keeping the order of the others.
+	 *
+	 * @param list, an int[] of packed actions
+	 * @param count, an int, the number of actions in the list
+	 * @param action, an int, the action to move, ignored if it is not in the list
+	 */
+	static void moveToFront(int[] list, int count, int action) {
+		for (int i = 0; i < count; i++) {
+			if (list[i] == action) {
+				System.arraycopy(list, 0, list, 1, i);
+				list[0] = action;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * One thread of the search, with its own position, action lists and killer actions.
+	 */
+	private final class Searcher implements Callable<Void> {
+		private final ActionGenerator generator;
+		private final int extraDepth; //searches this many actions deeper than the first thread
+		private final int[][] actions = new int[MAX_PLY][16];
+		private final int[] killers = new int[MAX_PLY];
+		private SearchState state; //the position being searched, played forward and back
+		private long start;
+		private long deadline;
+		private boolean aborted;
+		private long nodes;
+		private int depthReached;
+		private int best;
+
+		private Searcher(ActionGenerator generator, int extraDepth) {
+			this.generator = generator;
+			this.extraDepth = extraDepth;
+		}
+
+		/**
+		 * Gets the searcher ready for a new decision.
+		 */
+		private void prepare(SearchState state, long start) {
+			this.state = state;
+			this.start = start;
+			this.deadline = start + decisionNanos;
+			aborted = false;
+			nodes = 0;
+			depthReached = 0;
+			Arrays.fill(killers, Action.NONE);
+		}
+
+		@Override
+		public Void call() {
+			int[] rootActions = generator.generate(state, 0, new int[16]);
+			int rootCount = generator.getCount();
+			best = rootActions[0]; //the generator's favourite, if not even one depth finishes
+			for (int depth = 1 + extraDepth; depth <= MAX_PLY; depth++) {
+				int alpha = -INFINITY;
+				int depthBest = Action.NONE;
+				for (int i = 0; i < rootCount; i++) {
+					long undo = state.apply(0, rootActions[i]);
+					int value = search(1, depth - 1, alpha, INFINITY);
+					state.undo(undo);
+					if (aborted) {
+						break;
+					}
+					if (value > alpha) {
+						alpha = value;
+						depthBest = rootActions[i];
+					}
+				}
+				if (aborted) {
+					break;
+				}
+				best = depthBest;
+				depthReached = depth;
+				moveToFront(rootActions, rootCount, best);
+				// a deeper search takes several times as long, do not start one that cannot finish
+				if (System.nanoTime() - start > decisionNanos / 3) {
+					break;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Searches the actions from a ply onwards.
+		 *
+		 * @param ply, an int, the number of actions played since the fight started
+		 * @param depth, an int, the actions left to search
+		 * @param alpha, an int, the value the side deciding is already sure of
+		 * @param beta, an int, the value its enemies are already sure of
+		 * @return int, the value of the position for the side deciding, or 0 if the search ran out of time
+		 */
+		private int search(int ply, int depth, int alpha, int beta) {
+			if ((++nodes & CLOCK_CHECK) == 0 && (System.nanoTime() > deadline || stop.getAsBoolean())) {
+				aborted = true;
+			}
+			if (aborted) {
+				return 0;
+			}
+			if (depth == 0 || Skirmish.isOver(state)) {
+				return Skirmish.evaluate(state, side);
+			}
+			int unit = skirmish.actorAt(ply);
+			if (!state.isAlive(unit)) {
+				return search(ply + 1, depth - 1, alpha, beta);
+			}
+			// a result for this position from another line or another thread may settle it
+			long hash = state.getHash() ^ plyKeys[ply];
+			long stored = table.probe(hash);
+			int hashAction = Action.NONE;
+			int alphaIn = alpha;
+			int betaIn = beta;
+			if (stored != TranspositionTable.MISS) {
+				hashAction = TranspositionTable.actionOf(stored);
+				if (TranspositionTable.depthOf(stored) >= depth) {
+					int value = TranspositionTable.valueOf(stored);
+					int bound = TranspositionTable.boundOf(stored);
+					if (bound == TranspositionTable.EXACT) {
+						return value;
+					} else if (bound == TranspositionTable.LOWER) {
+						alpha = Math.max(alpha, value);
+					} else {
+						beta = Math.min(beta, value);
+					}
+					if (alpha >= beta) {
+						return value;
+					}
+				}
+			}
+			boolean ally = state.getFaction(unit) == side;
+			actions[ply] = generator.generate(state, unit, actions[ply]);
+			int count = generator.getCount();
+			moveToFront(actions[ply], count, killers[ply]);
+			moveToFront(actions[ply], count, hashAction);
+			int best = ally ? -INFINITY : INFINITY;
+			int bestAction = actions[ply][0];
+			for (int i = 0; i < count; i++) {
+				int action = actions[ply][i];
+				long undo = state.apply(unit, action);
+				int value = search(ply + 1, depth - 1, alpha, beta);
+				state.undo(undo);
+				if (aborted) {
+					return 0;
+				}
+				if (ally ? value > best : value < best) {
+					best = value;
+					bestAction = action;
+				}
+				if (ally) {
+					alpha = Math.max(alpha, best);
+				} else {
+					beta = Math.min(beta, best);
+				}
+				if (alpha >= beta) {
+					killers[ply] = action;
+					break;
+				}
+			}
+			int bound = best <= alphaIn ? TranspositionTable.UPPER
+					: best >= betaIn ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			// after a fail low every action was as bad as the others, none is worth trying first
+			table.store(hash, bound == TranspositionTable.UPPER ? Action.NONE : bestAction, best, depth, bound);
+			return best;
+		}
+	}
+}
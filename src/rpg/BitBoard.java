@@ -0,0 +1,330 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that stores one yes or no answer per tile of the board, packed into
+ * longs. Tile i, at row i / cols and column i % cols, is bit i % 64 of word i / 64, the same
+ * layout as the range bitsets handed out by the model. A 20 x 20 board fits in 7 words.
+ *
+ * Moving every tile one column is a shift by one bit and moving it one row is a shift by cols
+ * bits, so finding the neighbours of a whole set of tiles, or flooding a set outwards, takes a
+ * few operations per word instead of a look at every tile. Bits that would wrap from the end
+ * of one row to the start of the next are masked off.
+ *
+ * date: 10/18/26
+ */
+class BitBoard {
+	private final int rows;
+	private final int cols;
+	private final int size;
+	private long[] words;
+	private long[] spare; //scratch words, swapped with words by flood()
+	private long[] across; //scratch words holding a set spread along its rows
+	private long[] notFirstCol; //every tile except those in the first column, built on first use
+	private long[] notLastCol; //every tile except those in the last column, built on first use
+
+	/**
+	 * Constructs an empty set of tiles for a board.
+	 *
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 */
+	BitBoard(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.size = rows * cols;
+		this.words = new long[(size + 63) >>> 6];
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return boolean, true if the tile is in the set
+	 */
+	boolean get(int cell) {
+		return (words[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile to add to the set
+	 */
+	void set(int cell) {
+		words[cell >>> 6] |= 1L << cell;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile to remove from the set
+	 */
+	void clear(int cell) {
+		words[cell >>> 6] &= ~(1L << cell);
+	}
+
+	/**
+	 * Removes every tile from the set.
+	 */
+	void clearAll() {
+		Arrays.fill(words, 0);
+	}
+
+	/**
+	 * Makes this set hold the same tiles as another set of the same board.
+	 *
+	 * @param other, the BitBoard to copy
+	 */
+	void copyFrom(BitBoard other) {
+		System.arraycopy(other.words, 0, words, 0, words.length);
+	}
+
+	/**
+	 * Keeps only the tiles that are also in another set.
+	 *
+	 * @param other, a BitBoard of the same board
+	 */
+	void and(BitBoard other) {
+		for (int w = 0; w < words.length; w++) {
+			words[w] &= other.words[w];
+		}
+	}
+
+	/**
+	 * Adds every tile of another set.
+	 *
+	 * @param other, a BitBoard of the same board
+	 */
+	void or(BitBoard other) {
+		for (int w = 0; w < words.length; w++) {
+			words[w] |= other.words[w];
+		}
+	}
+
+	/**
+	 * Removes every tile of another set.
+	 *
+	 * @param other, a BitBoard of the same board
+	 */
+	void andNot(BitBoard other) {
+		for (int w = 0; w < words.length; w++) {
+			words[w] &= ~other.words[w];
+		}
+	}
+
+	/**
+	 * @return int, the number of tiles in the set
+	 */
+	int count() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @return boolean, true if the set has no tiles
+	 */
+	boolean isEmpty() {
+		for (long word : words) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the next tile in the set, in order of index.
+	 *
+	 * @param from, an int, the index to start looking at
+	 * @return int, the index of the first tile in the set at or after from, or Board.NONE
+	 */
+	int nextSet(int from) {
+		if (from >= size) {
+			return Board.NONE;
+		}
+		int w = from >>> 6;
+		long word = words[w] & (-1L << from);
+		while (word == 0) {
+			if (++w == words.length) {
+				return Board.NONE;
+			}
+			word = words[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+
+	/**
+	 * Checks the block of up to nine tiles centred on a tile, reading one short run of bits for
+	 * each of the three rows.
+	 *
+	 * @param row, an int, the row of the centre tile
+	 * @param col, an int, the column of the centre tile
+	 * @return boolean, true if the centre tile or any of the tiles around it is in the set
+	 */
+	boolean anyAround(int row, int col) {
+		int from = Math.max(0, col - 1);
+		int length = Math.min(cols - 1, col + 1) - from + 1;
+		for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+			if (run(r * cols + from, length) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds to out every tile of this set and every tile next to one, along a row or column and,
+	 * if diagonal is true, diagonally. Tiles outside the board are never added.
+	 *
+	 * @param out, a BitBoard of the same board other than this one, overwritten with the result
+	 * @param diagonal, a boolean, true to include the four diagonal neighbours
+	 */
+	void expand(BitBoard out, boolean diagonal) {
+		spread(words, out.words, diagonal);
+	}
+
+	/**
+	 * Grows this set outwards one step at a time along rows and columns, only over tiles of
+	 * another set. Tiles already in this set stay in it even if they are not in the other set,
+	 * so a flood can start from an occupied tile.
+	 *
+	 * @param within, a BitBoard of the tiles the flood may enter
+	 * @param maxSteps, an int, the most steps to grow
+	 * @return int, the number of steps that added tiles
+	 */
+	int flood(BitBoard within, int maxSteps) {
+		if (spare == null) {
+			spare = new long[words.length];
+		}
+		for (int step = 0; step < maxSteps; step++) {
+			spread(words, spare, false);
+			boolean grew = false;
+			for (int w = 0; w < words.length; w++) {
+				spare[w] = (spare[w] & within.words[w]) | words[w];
+				grew |= spare[w] != words[w];
+			}
+			long[] swap = words;
+			words = spare;
+			spare = swap;
+			if (!grew) {
+				return step;
+			}
+		}
+		return maxSteps;
+	}
+
+	/**
+	 * @return long[], the words of the set, valid until the set is next changed. Callers must
+	 * 		not modify them.
+	 */
+	long[] words() {
+		return words;
+	}
+
+	/**
+	 * Writes a set of tiles and all of their neighbours into another array of words.
+	 *
+	 * @param from, the words of the set
+	 * @param to, the words to write, not the same array as from
+	 * @param diagonal, a boolean, true to include the diagonal neighbours
+	 */
+	private void spread(long[] from, long[] to, boolean diagonal) {
+		if (notFirstCol == null) {
+			buildColumnMasks();
+		}
+		// spread along the rows first: one bit left and right, without wrapping between rows
+		for (int w = 0; w < from.length; w++) {
+			across[w] = from[w] | (shiftUp(from, w, 1) & notFirstCol[w]) | (shiftDown(from, w, 1) & notLastCol[w]);
+		}
+		// then one row up and down, from the row spread for diagonals or from the set itself
+		long[] vertical = diagonal ? across : from;
+		for (int w = 0; w < from.length; w++) {
+			to[w] = across[w] | shiftUp(vertical, w, cols) | shiftDown(vertical, w, cols);
+		}
+		to[to.length - 1] &= tailMask();
+	}
+
+	/**
+	 * Reads a word of a set moved to higher tile indices.
+	 *
+	 * @param a, the words of the set
+	 * @param w, an int, the word to read
+	 * @param k, an int, the number of tiles to move by
+	 * @return long, word w of the moved set
+	 */
+	private static long shiftUp(long[] a, int w, int k) {
+		int i = w - (k >>> 6);
+		int r = k & 63;
+		if (i < 0) {
+			return 0;
+		}
+		long word = a[i] << r;
+		if (r != 0 && i > 0) {
+			word |= a[i - 1] >>> (64 - r);
+		}
+		return word;
+	}
+
+	/**
+	 * Reads a word of a set moved to lower tile indices.
+	 *
+	 * @param a, the words of the set
+	 * @param w, an int, the word to read
+	 * @param k, an int, the number of tiles to move by
+	 * @return long, word w of the moved set
+	 */
+	private static long shiftDown(long[] a, int w, int k) {
+		int i = w + (k >>> 6);
+		int r = k & 63;
+		if (i >= a.length) {
+			return 0;
+		}
+		long word = a[i] >>> r;
+		if (r != 0 && i + 1 < a.length) {
+			word |= a[i + 1] << (64 - r);
+		}
+		return word;
+	}
+
+	/**
+	 * Reads up to 64 bits of the set starting at a tile.
+	 *
+	 * @param from, an int, the first tile
+	 * @param length, an int between 1 and 64, the number of tiles
+	 * @return long, the bits of the tiles, the first tile lowest
+	 */
+	private long run(int from, int length) {
+		int w = from >>> 6;
+		int r = from & 63;
+		long bits = words[w] >>> r;
+		if (r != 0 && w + 1 < words.length) {
+			bits |= words[w + 1] << (64 - r);
+		}
+		return length == 64 ? bits : bits & ((1L << length) - 1);
+	}
+
+	/**
+	 * @return long, the bits of the last word that belong to tiles on the board
+	 */
+	private long tailMask() {
+		int used = size & 63;
+		return used == 0 ? -1L : (1L << used) - 1;
+	}
+
+	/**
+	 * Builds the masks that stop bits from wrapping between rows, and the scratch words.
+	 */
+	private void buildColumnMasks() {
+		notFirstCol = new long[words.length];
+		notLastCol = new long[words.length];
+		across = new long[words.length];
+		for (int cell = 0; cell < size; cell++) {
+			int col = cell % cols;
+			if (col != 0) {
+				notFirstCol[cell >>> 6] |= 1L << cell;
+			}
+			if (col != cols - 1) {
+				notLastCol[cell >>> 6] |= 1L << cell;
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that holds the board of the game as flat primitive layers: a terrain layer
+ * with one byte per tile and an occupant layer with the id of the unit standing on each tile.
+ * Tiles are stored row-major, so the tile at (row, col) lives at index row * cols + col.
+ *
+ * date: 10/18/26
+ */
+class Board {
+	static final byte EMPTY = 0; //open ground, units may stand here
+	static final byte MOUNTAIN = 1; //impassable mountain tile
+	static final byte WATER = 2; //impassable water tile
+	static final int NONE = -1; //occupant value of a tile with no unit on it
+
+	private final int rows;
+	private final int cols;
+	private final byte[] terrain;
+	private final int[] occupant;
+
+	/**
+	 * Constructs an empty board with no terrain and no units.
+	 *
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 */
+	Board(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		this.terrain = new byte[rows * cols];
+		this.occupant = new int[rows * cols];
+		Arrays.fill(occupant, NONE);
+	}
+
+	/**
+	 * @return int, the row dimension of the board
+	 */
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return int, the column dimension of the board
+	 */
+	int getCols() {
+		return cols;
+	}
+
+	/**
+	 * @return int, the number of tiles on the board
+	 */
+	int size() {
+		return terrain.length;
+	}
+
+	/**
+	 * Packs a row and column into a tile index.
+	 *
+	 * @param row, an int
+	 * @param col, an int
+	 * @return int, the index of the tile
+	 */
+	int index(int row, int col) {
+		return row * cols + col;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the row of the tile
+	 */
+	int rowOf(int cell) {
+		return cell / cols;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the column of the tile
+	 */
+	int colOf(int cell) {
+		return cell % cols;
+	}
+
+	/**
+	 * Checks that a coordinate is within the bounds of the board
+	 *
+	 * @param row, an int
+	 * @param col, an int
+	 * @return boolean, true if the location is on the board
+	 */
+	boolean inBounds(int row, int col) {
+		return row >= 0 && row < rows && col >= 0 && col < cols;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return byte, the terrain of the tile, EMPTY, MOUNTAIN or WATER
+	 */
+	byte getTerrain(int cell) {
+		return terrain[cell];
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @param type, a byte, the terrain to put on the tile
+	 */
+	void setTerrain(int cell, byte type) {
+		terrain[cell] = type;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the id of the unit on the tile, or NONE
+	 */
+	int getOccupant(int cell) {
+		return occupant[cell];
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @param id, an int, the id of the unit standing on the tile, or NONE to clear it
+	 */
+	void setOccupant(int cell, int id) {
+		occupant[cell] = id;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return boolean, true if units can walk over the terrain of the tile
+	 */
+	boolean isPassable(int cell) {
+		return terrain[cell] == EMPTY;
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return boolean, true if the tile has no terrain obstacle and no unit on it
+	 */
+	boolean isFree(int cell) {
+		return terrain[cell] == EMPTY && occupant[cell] == NONE;
+	}
+}
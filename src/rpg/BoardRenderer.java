@@ -0,0 +1,249 @@
+package rpg;
+
+import java.util.Arrays;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * Package private painter of the board for the view. The grass, the terrain and the tiles shown
+ * over them are all painted on a single Canvas instead of a node per tile, so the scene holds a
+ * handful of nodes whatever the size of the board. The tiles shown are kept as bitsets, one per
+ * layer: where a character can move, where it can attack, and where the werewolves threaten.
+ *
+ * Nothing is painted when a layer changes. The tiles that changed are marked dirty, and once per
+ * pulse of the JavaFX thread only the dirty tiles are painted again, so showing the moves of a
+ * character costs a few tiles of painting however large the board is.
+ *
+ * date: 10/18/26
+ */
+class BoardRenderer {
+	static final int MOVE = 0; //tiles the character choosing can move to
+	static final int ATTACK = 1; //tiles the character choosing can attack
+	static final int THREAT = 2; //tiles the werewolves can attack next turn
+	static final int GRASS = 0;
+	static final int MOUNTAIN = 1;
+	static final int WATER = 2;
+
+	private static final Color GRASS_COLOR = Color.FORESTGREEN;
+	private static final Color BORDER_COLOR = Color.rgb(0, 0, 0, 0.1);
+	private static final Color MOVE_COLOR = Color.rgb(0, 191, 255, 0.7);
+	private static final Color ATTACK_COLOR = Color.rgb(255, 100, 0, 0.7);
+	private static final Color THREAT_COLOR = Color.rgb(200, 0, 0); //drawn at the opacity of each tile
+
+	private final int rows;
+	private final int cols;
+	private final int tile; //size of a tile, in px
+	private final Canvas canvas;
+	private final GraphicsContext gc;
+	private final byte[] terrain; //GRASS, MOUNTAIN or WATER, by tile
+	private final Image[] images = new Image[3]; //picture of each terrain, by kind
+	private final long[][] layers = new long[3][]; //tiles shown, one bit per tile, by layer
+	private final double[] threatOpacity; //opacity of the threat drawn on each tile
+	private final long[] dirty; //tiles to paint again on the next pulse
+	private boolean anyDirty;
+	private final AnimationTimer pulse = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			if (anyDirty) {
+				paintDirty();
+			}
+		}
+	};
+
+	/**
+	 * Sets up the painting of a board. Every tile is painted on the first pulse once started.
+	 *
+	 * @param map, a Character[][], the map of the game, read for its mountains and water
+	 * @param tile, an int, the size of a tile, in px
+	 */
+	BoardRenderer(Character[][] map, int tile) {
+		this.rows = map.length;
+		this.cols = map[0].length;
+		this.tile = tile;
+		this.canvas = new Canvas(cols * tile, rows * tile);
+		this.gc = canvas.getGraphicsContext2D();
+		this.terrain = new byte[rows * cols];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				if (map[i][j] != null && map[i][j].getTeam().equals("mountain")) {
+					terrain[i * cols + j] = MOUNTAIN;
+				} else if (map[i][j] != null && map[i][j].getTeam().equals("water")) {
+					terrain[i * cols + j] = WATER;
+				}
+			}
+		}
+		images[MOUNTAIN] = new Image("rpg/mountain.png");
+		images[WATER] = new Image("rpg/water.png");
+		int words = (rows * cols + 63) / 64;
+		for (int layer = 0; layer < layers.length; layer++) {
+			layers[layer] = new long[words];
+		}
+		this.threatOpacity = new double[rows * cols];
+		this.dirty = new long[words];
+		markAll();
+	}
+
+	/**
+	 * @return Canvas, the node the board is painted on
+	 */
+	Canvas getCanvas() {
+		return canvas;
+	}
+
+	/**
+	 * Starts painting the dirty tiles on every pulse of the JavaFX thread.
+	 */
+	void start() {
+		pulse.start();
+	}
+
+	/**
+	 * Finds the tile under a point of the canvas.
+	 *
+	 * @param x, a double, the x coordinate of the point on the canvas, in px
+	 * @param y, a double, the y coordinate of the point on the canvas, in px
+	 * @return int, the tile as row * cols + col, or -1 if the point is off the board
+	 */
+	int cellAt(double x, double y) {
+		if (x < 0 || y < 0 || x >= cols * tile || y >= rows * tile) {
+			return -1;
+		}
+		return (int) (y / tile) * cols + (int) (x / tile);
+	}
+
+	/**
+	 * @param cell, an int, a tile as row * cols + col
+	 * @return int, GRASS, MOUNTAIN or WATER
+	 */
+	int getTerrain(int cell) {
+		return terrain[cell];
+	}
+
+	/**
+	 * Shows a set of tiles on a layer in place of the ones it showed. Only the tiles that
+	 * changed are painted again.
+	 *
+	 * @param layer, an int, MOVE, ATTACK or THREAT
+	 * @param tiles, a long[], the tiles to show as returned by the model, one bit per tile
+	 */
+	void show(int layer, long[] tiles) {
+		long[] shown = layers[layer];
+		for (int w = 0; w < shown.length; w++) {
+			long changed = shown[w] ^ tiles[w];
+			if (changed != 0) {
+				dirty[w] |= changed;
+				anyDirty = true;
+			}
+			shown[w] = tiles[w];
+		}
+	}
+
+	/**
+	 * Hides every tile of a layer.
+	 *
+	 * @param layer, an int, MOVE, ATTACK or THREAT
+	 */
+	void clear(int layer) {
+		long[] shown = layers[layer];
+		for (int w = 0; w < shown.length; w++) {
+			if (shown[w] != 0) {
+				dirty[w] |= shown[w];
+				anyDirty = true;
+				shown[w] = 0;
+			}
+		}
+	}
+
+	/**
+	 * @param layer, an int, MOVE, ATTACK or THREAT
+	 * @param cell, an int, a tile as row * cols + col
+	 * @return boolean, true if the layer shows the tile
+	 */
+	boolean isShown(int layer, int cell) {
+		return (layers[layer][cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Sets how dark the threat on a tile is drawn, more opaque where more damage can be dealt.
+	 *
+	 * @param cell, an int, a tile as row * cols + col
+	 * @param opacity, a double, from 0 to 1
+	 */
+	void setThreatOpacity(int cell, double opacity) {
+		if (threatOpacity[cell] != opacity) {
+			threatOpacity[cell] = opacity;
+			mark(cell);
+		}
+	}
+
+	/**
+	 * @return boolean, true if some tile waits to be painted again
+	 */
+	boolean isDirty() {
+		return anyDirty;
+	}
+
+	/**
+	 * Marks every tile to be painted again.
+	 */
+	private void markAll() {
+		Arrays.fill(dirty, -1L);
+		int extra = dirty.length * 64 - rows * cols;
+		dirty[dirty.length - 1] >>>= extra; //no bits past the last tile
+		anyDirty = true;
+	}
+
+	/**
+	 * Marks a tile to be painted again.
+	 */
+	private void mark(int cell) {
+		dirty[cell >>> 6] |= 1L << cell;
+		anyDirty = true;
+	}
+
+	/**
+	 * Paints the dirty tiles again and marks them clean.
+	 */
+	private void paintDirty() {
+		for (int w = 0; w < dirty.length; w++) {
+			for (long bits = dirty[w]; bits != 0; bits &= bits - 1) {
+				paint(w * 64 + Long.numberOfTrailingZeros(bits));
+			}
+			dirty[w] = 0;
+		}
+		anyDirty = false;
+	}
+
+	/**
+	 * Paints one tile from scratch: the grass, its terrain, the layers showing it and its border.
+	 */
+	private void paint(int cell) {
+		double x = (cell % cols) * tile;
+		double y = (cell / cols) * tile;
+		gc.setFill(GRASS_COLOR);
+		gc.fillRect(x, y, tile, tile);
+		if (terrain[cell] != GRASS) {
+			gc.drawImage(images[terrain[cell]], x, y, tile, tile);
+		}
+		if (isShown(THREAT, cell)) {
+			gc.setGlobalAlpha(threatOpacity[cell]);
+			gc.setFill(THREAT_COLOR);
+			gc.fillRect(x + 1, y + 1, tile - 2, tile - 2);
+			gc.setGlobalAlpha(1);
+		}
+		if (isShown(MOVE, cell)) {
+			gc.setFill(MOVE_COLOR);
+			gc.fillRect(x + 1, y + 1, tile - 2, tile - 2);
+		}
+		if (isShown(ATTACK, cell)) {
+			gc.setFill(ATTACK_COLOR);
+			gc.fillRect(x + 1, y + 1, tile - 2, tile - 2);
+		}
+		gc.setStroke(BORDER_COLOR);
+		gc.strokeRect(x + 0.5, y + 0.5, tile - 1, tile - 1);
+	}
+}
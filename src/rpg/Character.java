@@ -1,18 +1,15 @@
 package rpg;
 
 /**
- * This class represents a single character in the game. 
+ * This class represents a single character in the game. A character is a handle over one 
+ * entry of a UnitStore, which keeps the stats of every unit in parallel arrays.
  *
  * date: 5/05/21
  */
 public class Character {
 	
-	private int HP; 
-	private int defense; 
-	private int attackPower; 
-	private boolean isDefending; 
-	private String team; 
-	public Point pos;
+	private final UnitStore store; //the store holding this character's stats
+	private final int id; //the character's id in the store
 	
 	/**
 	 * Constructor for a character with values for the fields passed in. 
@@ -24,18 +21,33 @@ public class Character {
 	 * 
 	 */
 	public Character(int HP, int defense, int attackPower, String team) { 
-		this.HP = HP; 
-		this.defense = defense; 
-		this.attackPower = attackPower; 
-		this.team = team;
-		this.pos = new Point(-1,-1);
+		this.store = new UnitStore(1);
+		this.id = store.add(HP, defense, attackPower, UnitStore.factionOf(team));
+	}
+	
+	/**
+	 * Constructor for a handle over a unit that already exists in a store. 
+	 * 
+	 * @param store, the UnitStore holding the unit
+	 * @param id, an int, the id of the unit in the store
+	 */
+	Character(UnitStore store, int id) { 
+		this.store = store;
+		this.id = id;
+	}
+	
+	/**
+	 * @return int, the id of the character in its store
+	 */
+	int getId() { 
+		return id;
 	}
 	
 	/**
 	 * @return int, represents the strength of the characters attack   
 	 */
 	public int attack() { 
-		return this.attackPower; 
+		return store.getAttack(id); 
 	}
 	
 	/**
@@ -44,8 +56,8 @@ public class Character {
 	 * @return int, represents the power of the characters defense   
 	 */
 	public int defend() { 
-		if (isDefending){ 
-			return this.defense;
+		if (store.isDefending(id)){ 
+			return store.getDefense(id);
 		} 
 		return 0;  
 	}
@@ -56,7 +68,7 @@ public class Character {
 	 *  @param b, a boolean true if the character is defending, false otherwise.
 	 */
 	public void setDefense(boolean b) { 
-		isDefending = b; 
+		store.setDefending(id, b); 
 	}
 	
 	/**
@@ -65,7 +77,7 @@ public class Character {
 	 * @param loss, an int of by how much to lower the character's health 
 	 */
 	public void lowerHP(int loss) { 
-		this.HP = this.HP - loss; 
+		store.lowerHP(id, loss); 
 	}
 	
 	/**
@@ -74,7 +86,7 @@ public class Character {
 	 * @return the character's team, either "AI" or "player"  
 	 */
 	public String getTeam() { 
-		return this.team;
+		return UnitStore.teamOf(store.getFaction(id));
 	}
 	
 	/**
@@ -83,7 +95,7 @@ public class Character {
 	 * @return the character's health as an integer
 	 */
 	public int getHP() {
-		return HP;
+		return store.getHP(id);
 	}
 	
 	/**
@@ -93,15 +105,29 @@ public class Character {
 	 * @param int y, the y location of the character
 	 */
 	public void setPoint(int x,int y) {
-		pos.x = x;
-		pos.y = y;
+		store.setPos(id, y, x);
 	}
 	
 	/**
-	 * @return Point, an instance of Point class holding the location of the character 
+	 * @return Point, a new instance of Point class holding the location of the character 
 	 */
 	public Point getPoint() {
-		return pos;
+		int packed = store.getPos(id);
+		return new Point(UnitStore.colOf(packed), UnitStore.rowOf(packed));
+	}
+	
+	/**
+	 * @return int, the row the character is on, or -1 if it is not on the board
+	 */
+	public int getRow() {
+		return UnitStore.rowOf(store.getPos(id));
+	}
+	
+	/**
+	 * @return int, the column the character is on, or -1 if it is not on the board
+	 */
+	public int getCol() {
+		return UnitStore.colOf(store.getPos(id));
 	}
 	
 }
@@ -0,0 +1,130 @@
+package rpg;
+
+/**
+ * This class is an order given to one character: Move to a tile, Attack the character on a tile,
+ * or Defend. Orders are played one at a time with RPGController.execute(), or a whole team's
+ * orders at once with RPGController.submit(). The tile of an order is packed into a single int as
+ * (row << 16) | col, so a turn can be sent or stored as a few ints per character.
+ *
+ * date: 10/18/26
+ */
+public abstract class Command {
+	private final Character character;
+	private final int target; //packed tile of the order, or UnitStore.NO_POS for a defense
+
+	/**
+	 * @param character, the Character given the order
+	 * @param target, an int, the packed tile of the order
+	 */
+	private Command(Character character, int target) {
+		if (character == null) {
+			throw new IllegalArgumentException("An order needs a character");
+		}
+		this.character = character;
+		this.target = target;
+	}
+
+	/**
+	 * @param c, the Character moving
+	 * @param row, an int, the row of the tile to move to
+	 * @param col, an int, the column of the tile to move to
+	 * @return Move, the order
+	 */
+	public static Move move(Character c, int row, int col) {
+		return new Move(c, UnitStore.pack(row, col));
+	}
+
+	/**
+	 * @param c, the Character attacking
+	 * @param row, an int, the row of the tile attacked
+	 * @param col, an int, the column of the tile attacked
+	 * @return Attack, the order
+	 */
+	public static Attack attack(Character c, int row, int col) {
+		return new Attack(c, UnitStore.pack(row, col));
+	}
+
+	/**
+	 * @param c, the Character defending
+	 * @return Defend, the order
+	 */
+	public static Defend defend(Character c) {
+		return new Defend(c);
+	}
+
+	/**
+	 * @return Character, the character given the order
+	 */
+	public Character getCharacter() {
+		return character;
+	}
+
+	/**
+	 * @return int, the tile of the order packed as (row << 16) | col, or -1 for a defense
+	 */
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return int, the row of the tile of the order
+	 */
+	public int getRow() {
+		return UnitStore.rowOf(target);
+	}
+
+	/**
+	 * @return int, the column of the tile of the order
+	 */
+	public int getCol() {
+		return UnitStore.colOf(target);
+	}
+
+	/**
+	 * @return int, Action.MOVE, ATTACK or DEFEND
+	 */
+	abstract int kind();
+
+	/**
+	 * An order to walk to a free tile.
+	 */
+	public static final class Move extends Command {
+		private Move(Character c, int target) {
+			super(c, target);
+		}
+
+		@Override
+		int kind() {
+			return Action.MOVE;
+		}
+	}
+
+	/**
+	 * An order to attack the enemy on a tile. An attack on a tile without an enemy does nothing
+	 * but end the character's defense, so choosing its own tile gives up the attack.
+	 */
+	public static final class Attack extends Command {
+		private Attack(Character c, int target) {
+			super(c, target);
+		}
+
+		@Override
+		int kind() {
+			return Action.ATTACK;
+		}
+	}
+
+	/**
+	 * An order to defend until the character next acts.
+	 */
+	public static final class Defend extends Command {
+		private Defend(Character c) {
+			super(c, UnitStore.NO_POS);
+		}
+
+		@Override
+		int kind() {
+			return Action.DEFEND;
+		}
+	}
+}
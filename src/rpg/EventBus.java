@@ -0,0 +1,151 @@
+package rpg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * This class delivers the events of a game to the listeners of each type of event. A listener
+ * subscribes to one type, such as UnitMoved, and only ever receives events of that type, so it
+ * redraws only what the event says changed.
+ *
+ * Publishing takes no lock: the listeners of each type are kept in an array that is copied when
+ * a listener subscribes or unsubscribes, which is rare, and read as it is on every event. When
+ * no one listens to a type, the model does not even build its events, so a game without a view
+ * pays nothing for them.
+ *
+ * Events can also be coalesced: they are then held back until the end of the turn and delivered
+ * together, with all the damage one character took during the turn folded into one UnitDamaged.
+ * The model tells the bus when a turn or the game ends, whether or not anyone listens to
+ * TurnEnded or GameOver. Events are published from the thread playing the game.
+ *
+ * date: 10/18/26
+ */
+public class EventBus {
+	private static final Consumer<?>[] NO_LISTENERS = new Consumer<?>[0];
+
+	private final ConcurrentHashMap<Class<?>, Consumer<?>[]> listeners = new ConcurrentHashMap<>();
+	private volatile boolean coalescing;
+	private final ArrayList<GameEvent> pending = new ArrayList<>(); //events held back until the turn ends
+
+	/**
+	 * Adds a listener for one type of event.
+	 *
+	 * @param type, the class of the events, such as UnitMoved.class
+	 * @param listener, a Consumer called with every event of that type
+	 */
+	public <E extends GameEvent> void subscribe(Class<E> type, Consumer<? super E> listener) {
+		listeners.merge(type, new Consumer<?>[] {listener}, (old, added) -> {
+			Consumer<?>[] all = Arrays.copyOf(old, old.length + 1);
+			all[old.length] = added[0];
+			return all;
+		});
+	}
+
+	/**
+	 * Removes a listener added with subscribe(). Nothing happens if it was not subscribed.
+	 *
+	 * @param type, the class of the events it listened to
+	 * @param listener, the Consumer to remove
+	 */
+	public <E extends GameEvent> void unsubscribe(Class<E> type, Consumer<? super E> listener) {
+		listeners.computeIfPresent(type, (key, old) -> {
+			for (int i = 0; i < old.length; i++) {
+				if (old[i] == listener) {
+					Consumer<?>[] rest = new Consumer<?>[old.length - 1];
+					System.arraycopy(old, 0, rest, 0, i);
+					System.arraycopy(old, i + 1, rest, i, old.length - i - 1);
+					return rest.length == 0 ? null : rest;
+				}
+			}
+			return old;
+		});
+	}
+
+	/**
+	 * @param type, the class of some events
+	 * @return boolean, true if anyone listens to them, so they are worth building
+	 */
+	public boolean hasListeners(Class<? extends GameEvent> type) {
+		return listeners.containsKey(type);
+	}
+
+	/**
+	 * Makes events wait for the end of the turn and arrive together, or arrive as they happen.
+	 * Turning coalescing off delivers the events held back so far.
+	 *
+	 * @param coalescing, a boolean, true to deliver once per turn
+	 */
+	public void setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+		if (!coalescing) {
+			flush();
+		}
+	}
+
+	/**
+	 * @return boolean, true if events wait for the end of the turn
+	 */
+	public boolean isCoalescing() {
+		return coalescing;
+	}
+
+	/**
+	 * Delivers an event to the listeners of its type, or holds it back until the turn ends if
+	 * events are coalesced. A TurnEnded delivers everything held back, then itself.
+	 *
+	 * @param event, the GameEvent to deliver
+	 */
+	void publish(GameEvent event) {
+		if (!coalescing) {
+			deliver(event);
+			return;
+		}
+		if (event instanceof UnitDamaged) {
+			// fold damage to the same character into one event
+			UnitDamaged hit = (UnitDamaged) event;
+			for (int i = pending.size() - 1; i >= 0; i--) {
+				GameEvent earlier = pending.get(i);
+				if (earlier instanceof UnitDamaged && ((UnitDamaged) earlier).getCharacter() == hit.getCharacter()) {
+					pending.remove(i);
+					event = new UnitDamaged(hit.getCharacter(), ((UnitDamaged) earlier).getDamage() + hit.getDamage(),
+							hit.getHP());
+					break;
+				}
+			}
+		}
+		pending.add(event);
+		if (event instanceof TurnEnded || event instanceof GameOver) {
+			flush();
+		}
+	}
+
+	/**
+	 * Delivers the events held back during the turn that ended, if events are coalesced.
+	 * Called by the model at the end of every turn and when the game ends.
+	 */
+	void endOfTurn() {
+		flush();
+	}
+
+	/**
+	 * Delivers the events held back, in the order they happened.
+	 */
+	private void flush() {
+		for (int i = 0; i < pending.size(); i++) {
+			deliver(pending.get(i));
+		}
+		pending.clear();
+	}
+
+	/**
+	 * Calls every listener of the event's type.
+	 */
+	@SuppressWarnings("unchecked")
+	private void deliver(GameEvent event) {
+		for (Consumer<?> listener : listeners.getOrDefault(event.getClass(), NO_LISTENERS)) {
+			((Consumer<GameEvent>) listener).accept(event);
+		}
+	}
+}
@@ -0,0 +1,312 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that keeps, for every tile, the number of steps to the closest living unit
+ * of one faction, walking along rows and columns over tiles without obstacles. Units do not block
+ * the field, since they move every turn. Any unit of the other faction finds its best step towards
+ * the enemy by reading the four tiles around it.
+ *
+ * The field is updated incrementally. Every tile remembers which unit it is closest to, so when a
+ * unit moves or dies only the tiles that were closest to it are cleared and refilled from the tiles
+ * around them, and the unit's new tile is spread outwards for as long as it is the closer one.
+ *
+ * On a large board with few units each unit is closest to a large region, so a refill is costly.
+ * Changes are therefore only noted as they happen, and the units that changed are refilled the
+ * next time the field is read: a unit that moves several times between reads is refilled once,
+ * and the field of a team no one is walking towards, such as the werewolves' field during their
+ * own turn, costs nothing until it is read.
+ *
+ * date: 10/18/26
+ */
+class FlowField {
+	static final int UNREACHABLE = Integer.MAX_VALUE; //distance of a tile no unit can reach
+
+	// row and column offsets of the four steps, in the order they are tried: left, up, down, right
+	private static final int[] STEP_ROW = {0, -1, 1, 0};
+	private static final int[] STEP_COL = {-1, 0, 0, 1};
+
+	private final Board board;
+	private final UnitStore units;
+	private final byte faction;
+	private final int[] dist; //steps to the closest unit of the faction
+	private final int[] owner; //id of that closest unit, or Board.NONE
+	private int[] sourceCell = new int[0]; //tile each unit was last spread from, or Board.NONE
+	private final int[] neighbours; //the four tiles next to each tile, four per tile, or Board.NONE
+	private final int[] queue; //scratch queue of tiles to spread from
+	private long[] seeds; //scratch list of (distance, tile) pairs to refill a cleared region from
+	private long[] sorted; //the seeds again, in order of distance
+	private int[] counts = new int[16]; //seeds at each distance, while sorting them
+	private final int[] seeded; //removal in which a tile was last made a seed, so it is added once
+	private int removals;
+	private int[] pending = new int[0]; //units changed since the field was last read
+	private boolean[] isPending = new boolean[0]; //whether each unit is in pending, by id
+	private int pendingCount;
+
+	/**
+	 * Constructs the field of a faction. The field is empty until rebuild() is called.
+	 *
+	 * @param board, the Board the units walk on
+	 * @param units, the UnitStore holding the positions of the units
+	 * @param faction, a byte, the faction the distances are measured to
+	 */
+	FlowField(Board board, UnitStore units, byte faction) {
+		this.board = board;
+		this.units = units;
+		this.faction = faction;
+		this.dist = new int[board.size()];
+		this.owner = new int[board.size()];
+		this.neighbours = new int[board.size() * 4];
+		this.queue = new int[board.size()];
+		this.seeds = new long[64];
+		this.sorted = new long[64];
+		this.seeded = new int[board.size()];
+		Arrays.fill(dist, UNREACHABLE);
+		Arrays.fill(owner, Board.NONE);
+		// looked up once so that spreading never divides a tile index back into a row and column
+		for (int cell = 0; cell < board.size(); cell++) {
+			for (int i = 0; i < 4; i++) {
+				int r = board.rowOf(cell) + STEP_ROW[i];
+				int c = board.colOf(cell) + STEP_COL[i];
+				neighbours[cell * 4 + i] = board.inBounds(r, c) ? board.index(r, c) : Board.NONE;
+			}
+		}
+	}
+
+	/**
+	 * Computes the whole field from scratch from every living unit of the faction.
+	 */
+	void rebuild() {
+		Arrays.fill(dist, UNREACHABLE);
+		Arrays.fill(owner, Board.NONE);
+		sourceCell = new int[units.size()];
+		Arrays.fill(sourceCell, Board.NONE);
+		pending = new int[units.size()];
+		isPending = new boolean[units.size()];
+		pendingCount = 0;
+		int tail = 0;
+		for (int id = 0; id < units.size(); id++) {
+			int cell = cellOf(id);
+			if (cell != Board.NONE) {
+				dist[cell] = 0;
+				owner[cell] = id;
+				sourceCell[id] = cell;
+				queue[tail++] = cell;
+			}
+		}
+		spread(0, tail, 0);
+	}
+
+	/**
+	 * Notes that a unit moved, was placed or died. The field is brought up to date the next time
+	 * it is read. Units of other factions are ignored.
+	 *
+	 * @param id, an int, the unit that changed
+	 */
+	void update(int id) {
+		if (units.getFaction(id) != faction) {
+			return;
+		}
+		if (sourceCell.length < units.size()) {
+			int old = sourceCell.length;
+			sourceCell = Arrays.copyOf(sourceCell, units.size());
+			Arrays.fill(sourceCell, old, sourceCell.length, Board.NONE);
+			pending = Arrays.copyOf(pending, units.size());
+			isPending = Arrays.copyOf(isPending, units.size());
+		}
+		if (!isPending[id]) {
+			isPending[id] = true;
+			pending[pendingCount++] = id;
+		}
+	}
+
+	/**
+	 * Refills the field around every unit that changed since it was last read. Every region left
+	 * is cleared and refilled first, while the units that moved onto a tile another one left are
+	 * not on the field yet, and then all the new tiles are spread from at once.
+	 */
+	private void repair() {
+		for (int k = 0; k < pendingCount; k++) {
+			int id = pending[k];
+			isPending[id] = false;
+			int now = cellOf(id);
+			if (now != sourceCell[id] && sourceCell[id] != Board.NONE) {
+				removeSource(id, sourceCell[id]);
+			}
+			sourceCell[id] = now;
+		}
+		int tail = 0;
+		for (int k = 0; k < pendingCount; k++) {
+			int cell = sourceCell[pending[k]];
+			if (cell != Board.NONE && dist[cell] != 0) {
+				dist[cell] = 0;
+				owner[cell] = pending[k];
+				queue[tail++] = cell;
+			}
+		}
+		pendingCount = 0;
+		spread(0, tail, 0);
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the steps from the tile to the closest unit of the faction, or UNREACHABLE
+	 */
+	int distance(int cell) {
+		if (pendingCount > 0) {
+			repair();
+		}
+		return dist[cell];
+	}
+
+	/**
+	 * Finds the free tile next to a tile that is closest to the faction. Steps are tried left,
+	 * up, down, right and only a step that gets strictly closer is taken.
+	 *
+	 * @param cell, an int, the index of the tile to step from
+	 * @return int, the index of the tile to step to, or Board.NONE if no step gets closer
+	 */
+	int bestStep(int cell) {
+		if (pendingCount > 0) {
+			repair();
+		}
+		int row = board.rowOf(cell);
+		int col = board.colOf(cell);
+		int best = Board.NONE;
+		int bestDist = dist[cell];
+		for (int i = 0; i < 4; i++) {
+			int r = row + STEP_ROW[i];
+			int c = col + STEP_COL[i];
+			if (board.inBounds(r, c)) {
+				int n = board.index(r, c);
+				if (dist[n] < bestDist && board.isFree(n)) {
+					best = n;
+					bestDist = dist[n];
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @param id, an int, a unit
+	 * @return int, the tile the unit stands on if it is a living unit of the faction, or Board.NONE
+	 */
+	private int cellOf(int id) {
+		int pos = units.getPos(id);
+		if (units.getFaction(id) != faction || !units.isAlive(id) || pos == UnitStore.NO_POS) {
+			return Board.NONE;
+		}
+		return board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos));
+	}
+
+	/**
+	 * Clears every tile that was closest to a unit and refills them from the tiles around them.
+	 *
+	 * @param id, an int, the unit that left
+	 * @param cell, an int, the tile the unit left
+	 */
+	private void removeSource(int id, int cell) {
+		// the tiles closest to the unit form a connected region around its old tile
+		int tail = 0;
+		dist[cell] = UNREACHABLE;
+		owner[cell] = Board.NONE;
+		queue[tail++] = cell;
+		for (int head = 0; head < tail; head++) {
+			for (int i = queue[head] * 4, end = i + 4; i < end; i++) {
+				int n = neighbours[i];
+				if (n != Board.NONE && owner[n] == id) {
+					dist[n] = UNREACHABLE;
+					owner[n] = Board.NONE;
+					queue[tail++] = n;
+				}
+			}
+		}
+		// the tiles bordering the region still have their right distance, refill from them
+		if (++removals == 0) {
+			Arrays.fill(seeded, 0);
+			removals = 1;
+		}
+		int seedCount = 0;
+		int nearest = UNREACHABLE;
+		int furthest = 0;
+		for (int k = 0; k < tail; k++) {
+			for (int i = queue[k] * 4, end = i + 4; i < end; i++) {
+				int n = neighbours[i];
+				if (n != Board.NONE && dist[n] != UNREACHABLE && seeded[n] != removals) {
+					seeded[n] = removals;
+					if (seedCount == seeds.length) {
+						seeds = Arrays.copyOf(seeds, seedCount * 2);
+					}
+					seeds[seedCount++] = ((long) dist[n] << 32) | n;
+					nearest = Math.min(nearest, dist[n]);
+					furthest = Math.max(furthest, dist[n]);
+				}
+			}
+		}
+		sortSeeds(seedCount, nearest, furthest);
+		spread(0, 0, seedCount);
+	}
+
+	/**
+	 * Sorts the seeds by distance into the sorted list. The seeds border a single region, so their
+	 * distances fall in a short span and are counted rather than compared.
+	 *
+	 * @param seedCount, an int, the number of seeds
+	 * @param nearest, an int, the lowest distance of a seed
+	 * @param furthest, an int, the highest distance of a seed
+	 */
+	private void sortSeeds(int seedCount, int nearest, int furthest) {
+		if (seedCount == 0) {
+			return;
+		}
+		int span = furthest - nearest + 1;
+		if (counts.length < span + 1) {
+			counts = new int[Math.max(span + 1, counts.length * 2)];
+		}
+		if (sorted.length < seedCount) {
+			sorted = new long[seeds.length];
+		}
+		Arrays.fill(counts, 0, span + 1, 0);
+		for (int k = 0; k < seedCount; k++) {
+			counts[(int) (seeds[k] >>> 32) - nearest + 1]++;
+		}
+		for (int d = 1; d <= span; d++) {
+			counts[d] += counts[d - 1];
+		}
+		for (int k = 0; k < seedCount; k++) {
+			sorted[counts[(int) (seeds[k] >>> 32) - nearest]++] = seeds[k];
+		}
+	}
+
+	/**
+	 * Spreads distances outwards breadth first, lowering every tile that can be reached in fewer
+	 * steps than it has now. Tiles are taken in order of distance from the queue and from the
+	 * sorted seeds, so each tile is settled the first time it is lowered.
+	 *
+	 * @param head, an int, the first tile in the queue
+	 * @param tail, an int, one past the last tile in the queue
+	 * @param seedCount, an int, the number of sorted seeds
+	 */
+	private void spread(int head, int tail, int seedCount) {
+		int next = 0;
+		while (head < tail || next < seedCount) {
+			int cell;
+			if (head < tail && (next == seedCount || dist[queue[head]] <= (int) (sorted[next] >>> 32))) {
+				cell = queue[head++];
+			} else {
+				cell = (int) sorted[next++];
+			}
+			int step = dist[cell] + 1;
+			for (int i = cell * 4, end = i + 4; i < end; i++) {
+				int n = neighbours[i];
+				if (n != Board.NONE && step < dist[n] && board.isPassable(n)) {
+					dist[n] = step;
+					owner[n] = owner[cell];
+					queue[tail++] = n;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package rpg;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class holds the settings of a game: the dimensions of the board, the size of each army,
+ * the stats every unit starts with and where the armies are placed. The user's vampires start in
+ * the top left corner and the AI's werewolves start on the mirrored tiles in the bottom right corner.
+ *
+ * date: 10/18/26
+ */
+public class GameConfig {
+	// starting tiles of the vampires in the classic 20 x 20 game, as {row, col}
+	private static final int[][] CLASSIC_LAYOUT = {{0, 0}, {0, 2}, {2, 0}, {2, 3}, {4, 1}};
+	private static final int MAX_DIMENSION = Short.MAX_VALUE; //positions are packed into 16 bits
+	private static final int MAX_UNITS_PER_SIDE = Undo.MAX_UNITS / 2; //unit ids are packed into undo records
+
+	private final int rows;
+	private final int cols;
+	private final int unitsPerSide;
+	private final int unitHP;
+	private final int unitDefense;
+	private final int unitAttack;
+	private final int moveRange; //most tiles a character walks in one move
+	private final int[][] layout; //starting tiles of the vampires, as {row, col}
+	private final long seed; //seed the terrain is drawn from
+
+	/**
+	 * Constructor for a game with the classic unit stats, 100 HP, 5 defense and 10 attack.
+	 *
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 * @param unitsPerSide, an int, the number of characters on each team
+	 */
+	public GameConfig(int rows, int cols, int unitsPerSide) {
+		this(rows, cols, unitsPerSide, 100, 5, 10);
+	}
+
+	/**
+	 * Constructor for a game with the values for the fields passed in.
+	 *
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 * @param unitsPerSide, an int, the number of characters on each team
+	 * @param unitHP, an int, the health every character starts with
+	 * @param unitDefense, an int, the defense of every character
+	 * @param unitAttack, an int, the attack power of every character
+	 * @throws IllegalArgumentException if the board is too small or too large, or the armies
+	 * 		do not fit in their corners of the board
+	 */
+	public GameConfig(int rows, int cols, int unitsPerSide, int unitHP, int unitDefense, int unitAttack) {
+		this(rows, cols, unitsPerSide, unitHP, unitDefense, unitAttack, 3);
+	}
+
+	/**
+	 * Constructor for a game with the values for the fields passed in, including how far a
+	 * character walks in one move. Larger boards can use longer moves.
+	 *
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 * @param unitsPerSide, an int, the number of characters on each team
+	 * @param unitHP, an int, the health every character starts with
+	 * @param unitDefense, an int, the defense of every character
+	 * @param unitAttack, an int, the attack power of every character
+	 * @param moveRange, an int, the most tiles a character walks in one move, 3 in the classic game
+	 * @throws IllegalArgumentException if the board is too small or too large, the armies
+	 * 		do not fit in their corners of the board, or the move range is below 1
+	 */
+	public GameConfig(int rows, int cols, int unitsPerSide, int unitHP, int unitDefense, int unitAttack,
+			int moveRange) {
+		this(rows, cols, unitsPerSide, unitHP, unitDefense, unitAttack, moveRange, new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Constructor for a game with the values for the fields passed in and a fixed seed, so that
+	 * every game made from it has the same terrain.
+	 */
+	private GameConfig(int rows, int cols, int unitsPerSide, int unitHP, int unitDefense, int unitAttack,
+			int moveRange, long seed) {
+		if (rows < 5 || cols < 5 || rows > MAX_DIMENSION || cols > MAX_DIMENSION) {
+			throw new IllegalArgumentException("Board must be between 5 and " + MAX_DIMENSION
+					+ " tiles on each side, was " + rows + "x" + cols);
+		}
+		if (unitsPerSide < 1) {
+			throw new IllegalArgumentException("Each team needs at least one character");
+		}
+		if (unitsPerSide > MAX_UNITS_PER_SIDE) {
+			throw new IllegalArgumentException("Each team can have at most " + MAX_UNITS_PER_SIDE + " characters");
+		}
+		if (moveRange < 1) {
+			throw new IllegalArgumentException("Characters must be able to move at least one tile");
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.unitsPerSide = unitsPerSide;
+		this.unitHP = unitHP;
+		this.unitDefense = unitDefense;
+		this.unitAttack = unitAttack;
+		this.moveRange = moveRange;
+		this.layout = makeLayout();
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the settings of the classic game: a 20 x 20 board with 5 characters on each team.
+	 *
+	 * @return the classic GameConfig
+	 */
+	public static GameConfig classic() {
+		return new GameConfig(20, 20, 5);
+	}
+
+	/**
+	 * Returns the same settings with the terrain drawn from a given seed. Games made from
+	 * configurations with the same seed have the same mountains and lakes.
+	 *
+	 * @param seed, a long, the seed of the terrain
+	 * @return the seeded GameConfig
+	 */
+	public GameConfig withSeed(long seed) {
+		return new GameConfig(rows, cols, unitsPerSide, unitHP, unitDefense, unitAttack, moveRange, seed);
+	}
+
+	/**
+	 * Chooses the starting tiles of the vampires. The classic board uses the original layout, any
+	 * other board fills the diagonals of the top left corner, leaving a gap between characters.
+	 * Characters stay left of the middle band where the obstacles are placed.
+	 *
+	 * @return an array of {row, col} pairs, one per vampire
+	 */
+	private int[][] makeLayout() {
+		if (rows == 20 && cols == 20 && unitsPerSide <= CLASSIC_LAYOUT.length) {
+			int[][] classic = new int[unitsPerSide][];
+			for (int i = 0; i < unitsPerSide; i++) {
+				classic[i] = CLASSIC_LAYOUT[i].clone();
+			}
+			return classic;
+		}
+		int[][] tiles = new int[unitsPerSide][];
+		int width = getObstacleMargin(); //columns left of the obstacle band
+		int placed = 0;
+		for (int d = 0; placed < unitsPerSide && d < rows + width; d += 2) {
+			for (int col = 0; col <= d && col < width && placed < unitsPerSide; col++) {
+				int row = d - col;
+				if (row < rows) {
+					tiles[placed++] = new int[] {row, col};
+				}
+			}
+		}
+		if (placed < unitsPerSide) {
+			throw new IllegalArgumentException(unitsPerSide + " characters per team do not fit on a "
+					+ rows + "x" + cols + " board");
+		}
+		return tiles;
+	}
+
+	/**
+	 * @return int, the row dimension of the board
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return int, the column dimension of the board
+	 */
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * @return int, the number of characters on each team at the start of the game
+	 */
+	public int getUnitsPerSide() {
+		return unitsPerSide;
+	}
+
+	/**
+	 * @return int, the health every character starts with
+	 */
+	public int getUnitHP() {
+		return unitHP;
+	}
+
+	/**
+	 * @return int, the defense of every character
+	 */
+	public int getUnitDefense() {
+		return unitDefense;
+	}
+
+	/**
+	 * @return int, the attack power of every character
+	 */
+	public int getUnitAttack() {
+		return unitAttack;
+	}
+
+	/**
+	 * @return int, the most tiles a character walks in one move
+	 */
+	public int getMoveRange() {
+		return moveRange;
+	}
+
+	/**
+	 * @return long, the seed the terrain is drawn from, a random one unless set with withSeed()
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Returns the number of columns kept free of obstacles on each side of the board, which is
+	 * where the armies start.
+	 *
+	 * @return int, the width of each army's starting area
+	 */
+	public int getObstacleMargin() {
+		return Math.max(1, Math.min(rows, cols) / 5);
+	}
+
+	/**
+	 * Returns how many times the classic set of mountains and lakes is placed on the board.
+	 *
+	 * @return int, 1 for the classic board, more for larger boards
+	 */
+	public int getObstacleScale() {
+		return Math.max(1, Math.min(rows, cols) / 20);
+	}
+
+	/**
+	 * Returns the starting tile of a character.
+	 *
+	 * @param id, an int, the id of the character, vampires first and then werewolves
+	 * @return an integer array containing the coordinates, [row, col]
+	 */
+	public int[] getStartingTile(int id) {
+		if (id < unitsPerSide) {
+			return layout[id].clone();
+		}
+		int[] mirror = layout[id - unitsPerSide];
+		return new int[] {rows - 1 - mirror[0], cols - 1 - mirror[1]};
+	}
+}
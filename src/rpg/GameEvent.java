@@ -0,0 +1,11 @@
+package rpg;
+
+/**
+ * This interface marks the events the model publishes on its EventBus as the game is played:
+ * UnitMoved, UnitDamaged, UnitKilled, TurnEnded and GameOver. Events are immutable, so they can
+ * be handed to any thread.
+ *
+ * date: 10/18/26
+ */
+public interface GameEvent {
+}
@@ -0,0 +1,251 @@
+package rpg;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class is the log of a game: what every character did, and at the DETAIL level what it
+ * cost the others. The thread playing the game writes each entry as a record of two longs into
+ * a ring buffer allocated once, which takes no lock, builds no string and never waits. A thread
+ * of the log reads the records back, turns them into lines such as "Werewolf 2 attacks Vampire
+ * 4 for 3 damage." and writes them to a LogSink: the console, a file or memory.
+ *
+ * The level can be changed at any time. While it is OFF, which is the default, writing a record
+ * is one read of the level, and the thread of the log is not even started. If the game writes
+ * faster than the sink keeps up and the ring fills, new records are dropped and counted rather
+ * than slowing the game down, and the log says how many were lost.
+ *
+ * Records are written from one thread at a time, the one playing the game.
+ *
+ * date: 10/18/26
+ */
+public class GameLog {
+	public static final int OFF = 0; //nothing is logged
+	public static final int ACTIONS = 1; //moves, attacks and defenses
+	public static final int DETAIL = 2; //also the health left after a hit, deaths and turn ends
+
+	// kinds of records, the first ones are actions
+	static final int MOVE = 0; //unit moved, a = packed start, b = packed destination
+	static final int ATTACK = 1; //unit attacked, a = id of the unit attacked, b = damage
+	static final int DEFEND = 2; //unit started defending
+	static final int MISS = 3; //unit attacked a tile without an enemy
+	static final int DAMAGE = 4; //unit was hit, a = damage, b = health left
+	static final int DEATH = 5; //unit died, a = packed position
+	static final int TURN = 6; //a team ended its turn, unit = faction, a = turns ended so far
+	private static final int[] LEVEL_OF = {ACTIONS, ACTIONS, ACTIONS, ACTIONS, DETAIL, DETAIL, DETAIL};
+	private static final long IDLE_NANOS = 10_000_000L; //longest the log thread sleeps between checks
+
+	private final int unitsPerSide; //to number the characters of each team as the game does
+	private final long[] ring; //two longs per record: kind, unit, a and b
+	private final int mask; //records in the ring minus one
+	private final AtomicLong head = new AtomicLong(); //records written, by the game
+	private final AtomicLong tail = new AtomicLong(); //records read, by the log thread
+	private volatile long written; //records read and handed to a sink that was flushed since
+	private volatile long dropped; //records lost to a full ring, written by the game
+	private volatile int level = OFF;
+	private volatile LogSink sink = LogSink.console();
+	private volatile boolean sleeping; //the log thread is waiting for records
+	private volatile boolean running;
+	private Thread consumer; //the log thread, started on the first level above OFF
+
+	/**
+	 * Constructor for the log of a game.
+	 *
+	 * @param unitsPerSide, an int, the number of characters of each team
+	 * @param capacity, an int, the most records waiting to be written, rounded up to a power of two
+	 */
+	GameLog(int unitsPerSide, int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		this.unitsPerSide = unitsPerSide;
+		this.ring = new long[size * 2];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Sets how much is logged. Logging starts the thread of the log the first time.
+	 *
+	 * @param level, an int, OFF, ACTIONS or DETAIL
+	 */
+	public synchronized void setLevel(int level) {
+		if (level < OFF || level > DETAIL) {
+			throw new IllegalArgumentException("Unknown log level " + level);
+		}
+		this.level = level;
+		if (level > OFF && consumer == null) {
+			running = true;
+			consumer = new Thread(this::consume, "game-log");
+			consumer.setDaemon(true);
+			consumer.start();
+		}
+	}
+
+	/**
+	 * @return int, the level of the log, OFF, ACTIONS or DETAIL
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Sends the lines to another sink, once the lines waiting for the old one are written.
+	 *
+	 * @param sink, the LogSink to write to
+	 */
+	public synchronized void setSink(LogSink sink) {
+		flush();
+		this.sink = sink;
+	}
+
+	/**
+	 * @return long, the number of records lost because the ring was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Waits until every record written so far is in the sink and the sink is flushed.
+	 */
+	public void flush() {
+		long target = head.get();
+		while (consumer != null && consumer.isAlive() && written < target) {
+			LockSupport.unpark(consumer);
+			LockSupport.parkNanos(100_000L);
+		}
+	}
+
+	/**
+	 * Writes what is left, stops the thread of the log and closes the sink. Nothing is logged
+	 * afterwards.
+	 */
+	public synchronized void close() {
+		flush();
+		level = OFF;
+		running = false;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+			try {
+				consumer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			sink.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a record, if its kind is logged at the current level.
+	 *
+	 * @param kind, an int, MOVE, ATTACK, DEFEND, MISS, DAMAGE, DEATH or TURN
+	 * @param unit, an int, the id of the unit, or the faction for TURN
+	 * @param a, an int, the first value of the record, as its kind says
+	 * @param b, an int, the second value of the record, as its kind says
+	 */
+	void record(int kind, int unit, int a, int b) {
+		if (level < LEVEL_OF[kind]) {
+			return;
+		}
+		long h = head.get();
+		if (h - tail.get() > mask) {
+			dropped++; //only the game writes it
+			return;
+		}
+		int at = (int) (h & mask) << 1;
+		ring[at] = ((long) kind << 32) | (unit & 0xFFFFFFFFL);
+		ring[at + 1] = ((long) a << 32) | (b & 0xFFFFFFFFL);
+		head.lazySet(h + 1); //publishes the two longs above to the log thread
+		if (sleeping) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * The loop of the log thread: writes the records as they come and flushes the sink whenever
+	 * it catches up with the game.
+	 */
+	private void consume() {
+		long reported = 0; //dropped records already reported
+		while (running || tail.get() < head.get()) {
+			LogSink out = sink;
+			long t = tail.get();
+			long h = head.get();
+			try {
+				for (; t < h; t++) {
+					int at = (int) (t & mask) << 1;
+					String line = format(ring[at], ring[at + 1]);
+					tail.lazySet(t + 1);
+					out.write(line);
+				}
+				long lost = dropped;
+				if (lost > reported) {
+					out.write((lost - reported) + " log records were dropped.");
+					reported = lost;
+				}
+				out.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+				level = OFF; //stop filling a ring no one can empty
+				tail.set(h);
+			}
+			written = h;
+			// the game only wakes a sleeping log thread, and a wake up that crosses the check
+			// below is caught at the latest when the sleep times out
+			sleeping = true;
+			if (running && tail.get() == head.get()) {
+				LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+			sleeping = false;
+		}
+	}
+
+	/**
+	 * Turns a record back into a line of text.
+	 *
+	 * @param header, a long, the kind and the unit of the record
+	 * @param values, a long, the two values of the record
+	 * @return String, the line
+	 */
+	String format(long header, long values) {
+		int kind = (int) (header >>> 32);
+		int unit = (int) header;
+		int a = (int) (values >>> 32);
+		int b = (int) values;
+		switch (kind) {
+			case MOVE:
+				return name(unit) + " moves from " + at(a) + " to " + at(b) + ".";
+			case ATTACK:
+				return name(unit) + " attacks " + name(a) + " for " + b + " damage.";
+			case DEFEND:
+				return name(unit) + " is defending.";
+			case MISS:
+				return name(unit) + " cannot attack here.";
+			case DAMAGE:
+				return name(unit) + " has " + Math.max(0, b) + "HP left.";
+			case DEATH:
+				return name(unit) + " dies at " + at(a) + ".";
+			default:
+				return "Turn " + a + ": the " + (unit == UnitStore.PLAYER ? "player" : "AI") + " ends its turn.";
+		}
+	}
+
+	/**
+	 * @param id, an int, the id of a unit
+	 * @return String, the unit as the game shows it, such as "Vampire 2" or "Werewolf 4"
+	 */
+	private String name(int id) {
+		return id < unitsPerSide ? "Vampire " + (id + 1) : "Werewolf " + (id - unitsPerSide + 1);
+	}
+
+	/**
+	 * @param packed, an int, a position packed by UnitStore.pack()
+	 * @return String, the position as (row, col)
+	 */
+	private static String at(int packed) {
+		return "(" + UnitStore.rowOf(packed) + ", " + UnitStore.colOf(packed) + ")";
+	}
+}
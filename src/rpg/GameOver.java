@@ -0,0 +1,27 @@
+package rpg;
+
+/**
+ * This class describes the end of the game, when a team has no character left.
+ *
+ * date: 10/18/26
+ */
+public class GameOver implements GameEvent {
+	private final int result;
+
+	/**
+	 * Constructor for a game over event.
+	 *
+	 * @param result, an int, 1 if the user won, 2 if the AI won, 3 if no one is left
+	 */
+	GameOver(int result) {
+		this.result = result;
+	}
+
+	/**
+	 * @return int, 1 if the user won, 2 if the AI won, 3 if no one is left, as
+	 * 		RPGController.isOver() reports
+	 */
+	public int getResult() {
+		return result;
+	}
+}
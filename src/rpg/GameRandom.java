@@ -0,0 +1,61 @@
+package rpg;
+
+import java.util.SplittableRandom;
+
+/**
+ * Package private class handing out the random numbers of one game, all drawn from the seed of
+ * its GameConfig, so that a game played again from the same seed places the same terrain and
+ * makes the same random choices. Each part of the game that draws random numbers asks for its
+ * own SplittableRandom stream, and a part running on several threads splits its stream once per
+ * thread, so no stream is ever shared between threads and nothing is allocated per draw.
+ *
+ * A stream depends only on the seed, its subsystem and how many streams of that subsystem were
+ * asked for before it, not on what other subsystems do, so adding random numbers to one part of
+ * the game does not change what the others draw.
+ *
+ * date: 10/18/26
+ */
+final class GameRandom {
+	static final int TERRAIN = 0; //mountains and lakes
+	static final int RULES = 1; //the coin the simple rules flip between attacking and defending
+	static final int SEARCH = 2; //the playouts of the Monte Carlo search
+	private static final int SUBSYSTEMS = 3;
+
+	private final long seed;
+	private final int[] handedOut = new int[SUBSYSTEMS]; //streams given so far, by subsystem
+
+	/**
+	 * @param seed, a long, the seed of the game
+	 */
+	GameRandom(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Hands out the next stream of a subsystem. Streams are meant to be asked for while a game
+	 * is set up, on one thread, so that they come out in the same order every time.
+	 *
+	 * @param subsystem, an int, TERRAIN, RULES or SEARCH
+	 * @return SplittableRandom, a stream of its own
+	 */
+	synchronized SplittableRandom stream(int subsystem) {
+		return new SplittableRandom(mix(seed ^ mix(((long) subsystem << 32) | handedOut[subsystem]++)));
+	}
+
+	/**
+	 * @return long, the seed of the game
+	 */
+	long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * The splitmix64 finalizer, so that seeds next to each other give unrelated streams.
+	 */
+	private static long mix(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,188 @@
+package rpg;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a picture of a game at the end of a turn or of a request, for the view and for
+ * anyone else watching the game from another thread: where each character stands, its health
+ * and defense, the tiles the werewolves threaten and how the game stands. Snapshots are handed
+ * out by a SnapshotBuffer, and a snapshot never changes while a reader holds it.
+ *
+ * Snapshots are reused: once every reader has released one, the game may fill it again with a
+ * later turn. A reader must therefore release a snapshot when done and not keep it afterwards.
+ *
+ * date: 10/18/26
+ */
+public final class GameSnapshot {
+	private static final int FILLING = -1; //readers while the game fills the snapshot
+
+	private final int cols;
+	private final int[] pos; //packed tile of each unit by id, or UnitStore.NO_POS if it died
+	private final int[] hp;
+	private final boolean[] defending;
+	private final long[] threats; //tiles the werewolves can attack next turn, one bit per tile
+	private final int[] damage; //damage the werewolves can deal on each threatened tile, by tile
+	private int result; //as RPGController.isOver()
+	private int turn; //turns ended when the snapshot was taken
+	private final AtomicInteger readers = new AtomicInteger(FILLING); //readers holding it, or FILLING
+
+	/**
+	 * Makes an empty snapshot for the games of a configuration, held by the game for filling.
+	 *
+	 * @param config, the GameConfig of the game
+	 */
+	GameSnapshot(GameConfig config) {
+		int units = config.getUnitsPerSide() * 2;
+		int cells = config.getRows() * config.getCols();
+		this.cols = config.getCols();
+		this.pos = new int[units];
+		this.hp = new int[units];
+		this.defending = new boolean[units];
+		this.threats = new long[(cells + 63) / 64];
+		this.damage = new int[cells];
+	}
+
+	/**
+	 * Copies a game into the snapshot, allocating nothing. Called by the thread playing the game
+	 * while it holds the snapshot for filling.
+	 *
+	 * @param model, the RPGModel of the game
+	 * @param turn, an int, the turns ended so far
+	 */
+	void fill(RPGModel model, int turn) {
+		UnitStore units = model.getUnits();
+		for (int id = 0; id < pos.length; id++) {
+			boolean alive = units.isAlive(id);
+			pos[id] = alive ? units.getPos(id) : UnitStore.NO_POS;
+			hp[id] = alive ? units.getHP(id) : 0;
+			defending[id] = alive && units.isDefending(id);
+		}
+		// only the tiles threatened last time have damage to clear
+		for (int w = 0; w < threats.length; w++) {
+			for (long bits = threats[w]; bits != 0; bits &= bits - 1) {
+				damage[w * 64 + Long.numberOfTrailingZeros(bits)] = 0;
+			}
+		}
+		model.copyThreatTiles("AI", threats);
+		for (int w = 0; w < threats.length; w++) {
+			for (long bits = threats[w]; bits != 0; bits &= bits - 1) {
+				int cell = w * 64 + Long.numberOfTrailingZeros(bits);
+				damage[cell] = model.getDamageAt("AI", cell / cols, cell % cols, 0);
+			}
+		}
+		int user = model.numberOfUserChars();
+		int ai = model.numberOfAIChars();
+		this.result = user > 0 && ai > 0 ? 0 : user > 0 ? 1 : ai > 0 ? 2 : 3;
+		this.turn = turn;
+	}
+
+	/**
+	 * Takes the snapshot for filling, if no reader holds it.
+	 *
+	 * @return boolean, true if the game may fill it
+	 */
+	boolean claim() {
+		return readers.compareAndSet(0, FILLING);
+	}
+
+	/**
+	 * Lets readers hold the snapshot once it is filled. Everything filled before is seen by
+	 * every reader that holds it afterwards.
+	 */
+	void open() {
+		readers.set(0);
+	}
+
+	/**
+	 * Holds the snapshot for reading, unless the game is filling it.
+	 *
+	 * @return boolean, true if it is held and must be released
+	 */
+	boolean retain() {
+		for (int r = readers.get(); r >= 0; r = readers.get()) {
+			if (readers.compareAndSet(r, r + 1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gives back a snapshot taken with SnapshotBuffer.acquire(), so the game may fill it again.
+	 * The snapshot must not be read afterwards.
+	 */
+	public void release() {
+		readers.decrementAndGet();
+	}
+
+	/**
+	 * @return int, the number of turns ended when the snapshot was taken
+	 */
+	public int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * @param id, an int, the id of a character
+	 * @return boolean, true if it was alive
+	 */
+	public boolean isAlive(int id) {
+		return pos[id] != UnitStore.NO_POS;
+	}
+
+	/**
+	 * @param id, an int, the id of a living character
+	 * @return int, the row it stood on
+	 */
+	public int getRow(int id) {
+		return UnitStore.rowOf(pos[id]);
+	}
+
+	/**
+	 * @param id, an int, the id of a living character
+	 * @return int, the column it stood on
+	 */
+	public int getCol(int id) {
+		return UnitStore.colOf(pos[id]);
+	}
+
+	/**
+	 * @param id, an int, the id of a character
+	 * @return int, its health, 0 if it died
+	 */
+	public int getHP(int id) {
+		return hp[id];
+	}
+
+	/**
+	 * @param id, an int, the id of a character
+	 * @return boolean, true if it was defending
+	 */
+	public boolean isDefending(int id) {
+		return defending[id];
+	}
+
+	/**
+	 * @return long[], the tiles the werewolves could attack next turn, one bit per tile indexed
+	 * 		row * cols + col, not to be changed
+	 */
+	public long[] getThreats() {
+		return threats;
+	}
+
+	/**
+	 * @param row, an int, the row of a threatened tile
+	 * @param col, an int, the column of a threatened tile
+	 * @return int, the damage the werewolves could deal to a vampire not defending there
+	 */
+	public int getDamage(int row, int col) {
+		return damage[row * cols + col];
+	}
+
+	/**
+	 * @return int, 0 if the game was not over, 1 if the user won, 2 if the AI won, 3 if tie
+	 */
+	public int getResult() {
+		return result;
+	}
+}
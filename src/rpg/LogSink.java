@@ -0,0 +1,121 @@
+package rpg;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This interface is where a GameLog writes the lines it formats. Lines are written from the
+ * thread of the log, never from the thread playing the game, so a slow sink slows no one down.
+ *
+ * date: 10/18/26
+ */
+public interface LogSink {
+	/**
+	 * Writes one line of the log.
+	 *
+	 * @param line, a String, without its line separator
+	 * @throws IOException if the line cannot be written
+	 */
+	void write(String line) throws IOException;
+
+	/**
+	 * Pushes out the lines written so far. The log calls it whenever it runs out of lines.
+	 *
+	 * @throws IOException if the lines cannot be written
+	 */
+	default void flush() throws IOException {
+	}
+
+	/**
+	 * Releases what the sink holds. The log calls it when it is closed.
+	 *
+	 * @throws IOException if the last lines cannot be written
+	 */
+	default void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * @return LogSink, a sink printing to System.out
+	 */
+	static LogSink console() {
+		PrintStream out = System.out;
+		return new LogSink() {
+			@Override
+			public void write(String line) {
+				out.println(line);
+			}
+
+			@Override
+			public void flush() {
+				out.flush();
+			}
+
+			@Override
+			public void close() {
+				out.flush(); //System.out stays open
+			}
+		};
+	}
+
+	/**
+	 * @param path, the Path of the file, which is replaced
+	 * @return LogSink, a sink writing to a file in UTF-8
+	 * @throws IOException if the file cannot be created
+	 */
+	static LogSink file(Path path) throws IOException {
+		Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		return new LogSink() {
+			@Override
+			public void write(String line) throws IOException {
+				out.write(line);
+				out.write(System.lineSeparator());
+			}
+
+			@Override
+			public void flush() throws IOException {
+				out.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				out.close();
+			}
+		};
+	}
+
+	/**
+	 * @return Memory, a sink keeping the lines, to be read back with getLines()
+	 */
+	static Memory memory() {
+		return new Memory();
+	}
+
+	/**
+	 * A sink keeping every line in memory, for tests and for tools reading the log back.
+	 */
+	final class Memory implements LogSink {
+		private final ArrayList<String> lines = new ArrayList<>();
+
+		private Memory() {
+		}
+
+		@Override
+		public synchronized void write(String line) {
+			lines.add(line);
+		}
+
+		/**
+		 * @return List, a copy of the lines written so far, oldest first
+		 */
+		public synchronized List<String> getLines() {
+			return new ArrayList<>(lines);
+		}
+	}
+}
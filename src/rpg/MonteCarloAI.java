@@ -0,0 +1,293 @@
+package rpg;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Package private class that chooses the action of a character with Monte Carlo tree search over
+ * the Skirmish around it. Each iteration walks down a tree of actions, picking the most promising
+ * child by UCT, adds one new action, then plays the fight out a few turns with quick, partly
+ * random actions and scores the result. The side deciding picks the children best for itself and
+ * the enemies the children worst for it.
+ *
+ * The search runs on every core at once with root parallelism: each worker grows its own tree
+ * from the same position on a fork-join pool, and at the end the visits of the first actions are
+ * added up over all trees. A single worker runs on the calling thread with no pool. Workers share
+ * nothing while they run except the count of playouts.
+ * The search stops when its time budget or its playout budget runs out, whichever comes first.
+ *
+ * date: 10/18/26
+ */
+class MonteCarloAI implements AIEngine {
+	private static final int HORIZON = 16; //actions played ahead from the position, tree and playout together
+	private static final double EXPLORATION = 1.4; //weight of the UCT bonus for rarely visited actions
+	private static final double SCALE = 30.0; //gain in score that makes a playout count as about 3/4 of a win
+	private static final double GREEDY = 0.5; //chance a playout takes the generator's favourite action
+
+	private final RPGModel model;
+	private final ForkJoinPool pool; //runs the workers, or null with a single worker
+	private final List<Worker> workers;
+	private final long budgetNanos;
+	private final long maxPlayouts; //0 for no limit
+	private final int radius; //units further than this from the deciding character are left out
+	private final SplittableRandom random; //split once per worker for every decision
+	private final AtomicLong playouts = new AtomicLong(); //playouts of the decision being made
+	private BooleanSupplier stop = () -> false; //gives up a decision early when true
+	private long lastPlayouts;
+	private long lastNanos;
+
+	/**
+	 * Constructs a Monte Carlo AI for a game.
+	 *
+	 * @param model, the RPGModel to play in
+	 * @param aiMoves, an int, the most tiles a werewolf walks per move
+	 * @param budgetMillis, an int, the most time a decision may take, in milliseconds
+	 * @param maxPlayouts, a long, the most playouts a decision may take, or 0 for no limit
+	 * @param threads, an int, the number of workers searching at once
+	 */
+	MonteCarloAI(RPGModel model, int aiMoves, int budgetMillis, long maxPlayouts, int threads) {
+		this.model = model;
+		int playerMoves = model.getConfig().getMoveRange();
+		this.budgetNanos = budgetMillis * 1_000_000L;
+		this.maxPlayouts = maxPlayouts;
+		this.random = model.getRandom().stream(GameRandom.SEARCH);
+		this.radius = Skirmish.radiusFor(playerMoves, aiMoves);
+		this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+		Worker[] all = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			all[i] = new Worker(new ActionGenerator(model.getBoard(), playerMoves, aiMoves));
+		}
+		this.workers = Arrays.asList(all);
+	}
+
+	@Override
+	public int chooseAction(Character c) {
+		long start = System.nanoTime();
+		Skirmish skirmish = Skirmish.around(model, c, radius, HORIZON);
+		if (skirmish == null) {
+			return Action.NONE;
+		}
+		playouts.set(0);
+		int rootScore = Skirmish.evaluate(skirmish.getState(), skirmish.getSide());
+		for (Worker worker : workers) {
+			worker.prepare(skirmish, random.split(), start + budgetNanos, rootScore);
+		}
+		if (pool == null) {
+			workers.get(0).call();
+		} else {
+			try {
+				for (Future<Void> done : pool.invokeAll(workers)) {
+					done.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Monte Carlo search failed", e.getCause());
+			}
+		}
+		// every tree lists the first actions in the same order, so visits add up by position
+		Node first = workers.get(0).root;
+		int best = Action.NONE;
+		long bestVisits = -1;
+		for (int i = 0; i < first.childCount; i++) {
+			long visits = 0;
+			for (Worker worker : workers) {
+				if (i < worker.root.childCount) {
+					visits += worker.root.children[i].visits;
+				}
+			}
+			if (visits > bestVisits) {
+				bestVisits = visits;
+				best = first.children[i].action;
+			}
+		}
+		lastPlayouts = playouts.get();
+		lastNanos = System.nanoTime() - start;
+		return best;
+	}
+
+	@Override
+	public void stopWhen(BooleanSupplier stop) {
+		this.stop = stop;
+	}
+
+	@Override
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return long, the number of playouts of the last decision, over every worker
+	 */
+	long getPlayouts() {
+		return lastPlayouts;
+	}
+
+	/**
+	 * @return double, the playouts of the last decision per worker per second
+	 */
+	double getPlayoutsPerCoreSecond() {
+		return lastNanos == 0 ? 0 : lastPlayouts / (double) workers.size() / (lastNanos / 1e9);
+	}
+
+	/**
+	 * @return int, the number of workers searching at once
+	 */
+	int getThreads() {
+		return workers.size();
+	}
+
+	/**
+	 * A node of a search tree: the position reached by the actions from the root to it.
+	 */
+	private static final class Node {
+		private static final Node[] NO_CHILDREN = new Node[0];
+
+		private final int action; //action leading to this node from its parent
+		private final Node parent;
+		private int[] untried; //actions not yet added as children, best first, null until generated
+		private int untriedCount;
+		private int nextUntried;
+		private Node[] children = NO_CHILDREN;
+		private int childCount;
+		private int visits;
+		private double wins; //sum of the playout results for the side deciding, each between 0 and 1
+
+		private Node(int action, Node parent) {
+			this.action = action;
+			this.parent = parent;
+		}
+
+		/**
+		 * @param action, an int, the action leading to the child
+		 * @return Node, the new child
+		 */
+		private Node addChild(int action) {
+			if (childCount == children.length) {
+				children = Arrays.copyOf(children, Math.max(4, childCount * 2));
+			}
+			Node child = new Node(action, this);
+			children[childCount++] = child;
+			return child;
+		}
+	}
+
+	/**
+	 * One tree and the scratch space to grow it, run by one thread of the pool.
+	 */
+	private final class Worker implements Callable<Void> {
+		private final ActionGenerator generator;
+		private int[] buffer = new int[16];
+		private SearchState state;
+		private Skirmish skirmish;
+		private SplittableRandom random;
+		private long deadline;
+		private int rootScore;
+		private Node root;
+
+		private Worker(ActionGenerator generator) {
+			this.generator = generator;
+		}
+
+		/**
+		 * Gets the worker ready for a new decision.
+		 */
+		private void prepare(Skirmish skirmish, SplittableRandom random, long deadline, int rootScore) {
+			this.skirmish = skirmish;
+			this.random = random;
+			this.deadline = deadline;
+			this.rootScore = rootScore;
+			this.state = skirmish.getState().copy();
+			this.root = new Node(Action.NONE, null);
+		}
+
+		@Override
+		public Void call() {
+			long done;
+			do {
+				done = iterate();
+			} while (System.nanoTime() < deadline && (maxPlayouts == 0 || done < maxPlayouts) && !stop.getAsBoolean());
+			return null;
+		}
+
+		/**
+		 * Runs one iteration: select, expand, play out and back up the result.
+		 *
+		 * @return long, the playouts of the decision so far, over every worker
+		 */
+		private long iterate() {
+			state.copyFrom(skirmish.getState());
+			Node node = root;
+			int ply = 0;
+			// walk down the tree, adding the first action not tried yet
+			while (ply < HORIZON && !Skirmish.isOver(state)) {
+				int unit = skirmish.actorAt(ply);
+				ply++;
+				if (!state.isAlive(unit)) {
+					continue;
+				}
+				if (node.untried == null) {
+					buffer = generator.generate(state, unit, buffer);
+					node.untriedCount = generator.getCount();
+					node.untried = Arrays.copyOf(buffer, node.untriedCount);
+				}
+				if (node.nextUntried < node.untriedCount) {
+					node = node.addChild(node.untried[node.nextUntried++]);
+					state.apply(unit, node.action);
+					break;
+				}
+				node = select(node, state.getFaction(unit) == skirmish.getSide());
+				state.apply(unit, node.action);
+			}
+			// play the rest of the fight out quickly
+			while (ply < HORIZON && !Skirmish.isOver(state)) {
+				int unit = skirmish.actorAt(ply);
+				ply++;
+				if (!state.isAlive(unit)) {
+					continue;
+				}
+				buffer = generator.generate(state, unit, buffer);
+				int count = generator.getCount();
+				state.apply(unit, random.nextDouble() < GREEDY ? buffer[0] : buffer[random.nextInt(count)]);
+			}
+			double result = 1 / (1 + Math.exp((rootScore - Skirmish.evaluate(state, skirmish.getSide())) / SCALE));
+			for (; node != null; node = node.parent) {
+				node.visits++;
+				node.wins += result;
+			}
+			return playouts.incrementAndGet();
+		}
+
+		/**
+		 * Picks the child with the best upper confidence bound for the side acting.
+		 *
+		 * @param node, a Node whose actions have all been tried
+		 * @param ally, a boolean, true if a unit of the side deciding acts at the node
+		 * @return Node, the child to walk to
+		 */
+		private Node select(Node node, boolean ally) {
+			double logVisits = Math.log(node.visits);
+			Node best = node.children[0];
+			double bestBound = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < node.childCount; i++) {
+				Node child = node.children[i];
+				double mean = child.wins / child.visits;
+				double bound = (ally ? mean : 1 - mean) + EXPLORATION * Math.sqrt(logVisits / child.visits);
+				if (bound > bestBound) {
+					bestBound = bound;
+					best = child;
+				}
+			}
+			return best;
+		}
+	}
+}
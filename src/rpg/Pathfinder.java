@@ -0,0 +1,287 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that finds shortest paths on the board with A*. All scratch space is
+ * allocated once per board and reused: a tile's search data is only valid while its stamp equals
+ * the current generation, so starting a new search is a single increment instead of clearing arrays.
+ *
+ * The open list is a binary heap of longs, each packing the estimated total cost of a tile in the
+ * high 32 bits and the tile index in the low 32 bits. Units move along rows and columns, one tile
+ * per step, and can only walk over tiles that have no obstacle and no unit on them.
+ *
+ * date: 10/18/26
+ */
+class Pathfinder {
+
+	/**
+	 * The tiles a search is looking for, with an estimate of the steps left to reach one of them.
+	 * The estimate must never be larger than the real number of steps.
+	 */
+	interface Goal {
+		boolean isGoal(int cell);
+		int estimate(int cell);
+	}
+
+	/**
+	 * Goal of reaching any tile next to a target tile, including diagonally, which is where a
+	 * unit has to stand to attack a unit on the target.
+	 */
+	final class Near implements Goal {
+		private int row;
+		private int col;
+
+		@Override
+		public boolean isGoal(int cell) {
+			int dr = Math.abs(board.rowOf(cell) - row);
+			int dc = Math.abs(board.colOf(cell) - col);
+			return dr <= 1 && dc <= 1 && (dr | dc) != 0;
+		}
+
+		@Override
+		public int estimate(int cell) {
+			int dr = Math.abs(board.rowOf(cell) - row);
+			int dc = Math.abs(board.colOf(cell) - col);
+			return Math.max(0, dr - 1) + Math.max(0, dc - 1);
+		}
+	}
+
+	/**
+	 * Goal of reaching one exact tile.
+	 */
+	final class Exact implements Goal {
+		private int row;
+		private int col;
+
+		@Override
+		public boolean isGoal(int cell) {
+			return board.rowOf(cell) == row && board.colOf(cell) == col;
+		}
+
+		@Override
+		public int estimate(int cell) {
+			return Math.abs(board.rowOf(cell) - row) + Math.abs(board.colOf(cell) - col);
+		}
+	}
+
+	// row and column offsets of the four steps, in the order they are tried: left, up, down, right
+	private static final int[] STEP_ROW = {0, -1, 1, 0};
+	private static final int[] STEP_COL = {-1, 0, 0, 1};
+
+	private final Board board;
+	private final Near near = new Near();
+	private final Exact exact = new Exact();
+	private final int[] stamp; //generation in which a tile was last reached
+	private final int[] closed; //generation in which a tile was last expanded
+	private final int[] g; //steps from the start, valid while stamp == generation
+	private final int[] parent; //previous tile on the best known path
+	private final int[] order; //number of tiles pushed before this one, breaks ties between equal tiles
+	private int pushed;
+	private int generation;
+	private long[] heap = new long[64];
+	private int heapSize;
+	private int[] path = new int[64];
+	private int pathLength;
+	private int expanded; //tiles expanded by the last search
+
+	/**
+	 * Constructs a pathfinder for a board.
+	 *
+	 * @param board, the Board to search
+	 */
+	Pathfinder(Board board) {
+		this.board = board;
+		this.stamp = new int[board.size()];
+		this.closed = new int[board.size()];
+		this.g = new int[board.size()];
+		this.parent = new int[board.size()];
+		this.order = new int[board.size()];
+	}
+
+	/**
+	 * Returns the reusable goal of standing next to a tile. The goal is overwritten by the next call.
+	 *
+	 * @param row, an int, the row of the target tile
+	 * @param col, an int, the column of the target tile
+	 * @return Goal, reached on any of the eight tiles around the target
+	 */
+	Goal near(int row, int col) {
+		near.row = row;
+		near.col = col;
+		return near;
+	}
+
+	/**
+	 * Returns the reusable goal of standing on a tile. The goal is overwritten by the next call.
+	 *
+	 * @param row, an int, the row of the target tile
+	 * @param col, an int, the column of the target tile
+	 * @return Goal, reached only on the target tile
+	 */
+	Goal exact(int row, int col) {
+		exact.row = row;
+		exact.col = col;
+		return exact;
+	}
+
+	/**
+	 * Finds a shortest path from a tile to the closest goal tile. The start tile may be occupied,
+	 * every other tile on the path must be free. The search stops at the first goal tile expanded.
+	 *
+	 * @param start, an int, the index of the tile to start from
+	 * @param goal, the Goal to reach
+	 * @return int, the number of tiles on the path including the start, or 0 if no goal is reachable.
+	 * 		The tiles are read with getPath().
+	 */
+	int findPath(int start, Goal goal) {
+		if (++generation == 0) { //stamps wrapped around, forget every tile
+			Arrays.fill(stamp, 0);
+			Arrays.fill(closed, 0);
+			generation = 1;
+		}
+		heapSize = 0;
+		pushed = 0;
+		expanded = 0;
+		pathLength = 0;
+		stamp[start] = generation;
+		g[start] = 0;
+		parent[start] = Board.NONE;
+		push(goal.estimate(start), start);
+		while (heapSize > 0) {
+			long top = pop();
+			int cell = (int) top;
+			if (closed[cell] == generation) {
+				continue; //stale entry, the tile was reached by a shorter path
+			}
+			closed[cell] = generation;
+			expanded++;
+			if (goal.isGoal(cell)) {
+				buildPath(cell);
+				return pathLength;
+			}
+			int row = board.rowOf(cell);
+			int col = board.colOf(cell);
+			for (int i = 0; i < 4; i++) {
+				int r = row + STEP_ROW[i];
+				int c = col + STEP_COL[i];
+				if (!board.inBounds(r, c)) {
+					continue;
+				}
+				int n = board.index(r, c);
+				if (!board.isFree(n) || closed[n] == generation) {
+					continue;
+				}
+				int cost = g[cell] + 1;
+				if (stamp[n] != generation || cost < g[n]) {
+					stamp[n] = generation;
+					g[n] = cost;
+					parent[n] = cell;
+					push(cost + goal.estimate(n), n);
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return int[], the tiles of the last path found, start first. Only the first
+	 * 		findPath() entries are valid and the array is reused by the next search.
+	 */
+	int[] getPath() {
+		return path;
+	}
+
+	/**
+	 * @return int, the number of tiles the last search expanded
+	 */
+	int getExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * Walks the parent links back from a goal tile and stores the path start first.
+	 *
+	 * @param end, an int, the goal tile reached
+	 */
+	private void buildPath(int end) {
+		int length = g[end] + 1;
+		if (path.length < length) {
+			path = new int[Math.max(length, path.length * 2)];
+		}
+		for (int cell = end, i = length - 1; i >= 0; cell = parent[cell], i--) {
+			path[i] = cell;
+		}
+		pathLength = length;
+	}
+
+	/**
+	 * Adds a tile to the open list.
+	 *
+	 * @param f, an int, the steps taken plus the estimate of the steps left
+	 * @param cell, an int, the tile
+	 */
+	private void push(int f, int cell) {
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		order[cell] = pushed++;
+		long entry = ((long) f << 32) | cell;
+		int i = heapSize++;
+		while (i > 0) {
+			int up = (i - 1) >>> 1;
+			if (!before(entry, heap[up])) {
+				break;
+			}
+			heap[i] = heap[up];
+			i = up;
+		}
+		heap[i] = entry;
+	}
+
+	/**
+	 * Removes the open tile with the lowest estimated total cost.
+	 *
+	 * @return long, the packed entry of the tile
+	 */
+	private long pop() {
+		long top = heap[0];
+		long last = heap[--heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], last)) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return top;
+	}
+
+	/**
+	 * Orders open list entries by estimated total cost. Among equal costs the tile further from
+	 * the start is expanded first, which heads straight for the goal instead of widening the search,
+	 * and the tile pushed first breaks any remaining tie, so steps are tried left, up, down, right.
+	 */
+	private boolean before(long a, long b) {
+		long fa = a >>> 32;
+		long fb = b >>> 32;
+		if (fa != fb) {
+			return fa < fb;
+		}
+		int ga = g[(int) a];
+		int gb = g[(int) b];
+		if (ga != gb) {
+			return ga > gb;
+		}
+		return order[(int) a] < order[(int) b];
+	}
+}
@@ -0,0 +1,48 @@
+package rpg;
+
+/**
+ * Package private interface of the ways a team can be played in a Simulation. A policy builds the
+ * engine deciding for the characters of one team in a game, and they follow the simple rules
+ * whenever the engine returns Action.NONE. Policies are looked up by name with named(), which
+ * is how the Tournament loads them.
+ *
+ * Searches built by a policy use a single thread, since a tournament already plays one game
+ * per core.
+ *
+ * date: 10/18/26
+ */
+interface Policy {
+	Policy SIMPLE = (model, team) -> null; //the simple rules the AI has always played by
+
+	/**
+	 * Builds the engine deciding for a team.
+	 *
+	 * @param model, the RPGModel of the game
+	 * @param team, a String, "player" or "AI"
+	 * @return AIEngine, the engine, or null to follow the simple rules only
+	 */
+	AIEngine engineFor(RPGModel model, String team);
+
+	/**
+	 * Looks up a policy by name: simple for the simple rules, search for the alpha-beta search
+	 * and mcts for the Monte Carlo tree search.
+	 *
+	 * @param name, a String, the name of the policy
+	 * @param budgetMillis, an int, the most time a search may take per decision, in milliseconds;
+	 * 		for the alpha-beta search the most time of a team's turn
+	 * @return Policy, the policy
+	 * @throws IllegalArgumentException if no policy has that name
+	 */
+	static Policy named(String name, int budgetMillis) {
+		switch (name) {
+			case "simple":
+				return SIMPLE;
+			case "search":
+				return (model, team) -> new AlphaBetaAI(model, RPGController.AI_STEPS, budgetMillis, 1);
+			case "mcts":
+				return (model, team) -> new MonteCarloAI(model, RPGController.AI_STEPS, budgetMillis, 0, 1);
+			default:
+				throw new IllegalArgumentException("Unknown policy " + name + ", expected simple, search or mcts");
+		}
+	}
+}
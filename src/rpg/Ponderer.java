@@ -0,0 +1,216 @@
+package rpg;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Package private helper that lets the AI think about its next turn while the player is still
+ * planning theirs. The player's orders cannot be known in advance, so the ponderer guesses the
+ * two likeliest turns: every vampire playing by the simple rules, and every vampire defending
+ * where it stands. For each guess it plays the player's turn on a copy of the game, has its own
+ * instance of the AI's search choose the action of every werewolf in the order the AI plays
+ * them, and keeps each answer under the Zobrist hash of the position it was chosen in.
+ *
+ * When the AI's turn comes, a werewolf standing in a position that was pondered plays the kept
+ * answer at once instead of searching. As soon as one order differs from the guess the hashes
+ * stop matching and the AI searches as usual, so a wrong guess costs nothing but idle time.
+ * Pondering gives up as soon as its stop condition turns true, in the middle of a search if it
+ * must, and keeps only the answers of the decisions it finished. The player's orders are played
+ * one at a time, so pondering starts again after each one from the game as it then stands,
+ * guessing only the orders of the vampires that have not acted yet. Answers are kept until the
+ * player's next turn starts.
+ *
+ * date: 10/18/26
+ */
+class Ponderer {
+	private static final int RULES = 0; //guess of the vampires playing by the simple rules
+	private static final int GUESSES = 2; //the rules, then every vampire defending
+
+	private final RPGModel live;
+	private final RPGModel shadow; //copy of the live game the guesses are played on
+	private final AIEngine engine; //the AI's search, on the copy
+	private final SimpleAI player; //guesses the orders of the vampires
+	private final SimpleAI rules; //plays the werewolves the search has nothing to say about
+	private final long[] hashes; //position of each answer, by slot
+	private final int[] actors; //id of the werewolf of each answer plus one, or 0 for a free slot
+	private final int[] answers; //packed Action of each answer
+	private final int mask; //slots minus one
+	private final long[] played; //undo records of the actions played on the copy
+	private final boolean[] acted; //vampires given an order this turn, by id
+	private int playedCount;
+	private int stored;
+	private int hits;
+
+	/**
+	 * Sets up pondering for a game.
+	 *
+	 * @param live, the RPGModel of the game
+	 * @param search, a Function making the AI's search for a model
+	 * @param aiSteps, an int, the most tiles a werewolf walks per move
+	 */
+	Ponderer(RPGModel live, Function<RPGModel, AIEngine> search, int aiSteps) {
+		GameConfig config = live.getConfig();
+		this.live = live;
+		this.shadow = new RPGModel(config); //the same seed gives the same terrain
+		this.engine = search.apply(shadow);
+		this.player = new SimpleAI(shadow, "player", config.getMoveRange());
+		this.rules = new SimpleAI(shadow, "AI", aiSteps);
+		// each order of the player's turn may start pondering again, answering every werewolf
+		int most = GUESSES * config.getUnitsPerSide() * (config.getUnitsPerSide() + 1);
+		int size = Integer.highestOneBit(most * 4 - 1);
+		this.hashes = new long[size];
+		this.actors = new int[size];
+		this.answers = new int[size];
+		this.acted = new boolean[config.getUnitsPerSide() * 2];
+		this.mask = size - 1;
+		this.played = new long[config.getUnitsPerSide() * 2];
+	}
+
+	/**
+	 * Ponders the AI's next turn from the game as it stands. Called by the thread playing the
+	 * game while the player plans, and returns once both guesses are pondered or the stop
+	 * condition turns true.
+	 *
+	 * @param stop, a BooleanSupplier, true once the thread is needed for something else; also
+	 * 		called from the threads searching
+	 */
+	void ponder(BooleanSupplier stop) {
+		shadow.mirror(live);
+		engine.stopWhen(stop);
+		for (int guess = 0; guess < GUESSES && !stop.getAsBoolean(); guess++) {
+			playPlayer(guess);
+			playAI(stop);
+			while (playedCount > 0) {
+				shadow.undo(played[--playedCount]);
+			}
+		}
+	}
+
+	/**
+	 * Notes that a vampire was given its order of the turn, so it is no longer guessed.
+	 *
+	 * @param c, the Character of the player given an order
+	 */
+	void played(Character c) {
+		acted[c.getId()] = true;
+	}
+
+	/**
+	 * Forgets the answers of the last turn when the player's next turn starts.
+	 */
+	void newTurn() {
+		Arrays.fill(acted, false);
+		Arrays.fill(actors, 0);
+		stored = 0;
+	}
+
+	/**
+	 * Finds the answer pondered for a werewolf in the live game as it stands.
+	 *
+	 * @param c, the Character deciding
+	 * @return int, the packed Action pondered, or Action.NONE if this position was not pondered
+	 */
+	int lookup(Character c) {
+		long hash = live.getHash();
+		int id = c.getId();
+		for (int i = slot(hash, id); actors[i] != 0; i = (i + 1) & mask) {
+			if (hashes[i] == hash && actors[i] == id + 1) {
+				hits++;
+				return answers[i];
+			}
+		}
+		return Action.NONE;
+	}
+
+	/**
+	 * Lets go of the threads of the search pondering, once the ponderer is no longer used.
+	 */
+	void close() {
+		engine.close();
+	}
+
+	/**
+	 * @return int, the answers kept this turn
+	 */
+	int getStored() {
+		return stored;
+	}
+
+	/**
+	 * @return int, the answers looked up and found so far
+	 */
+	int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Plays a guess of the player's turn on the copy.
+	 */
+	private void playPlayer(int guess) {
+		for (int id = 0; id < played.length && shadow.numberOfAIChars() > 0; id++) {
+			Character c = shadow.getCharacter(id);
+			if (c == null || !c.getTeam().equals("player") || acted[id]) {
+				continue;
+			}
+			int action = guess == RULES ? player.chooseAction(c)
+					: Action.of(Action.DEFEND, shadow.cellOf(c.getRow(), c.getCol()));
+			if (action != Action.NONE) {
+				played[playedCount++] = shadow.apply(c, action);
+			}
+		}
+	}
+
+	/**
+	 * Plays the AI's turn on the copy, keeping the answer of the search for every werewolf.
+	 */
+	private void playAI(BooleanSupplier stop) {
+		engine.startTurn();
+		for (int id = 0; id < played.length && shadow.numberOfUserChars() > 0; id++) {
+			Character c = shadow.getCharacter(id);
+			if (c == null || !c.getTeam().equals("AI")) {
+				continue;
+			}
+			long hash = shadow.getHash();
+			int action = engine.chooseAction(c);
+			if (stop.getAsBoolean()) { //the search may have given up half way
+				return;
+			}
+			if (action == Action.NONE) {
+				action = rules.chooseAction(c);
+			} else {
+				store(hash, id, action);
+			}
+			if (action != Action.NONE) {
+				played[playedCount++] = shadow.apply(c, action);
+			}
+		}
+	}
+
+	/**
+	 * Keeps an answer, unless the position was already pondered or the table is half full.
+	 */
+	private void store(long hash, int id, int action) {
+		if (stored * 2 >= actors.length) {
+			return;
+		}
+		int i = slot(hash, id);
+		while (actors[i] != 0) {
+			if (hashes[i] == hash && actors[i] == id + 1) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		hashes[i] = hash;
+		actors[i] = id + 1;
+		answers[i] = action;
+		stored++;
+	}
+
+	/**
+	 * @return int, the first slot to look at for a werewolf in a position
+	 */
+	private int slot(long hash, int id) {
+		return (Long.hashCode(hash) + id * 0x9E3779B9) & mask;
+	}
+}
@@ -0,0 +1,108 @@
+package rpg;
+
+/**
+ * This class measures how the cost of a turn grows with the size of the board and of the armies.
+ * For every board size and army size it builds a fresh game, then times full AI turns, where every
+ * living werewolf acts once through the controller. Results are printed as a table.
+ *
+ * Usage: java rpg.RPGBenchmark [sizes] [armies] [turns] [ai], for example
+ * java rpg.RPGBenchmark 20,64,128,256,512 5,50,200 3 mcts
+ *
+ * The AI is simple (the default), search or mcts, searching for up to 20 ms per werewolf, given
+ * to the search as a budget of 20 ms times the army for the whole turn. With
+ * mcts the table also shows how many playouts each core runs per second.
+ *
+ * date: 10/18/26
+ */
+public class RPGBenchmark {
+	private static final int SEARCH_BUDGET = 20; //milliseconds a searching AI may take per werewolf
+
+	public static void main(String[] args) {
+		int[] sizes = parseList(args.length > 0 ? args[0] : "20,64,128,256,512");
+		int[] armies = parseList(args.length > 1 ? args[1] : "5,50,200");
+		int turns = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		String ai = args.length > 3 ? args[3] : "simple";
+
+		// the game log is off unless asked for, so the timings are of the game alone
+		System.out.printf("%-9s %7s %10s %12s %14s %18s%n", "board", "units", "setup ms", "AI turn ms", "us per unit", 
+				"playouts/core/s");
+		for (int size : sizes) {
+			for (int army : armies) {
+				GameConfig config;
+				try {
+					config = new GameConfig(size, size, army);
+				} catch (IllegalArgumentException e) {
+					continue; //army does not fit on this board
+				}
+				long start = System.nanoTime();
+				RPGModel model = new RPGModel(config);
+				RPGController controller = new RPGController(model);
+				if (ai.equals("search")) {
+					controller.useSearchAI(SEARCH_BUDGET * army);
+				} else if (ai.equals("mcts")) {
+					controller.useMonteCarloAI(SEARCH_BUDGET, 0);
+				}
+				long setup = System.nanoTime() - start;
+
+				long total = 0;
+				int acted = 0;
+				double playoutRate = 0;
+				int searched = 0;
+				int played = 0; //turns played, fewer than asked for if the game ends
+				for (; played < turns && controller.isOver() == 0; played++) {
+					start = System.nanoTime();
+					acted += playAITurn(model, controller);
+					total += System.nanoTime() - start;
+					controller.endTurn("AI");
+					if (controller.getEngine() instanceof MonteCarloAI) {
+						// rate of the last decision of the turn that actually searched
+						double rate = ((MonteCarloAI) controller.getEngine()).getPlayoutsPerCoreSecond();
+						if (rate > 0) {
+							playoutRate += rate;
+							searched++;
+						}
+					}
+				}
+				controller.close();
+				double turnMs = played == 0 ? 0 : total / 1e6 / played;
+				double unitUs = acted == 0 ? 0 : total / 1e3 / acted;
+				String rate = searched == 0 ? "-" : String.format("%.0f", playoutRate / searched);
+				System.out.printf("%-9s %7d %10.2f %12.2f %14.1f %18s%n", size + "x" + size, army, setup / 1e6, turnMs, 
+						unitUs, rate);
+			}
+		}
+	}
+
+	/**
+	 * Lets every living werewolf take its turn.
+	 *
+	 * @param model the game being played
+	 * @param controller the controller of the game
+	 * @return int, the number of werewolves that acted
+	 */
+	private static int playAITurn(RPGModel model, RPGController controller) {
+		Character[] chars = model.getCharList();
+		int acted = 0;
+		for (Character c : chars) {
+			if (c != null && c.getTeam().equals("AI")) {
+				int[] loc = model.getCharLoc(c);
+				controller.AIturn(loc[1], loc[0], c);
+				acted++;
+			}
+		}
+		return acted;
+	}
+
+	/**
+	 * @param list a comma separated list of integers
+	 * @return the integers in the list
+	 */
+	private static int[] parseList(String list) {
+		String[] parts = list.split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+}
@@ -1,10 +1,7 @@
 package rpg;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Observable;
-import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 /**
  * This class is the controller, methods are called by the view to change the model. 
@@ -12,15 +9,30 @@ import java.util.Random;
  * date: 5/05/21
  */
 
-@SuppressWarnings("deprecation")
 public class RPGController{
+	static final int AI_STEPS = 2; //tiles a werewolf walks per move, whatever the move range of the vampires
+	private static final int[] NO_CHANGES = new int[0]; //no tiles changed, for a single order
 	private RPGModel model;
+	private SimpleAI simpleAI; //the rules the AI plays by when it does not search
+	private AIEngine searchAI; //search used by the AI, or null to play by the simple rules
+	private Function<RPGModel, AIEngine> search; //makes the search for a model, or null
+	private boolean pondering; //whether a searching AI thinks during the player's turn
+	private Ponderer ponderer; //thinks ahead for the search, or null
 
 	/**
 	 * Constructor for controller. Initializes a new model
 	 */
 	public RPGController() {
-		this.model = new RPGModel();
+		this(new RPGModel());
+	}
+	
+	/**
+	 * Constructor for controller. Initializes a new model with the given configuration
+	 * 
+	 * @param config the dimensions, army size and starting layout of the game
+	 */
+	public RPGController(GameConfig config) {
+		this(new RPGModel(config));
 	}
 	
 	/**
@@ -28,12 +40,14 @@ public class RPGController{
 	 */
 	public RPGController(RPGModel model) {
 		this.model = model;
+		this.simpleAI = new SimpleAI(model, "AI", AI_STEPS);
 	}
 
 	/**
-	 * Processes the turn the player makes and determines which action to take, move, defend, or attack  
+	 * Processes the turn the player makes and determines which action to take, move, defend, or attack. 
+	 * Kept for callers that name actions by strings, the order is played with execute().
 	 * 	
-	 * @param act, a String, the action the player made 	 
+	 * @param act, a String, the action the player made, "move", "def" or "atk" 	 
 	 * @param col, an int
 	 * @param row, an int
 	 * @param row2, an int 
@@ -44,20 +58,74 @@ public class RPGController{
 	 */	
 
 	public boolean humanTurn(String act,int col, int row, int row2, int col2, Character c) {
+		Character actor = inRange(col, row) ? model.getCharacterAt(row, col) : null;
+		if (actor == null || !inGame(actor)) {
+			return false;
+		}
 		if (act.equals("move")) {
-			return move(col, row, row2, col2);
+			return execute(Command.move(actor, row2, col2));
 		} else if (act.equals("def")) {		
-			defend(row, col); 
-			return true;
+			return execute(Command.defend(actor));
 		} else if (act.equals("atk")) {
-			System.out.println("Character is attacking");
-			attack(row, col, row2, col2, "AI");
-			return true;
+			return execute(Command.attack(actor, row2, col2));
 		} else {
 			return false;
 		}
 	}
 
+	/**
+	 * Plays one order right away. A move needs a free tile the character can walk to this turn; 
+	 * an attack needs a tile next to the character, and on a tile without an enemy does nothing 
+	 * but end the character's defense.
+	 * 
+	 * @param order - the Command to play
+	 * @return true if the character acted, false if it is not in the game or the tile is out of 
+	 * 		its reach
+	 */
+	public boolean execute(Command order) {
+		Character c = order.getCharacter();
+		if (!inGame(c)) {
+			return false;
+		}
+		if (ponderer != null && c.getTeam().equals("player")) {
+			ponderer.played(c);
+		}
+		switch (order.kind()) {
+			case Action.MOVE:
+				return move(c, order.getRow(), order.getCol());
+			case Action.ATTACK:
+				return attack(c, order.getRow(), order.getCol());
+			default:
+				defend(c);
+				return true;
+		}
+	}
+
+	/**
+	 * Plays a whole team's turn at once and ends it. Every order is checked before any is played, 
+	 * following the turn through: a move may take a tile an earlier order freed, and an attack 
+	 * may finish an enemy an earlier one wounded. The listeners of the game are told what 
+	 * happened once, when the turn ends, with the damage each character took added up.
+	 * 
+	 * @param orders - the TurnOrders of the team, at most one per character
+	 * @throws IllegalArgumentException naming the first order that cannot be played, in which 
+	 * 		case none is played
+	 */
+	public void submit(TurnOrders orders) {
+		validate(orders);
+		EventBus events = model.getEvents();
+		boolean coalescing = events.isCoalescing();
+		events.setCoalescing(true);
+		try {
+			for (int i = 0; i < orders.size(); i++) {
+				execute(orders.get(i));
+			}
+			model.endTurn(orders.getTeam());
+		} finally {
+			events.setCoalescing(coalescing);
+		}
+	}
+
 	/**
 	 * Get the map of the game
 	 * 
@@ -67,6 +135,26 @@ public class RPGController{
 		return model.getMap();
 	} 
 
+	/**
+	 * Get the character standing at a location
+	 * 
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return the Character at the location, the obstacle on it, or null if it is empty
+	 */
+	public Character getCharacterAt(int row, int col) {
+		return model.getCharacterAt(row, col);
+	}
+
+	/**
+	 * Get the configuration of the game
+	 * 
+	 * @return the GameConfig the model was created with
+	 */
+	public GameConfig getConfig() {
+		return model.getConfig();
+	}
+
 	/**
 	 * Get a list of characters 
 	 * 
@@ -86,6 +174,110 @@ public class RPGController{
 		return model.getCharLoc(c);
 	}
 
+	/**
+	 * Makes the AI choose its actions by searching ahead instead of following simple rules, on 
+	 * every core at once. A werewolf with no vampire nearby still walks towards the vampires 
+	 * as before. The budget is for the AI's whole turn, shared out between the werewolves.
+	 * 
+	 * @param budgetMillis - the most time the AI's turn may take to decide, in milliseconds
+	 */
+	public void useSearchAI(int budgetMillis) {
+		useSearch((game) -> new AlphaBetaAI(game, AI_STEPS, budgetMillis, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Makes the AI choose its actions with a Monte Carlo tree search on every core. A werewolf 
+	 * with no vampire nearby still walks towards the vampires as before.
+	 * 
+	 * @param budgetMillis - the most time one character may take to decide, in milliseconds
+	 * @param maxPlayouts - the most playouts one character may take to decide, or 0 for no limit
+	 */
+	public void useMonteCarloAI(int budgetMillis, long maxPlayouts) {
+		useSearch((game) -> new MonteCarloAI(game, AI_STEPS, budgetMillis, maxPlayouts, 
+				Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Makes the AI search, and ponder with a search of its own if pondering is on.
+	 * 
+	 * @param search - makes the search for a model
+	 */
+	private void useSearch(Function<RPGModel, AIEngine> search) {
+		close();
+		this.search = search;
+		this.searchAI = search.apply(model);
+		this.ponderer = pondering ? new Ponderer(model, search, AI_STEPS) : null;
+	}
+
+	/**
+	 * Lets a searching AI think about its next turn while the player plans theirs, when the game 
+	 * is played on its own thread. The AI guesses the player's likeliest turns and searches its 
+	 * replies ahead of time, so a werewolf whose position was guessed right plays at once. It 
+	 * makes no difference to an AI following its simple rules.
+	 * 
+	 * @param on - true to ponder, false to stop pondering
+	 */
+	public void usePondering(boolean on) {
+		pondering = on;
+		if (ponderer != null) {
+			ponderer.close();
+		}
+		ponderer = on && search != null ? new Ponderer(model, search, AI_STEPS) : null;
+	}
+
+	/**
+	 * Ponders the AI's next turn, if the AI searches and pondering is on.
+	 * 
+	 * @param stop - true once the thread pondering is needed for something else
+	 */
+	void ponder(BooleanSupplier stop) {
+		if (ponderer != null) {
+			ponderer.ponder(stop);
+		}
+	}
+
+	/**
+	 * Returns what pondered the AI's turn.
+	 * 
+	 * @return the Ponderer, or null if the AI does not ponder
+	 */
+	Ponderer getPonderer() {
+		return ponderer;
+	}
+
+	/**
+	 * Returns the search the AI uses.
+	 * 
+	 * @return the AIEngine, or null if the AI follows its simple rules
+	 */
+	AIEngine getEngine() {
+		return searchAI;
+	}
+
+	/**
+	 * Makes the AI follow its simple rules: attack or defend next to a vampire, otherwise walk 
+	 * towards the closest one.
+	 */
+	public void useSimpleAI() {
+		close();
+		searchAI = null;
+		search = null;
+		ponderer = null;
+	}
+
+	/**
+	 * Lets go of the threads the AI searches and ponders on. Called when the search is replaced 
+	 * and once the game is over; the AI must not search again until told which search to use.
+	 */
+	public void close() {
+		if (searchAI != null) {
+			searchAI.close();
+		}
+		if (ponderer != null) {
+			ponderer.close();
+		}
+	}
+
 	/**
 	 * Does the AI turn by determining whether the character should move, defend, or attack 
 	 * based on if an enemy character is next to them 
@@ -97,142 +289,144 @@ public class RPGController{
 	 * 		was taken 
 	 */	
 	public String AIturn(int col, int row, Character c) { 
-
-		int i = 2; 
-
-		ArrayList<int[]> directionList = new ArrayList<int[]>(); 		
-		directionList.add(new int[]{-1, 0}); //n, up a row  
-		directionList.add(new int[]{1, 0}); //s, down a row
-		directionList.add(new int[]{0, 1}); //e, to the right 
-		directionList.add(new int[]{0, -1}); //w, to the left
-		directionList.add(new int[]{-1, 1}); //ne
-		directionList.add(new int[]{-1, -1}); //nw
-		directionList.add(new int[]{1, 1}); //se
-		directionList.add(new int[]{1, -1}); //sw
-
-		//if there's anyone next to them, attack or defend
-		for (int[] direction : directionList) { 
-			int nextRow = row + direction[0];
-			int nextCol = col + direction[1];
-			int cols = model.getMap()[0].length;
-			int rows = model.getMap().length; 
-			if 	((nextRow >= 0) && (nextRow < rows) && (nextCol >= 0) && (nextCol < cols)) {
-				Character possibleEnemy =  model.getCharacterAt(nextRow, nextCol);
-				if (possibleEnemy != null && possibleEnemy.getTeam().equals("player")) { 
-					//then there is a character there 
-					Random ran = new Random();
-					i = ran.nextInt(2); // either 0 or 1 
-					if (i == 0) { //attack
-						attack(row, col, nextRow, nextCol, "player");
-						return "atk";
-					}
-					else { //if (i == 1) {  //defend 
-						defend(row, col);
-						return "def";
-					}
-				}
-			}
+		int action = Action.NONE;
+		if (ponderer != null) {
+			action = ponderer.lookup(c);
 		}
-
-		//if theres no one next to them, then move 
-		if (i == 2) { 
-			Character[] pChar = model.getCharList();
-			int[] dist = new int[pChar.length];
-			int path = 0;
-			for (int j = 0; j< 5; j++) {
-				if (pChar[j] != null) {
-					int dx = Math.abs(c.getPoint().x - pChar[j].getPoint().x);
-					int dy = Math.abs(c.getPoint().y - pChar[j].getPoint().y);
-					dist[j] = dx +dy;
-					path = j;
-				}
-			}
-			for (int j = 1;j < 5; j++) {
-				if ( dist[j] < dist[path]) {
-					path = j;
-				}
-			}
-			AImove(c,pChar[path]);
-			return "move";
+		if (action == Action.NONE && searchAI != null) {
+			action = searchAI.chooseAction(c);
 		}
-		return "";
-	}
-
-	/**
-	 * Move AI character towards a target character.
-	 * 
-	 * @param enemy - AI being moved
-	 * @param target - destination being moved towards
-	 */
-	private void AImove(Character enemy,Character target) {
-		int []x = {-1,0,0,1};
-		int []y = {0,-1,1,0};
-		LinkedList<Point> q = new LinkedList<Point>();
-		List<Point> path = new ArrayList<Point>();
-		q.add(enemy.getPoint());
-		int n = model.getMap().length;
-		int m = model.getMap()[0].length;
-		boolean[][] visited = new boolean[n][m];
-		int[][] d = new int[n][m];
-		Point[][] p2 = new Point[n][m];
-		visited[enemy.getPoint().x][enemy.getPoint().y] = true;
-		d[enemy.getPoint().x][enemy.getPoint().y] = 0;
-		Point p = new Point(enemy.getPoint().x, enemy.getPoint().y);
-		while(!q.isEmpty()){
-			int dist = d[p.y][p.x];
-			if (p.x == target.getPoint().x && p.y == target.getPoint().y) {
-				break;
-			}
-			for(int i = 0; i < 4; i++){
-				int a = p.x + x[i];
-				int b = p.y + y[i];
-				if(inRange(b,a) && !visited[b][a] && model.getMap()[b][a] == null){
-					d[b][a] = dist;
-					p2[b][a] = p;
-					visited[b][a] = true;	
-					q.add(new Point(a,b));
-				}
-				
-			}
-			p = q.removeFirst();
+		if (action == Action.NONE) {
+			action = simpleAI.chooseAction(c);
 		}
-		while (p != null) {
-			path.add(0, new Point (p.x, p.y));
-			p = p2[p.y][p.x];
+		if (action == Action.NONE) {
+			return "";
 		}
-		AImove2(path,enemy);
+		return play(c, action);
 	}
 
 	/**
-	 * Helper method for AImove
+	 * Plays an action chosen by the AI.
 	 * 
-	 * @param path, a List<Point> collection holding the first location, 
-	 * 		the final location, and spots inbetween. 
-	 * @param enemy, Character
+	 * @param c - the AI character acting
+	 * @param action - the packed Action
+	 * @return "def", "atk" or "move", the action taken, or "" if the move or attack could not 
+	 * be made
 	 */
-	private void AImove2(List<Point> path,Character enemy) {
-		int row = enemy.getPoint().y;
-		int col = enemy.getPoint().x;
-        if (path.size() > 2) {
-			model.setCharacterAt(enemy,path.get(2).y,path.get(2).x);
-			model.removeCharacterAt(row, col);
-		} else {
-			model.setCharacterAt(enemy,path.get(0).y,path.get(0).x);
-			model.removeCharacterAt(row, col);
+	private String play(Character c, int action) {
+		int row2 = model.rowOf(Action.cellOf(action));
+		int col2 = model.colOf(Action.cellOf(action));
+		switch (Action.kindOf(action)) {
+			case Action.ATTACK:
+				return execute(Command.attack(c, row2, col2)) ? "atk" : "";
+			case Action.MOVE:
+				return execute(Command.move(c, row2, col2)) ? "move" : "";
+			default:
+				execute(Command.defend(c));
+				return "def";
 		}
-		
 	}
-	
 
 	/**
-	 * Add the view as an observer of the model
-	 * @param view
+	 * Get the tiles a character can move to
+	 * 
+	 * @param c - a Character
+	 * @return a bitset of the tiles, read with inRange()
+	 */
+	public long[] getMoveRange(Character c) {
+		return model.getMoveRange(c);
+	}
+
+	/**
+	 * Get the tiles a character can attack
+	 * 
+	 * @param c - a Character
+	 * @return a bitset of the tiles, read with inRange()
+	 */
+	public long[] getAttackRange(Character c) {
+		return model.getAttackRange(c);
+	}
+
+	/**
+	 * Get the tiles a team can attack next turn
+	 * 
+	 * @param team - "player" or "AI"
+	 * @return a bitset of the tiles, read with inRange()
+	 */
+	public long[] getThreatTiles(String team) {
+		return model.getThreatTiles(team);
+	}
+
+	/**
+	 * Get the damage a character on a tile would take if every character of a team in reach attacked
+	 * 
+	 * @param team - "player" or "AI", the attacking team
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @param defense - the defense of the character on the tile, 0 if it is not defending
+	 * @return the total damage
+	 */
+	public int getDamageAt(String team, int row, int col, int defense) {
+		return model.getDamageAt(team, row, col, defense);
+	}
+
+	/**
+	 * Checks whether a tile is in a bitset of tiles
+	 * 
+	 * @param tiles - a bitset returned by getMoveRange() or getAttackRange()
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return true if the tile is in the bitset
+	 */
+	public boolean inRange(long[] tiles, int row, int col) {
+		return model.inRange(tiles, row, col);
+	}
+
+	/**
+	 * Get the events of the game, for the view to listen to
+	 * 
+	 * @return the EventBus of the model
+	 */
+	public EventBus getEvents() {
+		return model.getEvents();
+	}
+
+	/**
+	 * Get the log of the game, to choose how much is logged and where
+	 * 
+	 * @return the GameLog of the model
+	 */
+	public GameLog getLog() {
+		return model.getLog();
+	}
+
+	/**
+	 * Get the snapshots of the game, for threads other than the one playing it, see 
+	 * RPGModel.getSnapshots()
+	 * 
+	 * @return the SnapshotBuffer of the model
+	 */
+	public SnapshotBuffer getSnapshots() {
+		return model.getSnapshots();
+	}
+
+	/**
+	 * Takes a snapshot of the game now, if anyone watches
+	 */
+	void publishSnapshot() {
+		model.publishSnapshot();
+	}
+
+	/**
+	 * Ends a team's turn once all its characters have acted
+	 * 
+	 * @param team - "player" or "AI"
 	 */
-	public void bindObservable(RPGView view) {
-		Observable obs = (Observable) model;
-		obs.addObserver(view);
-		obs.hasChanged();
-		obs.notifyObservers(obs);
+	public void endTurn(String team) {
+		model.endTurn(team);
+		if (ponderer != null && team.equals("AI")) {
+			ponderer.newTurn();
+		}
 	}
 
 	/**
@@ -245,20 +439,25 @@ public class RPGController{
 	 * @return boolean, true if the move was made, false otherwise 
 	 */
 	public boolean move(int col, int row,int row2, int col2) {
-		if (inRange(col,row) && inRange(col2,row2) && model.getMap()[row2][col2] == null && model.getMap()[row][col] != null) {
-			Character c = model.getCharacterAt(row, col);
-			c.setDefense(false);
-			for (int i = 0; i < model.getCharList().length; i++) {
-				if (model.getCharList()[i] != null && model.getCharList()[i].equals(c)) {
-					if (c.getTeam().equals("AI")) {
-						System.out.println("Werewolf " + (i-4) + " moves.");
-					} else {
-						System.out.println("Vampire " + (i+1) + " moves.");
-					}
-				}
-			}
-			model.setCharacterAt(c,row2,col2);
-			model.removeCharacterAt(row, col);
+		Character c = inRange(col,row) ? model.getCharacterAt(row, col) : null;
+		return c != null && inGame(c) && move(c, row2, col2);
+	}
+
+	/**
+	 * Makes a character move to another location 
+	 * 
+	 * @param c - the character moving
+	 * @param row2, an int 
+	 * @param col2, an int 
+	 * @return boolean, true if the move was made, false if the tile is not free or out of reach
+	 */
+	private boolean move(Character c, int row2, int col2) {
+		if (inRange(col2,row2) && model.isEmpty(row2, col2) 
+				&& canReach(c, model.cellOf(row2, col2), NO_CHANGES, NO_CHANGES, 0)) {
+			int from = UnitStore.pack(c.getRow(), c.getCol());
+			model.setDefending(c, false);
+			model.moveCharacter(c,row2,col2);
+			model.getLog().record(GameLog.MOVE, c.getId(), from, UnitStore.pack(row2, col2));
 			return true;
 		} else {
 			return false;
@@ -268,59 +467,193 @@ public class RPGController{
 	/**
 	 * Makes a character attack the character at another location 
 	 * 
-	 * @param col, an int (attacker's location)
-	 * @param row, an int (attacker's location)
+	 * @param attacker - the character attacking
 	 * @param row2, an int (attacked's location)
 	 * @param col2, an int (attacked's location)
-	 * @param enemy, a String, either "AI" or "player", the team being attacked 
+	 * @return boolean, false if the tile is not next to the attacker and nothing happened
 	 */
-	private void attack(int row, int col, int row2, int col2, String enemy) { 
-		if (inRange(col,row) && inRange(col2,row2)) {
-			Character attacker = model.getCharacterAt(row, col);
-			attacker.setDefense(false);
+	private boolean attack(Character attacker, int row2, int col2) { 
+		if (!canAttack(attacker, UnitStore.pack(row2, col2))) {
+			return false;
+		}
+		if (inRange(col2,row2)) {
+			model.setDefending(attacker, false);
 			Character attacked = model.getCharacterAt(row2, col2);
-			if (attacked != null && attacked.getTeam().equals(enemy)) { 
+			if (attacked != null && attacked.getTeam().equals(enemyOf(attacker))) { 
 				int attack = attacker.attack() - attacked.defend(); 
-				attacked.lowerHP(attack); 
-				for (int i = 0; i < model.getCharList().length; i++) {
-					if (model.getCharList()[i] != null && model.getCharList()[i].equals(attacker)) {
-						if (attacker.getTeam().equals("AI")) {
-							System.out.println("Werewolf " + (i-4) + " attacks.");
-						} else {
-							System.out.println("Vampire " + (i+1) + " attacks.");
-						}
-					}
+				model.getLog().record(GameLog.ATTACK, attacker.getId(), attacked.getId(), attack);
+				model.damageCharacter(attacked, attack);
+				return true;
+			}
+		}
+		model.getLog().record(GameLog.MISS, attacker.getId(), 0, 0);
+		return true;
+	}
+
+	/**
+	 * Activate the defense of a character.
+	 * 
+	 * @param defender - the character defending
+	 */
+	private void defend(Character defender) { 
+		model.setDefending(defender, true); 
+		model.getLog().record(GameLog.DEFEND, defender.getId(), 0, 0);
+	}
+
+	/**
+	 * Checks a team's orders before any is played, following the turn through: the tiles the 
+	 * moves and the deaths free or take, and the health left to each enemy attacked. Characters 
+	 * only ever stand where their own order puts them, and each has at most one order. A move 
+	 * must be a walk the character can make over the tiles as they stand when its turn comes, 
+	 * and an attack must be on a tile next to the character or on its own tile.
+	 * 
+	 * @param orders - the TurnOrders to check
+	 * @throws IllegalArgumentException naming the first order that cannot be played
+	 */
+	private void validate(TurnOrders orders) {
+		int n = orders.size();
+		int[] changedTile = new int[2 * n]; //tiles whose occupant changes, in turn order
+		int[] occupant = new int[2 * n]; //id of the unit on each of those tiles after, or NONE
+		int changes = 0;
+		int[] woundedId = new int[n]; //enemies attacked, and the health they are left with
+		int[] woundedHP = new int[n];
+		int wounded = 0;
+		boolean[] ordered = new boolean[model.getConfig().getUnitsPerSide() * 2];
+		for (int i = 0; i < n; i++) {
+			Command order = orders.get(i);
+			Character c = order.getCharacter();
+			if (!inGame(c) || !c.getTeam().equals(orders.getTeam())) {
+				throw refused(orders, i, "its character is not a living character of the team");
+			}
+			if (ordered[c.getId()]) {
+				throw refused(orders, i, "its character already has an order");
+			}
+			ordered[c.getId()] = true;
+			if (order.kind() == Action.DEFEND) {
+				continue;
+			}
+			if (!inRange(order.getCol(), order.getRow())) {
+				throw refused(orders, i, "its tile is off the board or blocked");
+			}
+			if (order.kind() == Action.ATTACK && !canAttack(c, order.getTarget())) {
+				throw refused(orders, i, "its tile is out of reach");
+			}
+			int target = model.cellOf(order.getRow(), order.getCol());
+			int there = occupantAt(target, changedTile, occupant, changes);
+			if (order.kind() == Action.MOVE) {
+				if (there != Board.NONE) {
+					throw refused(orders, i, "its tile is taken");
+				}
+				if (!canReach(c, target, changedTile, occupant, changes)) {
+					throw refused(orders, i, "its tile is out of reach");
 				}
-				model.notifyObservers(model.getCharList());
-				if (attacked.getHP() <= 0) { // remove character from game when their HP reaches 0
-					model.killCharacter(attacked, row2, col2);
+				changedTile[changes] = model.cellOf(c.getRow(), c.getCol());
+				occupant[changes++] = Board.NONE;
+				changedTile[changes] = target;
+				occupant[changes++] = c.getId();
+			} else if (there != Board.NONE && model.getCharacter(there).getTeam().equals(enemyOf(c))) {
+				Character attacked = model.getCharacter(there);
+				int w = 0;
+				while (w < wounded && woundedId[w] != there) {
+					w++;
+				}
+				if (w == wounded) {
+					woundedId[wounded] = there;
+					woundedHP[wounded++] = attacked.getHP();
+				}
+				woundedHP[w] -= c.attack() - attacked.defend();
+				if (woundedHP[w] <= 0) {
+					changedTile[changes] = target;
+					occupant[changes++] = Board.NONE;
 				}
-			} else { 
-				System.out.println("Cannot attack here");
 			}
-		} else { 
-			System.out.println("Cannot attack here");
 		}
 	}
 
 	/**
-	 * Activate the defense of the character at a specified location.
+	 * Checks that a character can walk to a tile in one move: at most its steps along rows and 
+	 * columns, over tiles with no obstacle and no one standing on them at that point of the turn. 
+	 * A werewolf walks AI_STEPS tiles and a vampire the move range of the game, as the AI and the 
+	 * view let them. The walk is found with the model's RangeFinder, told of the tiles the earlier 
+	 * orders of the turn take and free, so checking a move allocates nothing.
 	 * 
-	 * @param row coordinate of the character
-	 * @param col coordinate of the character
+	 * @param c - the character moving
+	 * @param target - the index of the tile to walk to
+	 * @param changedTile - the tiles whose occupant changed so far in the turn, in turn order
+	 * @param occupant - the id of the unit on each of those tiles after the change, or NONE
+	 * @param changes - the number of changes so far
+	 * @return true if the tile can be reached
 	 */
-	private void defend(int row, int col) { 
-		Character defender = model.getCharacterAt(row, col);
-		defender.setDefense(true); 
-		for (int i = 0; i < model.getCharList().length; i++) {
-			if (model.getCharList()[i] != null && model.getCharList()[i].equals(defender)) {
-				if (defender.getTeam().equals("AI")) {
-					System.out.println("Werewolf " + (i-4) + " is defending.");
-				} else {
-					System.out.println("Vampire " + (i+1) + " is defending.");
-				}
+	private boolean canReach(Character c, int target, int[] changedTile, int[] occupant, int changes) {
+		int steps = c.getTeam().equals("AI") ? AI_STEPS : model.getConfig().getMoveRange();
+		RangeFinder range = model.getRangeFinder();
+		int reached = range.search(model.cellOf(c.getRow(), c.getCol()), steps, changedTile, occupant, changes);
+		int[] tiles = range.getReached();
+		for (int i = 1; i < reached; i++) {
+			if (tiles[i] == target) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Checks that a tile is in a character's reach for an attack: its own tile, or the tiles 
+	 * next to it along rows and columns for a vampire and on all eight sides for a werewolf.
+	 * 
+	 * @param c - the character attacking
+	 * @param target - the packed tile attacked
+	 * @return true if the character can attack the tile
+	 */
+	private boolean canAttack(Character c, int target) {
+		int rows = Math.abs(UnitStore.rowOf(target) - c.getRow());
+		int cols = Math.abs(UnitStore.colOf(target) - c.getCol());
+		return c.getTeam().equals("AI") ? Math.max(rows, cols) <= 1 : rows + cols <= 1;
+	}
+
+	/**
+	 * Finds who will stand on a tile at some point of a turn being checked.
+	 * 
+	 * @param tile - the index of the tile
+	 * @param changedTile - the tiles whose occupant changed so far in the turn, in turn order
+	 * @param occupant - the id of the unit on each of those tiles after the change, or NONE
+	 * @param changes - the number of changes so far
+	 * @return the id of the unit on the tile, or Board.NONE if it is free
+	 */
+	private int occupantAt(int tile, int[] changedTile, int[] occupant, int changes) {
+		for (int k = changes - 1; k >= 0; k--) {
+			if (changedTile[k] == tile) {
+				return occupant[k];
+			}
+		}
+		Character c = model.getCharacterAt(model.rowOf(tile), model.colOf(tile));
+		return c != null && inGame(c) ? c.getId() : Board.NONE;
+	}
+
+	/**
+	 * @return the exception refusing a batch of orders because of one of them
+	 */
+	private static IllegalArgumentException refused(TurnOrders orders, int i, String reason) {
+		return new IllegalArgumentException("Order " + i + " of the " + orders.getTeam() + " cannot be played: " + reason);
+	}
+
+	/**
+	 * Checks that a character is a living character of this game, not an obstacle or a 
+	 * character that died
+	 * 
+	 * @param c - a Character
+	 * @return true if it is in the game
+	 */
+	private boolean inGame(Character c) {
+		return c.getId() < model.getConfig().getUnitsPerSide() * 2 && model.getCharacter(c.getId()) == c;
+	}
+
+	/**
+	 * @param c - a Character
+	 * @return "AI" for a vampire, "player" for a werewolf, the team it fights
+	 */
+	private static String enemyOf(Character c) {
+		return c.getTeam().equals("AI") ? "player" : "AI";
 	}
 
 
@@ -332,12 +665,7 @@ public class RPGController{
 	 * @return a boolean, if the location given is within bounds of the board 
 	 */
 	private boolean inRange(int x, int y) {
-		if ((x >= 0) && (x < model.getMap()[0].length) && (y >= 0) && (y < model.getMap().length) 
-				&&  (model.getCharacterAt(y, x) == null || (!model.getCharacterAt(y, x).getTeam().equals("mountain") &&
-				!model.getCharacterAt(y, x).getTeam().equals("water")))) {
-			return true;
-		}
-		return false;
+		return model.isPassable(y, x);
 	}
 
 	/**
@@ -1,117 +1,199 @@
 package rpg;
 
 import java.util.ArrayList;
-import java.util.Observable;
-import java.util.Random; 
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
  * This class holds the model for the game, including the board, obstacles, and characters, as well as getters 
- * and setters. Is observable, observed by the view.
+ * and setters. Publishes what happens in the game on its EventBus, which the view listens to.
  *
  * date: 5/05/21
  */
-@SuppressWarnings("deprecation")
-public class RPGModel extends Observable {
-	private static final int ROWS = 20; //row dimension of the grid
-	private static final int COLS = 20; //column dimension of the grid
-	// store map representation as 2d array
-	private Character[][] map;
-	private Character[] characters; //store references to characters
+public class RPGModel {
+	// shared stand-ins returned by the compatibility views for obstacle tiles
+	private static final Character MOUNTAIN = new Character(0, 0, 0, "mountain");
+	private static final Character WATER = new Character(0, 0, 0, "water");
+	private static final int ATTACK_RANGE = 1; //steps along a row or column a character can attack
+	private static final int LOG_CAPACITY = 1 << 12; //records the log holds before it drops them
+	private static final int LAKE_TRIES = 100; //spots tried for a lake before it is left out
+	// row and column offsets of the eight tiles around a tile, the direction of an attack in undo records
+	private static final int[] AROUND_ROW = {0, -1, 1, 0, -1, -1, 1, 1};
+	private static final int[] AROUND_COL = {-1, 0, 0, 1, -1, 1, -1, 1};
+	private GameConfig config; //dimensions, army size and starting layout of the game
+	private GameRandom random; //random numbers of the game, drawn from the seed of the config
+	private final EventBus events = new EventBus(); //what happens in the game, for the view
+	private GameLog log; //what happens in the game, in words
+	private SnapshotBuffer snapshots; //pictures of the game for other threads, or null until asked for
+	private int turns; //turns ended so far
+	// store map representation as primitive terrain and occupant layers
+	private Board board;
+	private UnitStore units; //stats and positions of every unit, indexed by unit id
+	private Character[] characters; //store handles to living characters, indexed by unit id
+	private Character[] handles; //store handles to every character, dead or alive, so undo can revive them
+	private SpatialGrid spatial; //bucket grid of the living characters, for nearest-unit queries
+	private Pathfinder pathfinder; //reusable shortest path search over the board
+	private RangeFinder rangeFinder; //reusable search for the tiles a unit can reach in a move
+	// one bit per tile: tiles without obstacles, tiles of each team's characters, by faction, 
+	// and tiles of defending characters
+	private BitBoard passableTiles;
+	private BitBoard[] teamTiles;
+	private BitBoard defendingTiles;
+	private int[] maskCell; //tile each unit was last recorded on in the bitboards, or Board.NONE
+	private BitBoard rangeTiles; //scratch bitboards for range queries
+	private BitBoard walkTiles;
+	private FlowField[] fields; //steps to the closest vampire and to the closest werewolf, by faction
+	private ThreatMap[] threats; //tiles each team can attack next turn, by faction
+	private final int[] nearestScratch = new int[1]; //result of nearestEnemy, reused between calls
 	
 	// fields to store number of user's and AI's players left on map
 	private int nbrOfUser;
 	private int nbrOfAI;
 	
 	/**
-	 * No-argument constructor that creates the array representation of the map 
+	 * No-argument constructor that creates the classic 20 x 20 game with 5 characters per team
 	 */
 	public RPGModel() {
-		// initiate representation of map that is 20 row x 20 columns
-		map = new Character[ROWS][COLS];
-		// initialize number of characters to 20 to start (MAY CHANGE)
-		nbrOfUser = 5;
-		nbrOfAI = 5;
+		this(GameConfig.classic());
+	}
+	
+	/**
+	 * Constructor that creates the array representation of the map described by a configuration
+	 * 
+	 * @param config the dimensions, army size and starting layout of the game
+	 */
+	public RPGModel(GameConfig config) {
+		this.config = config;
+		this.random = new GameRandom(config.getSeed());
+		this.log = new GameLog(config.getUnitsPerSide(), LOG_CAPACITY);
+		// initiate representation of map that is rows x columns
+		board = new Board(config.getRows(), config.getCols());
+		// initialize number of characters on each team
+		nbrOfUser = config.getUnitsPerSide();
+		nbrOfAI = config.getUnitsPerSide();
 		
 		// put starting characters on map
+		units = new UnitStore(nbrOfUser + nbrOfAI);
 		characters = new Character[nbrOfUser + nbrOfAI];//array, length total num of characters
+		spatial = new SpatialGrid(units, config.getRows(), config.getCols());
+		pathfinder = new Pathfinder(board);
+		rangeFinder = new RangeFinder(board);
+		passableTiles = new BitBoard(config.getRows(), config.getCols());
+		teamTiles = new BitBoard[] {new BitBoard(config.getRows(), config.getCols()), 
+				new BitBoard(config.getRows(), config.getCols())};
+		defendingTiles = new BitBoard(config.getRows(), config.getCols());
+		rangeTiles = new BitBoard(config.getRows(), config.getCols());
+		walkTiles = new BitBoard(config.getRows(), config.getCols());
+		maskCell = new int[nbrOfUser + nbrOfAI];
+		Arrays.fill(maskCell, Board.NONE);
 		//create player characters
 		for (int i=0; i<nbrOfUser; i++) {
-			characters[i] = new Character(100, 5, 10, "player");
+			characters[i] = new Character(units, units.add(config.getUnitHP(), config.getUnitDefense(),
+					config.getUnitAttack(), UnitStore.PLAYER));
 		}
 		//create AI characters
 		for (int i=nbrOfUser; i<nbrOfUser+nbrOfAI; i++) {
-			characters[i] = new Character(100, 5, 10, "AI");
+			characters[i] = new Character(units, units.add(config.getUnitHP(), config.getUnitDefense(),
+					config.getUnitAttack(), UnitStore.AI));
+		}
+		handles = characters.clone();
+		//put characters on their starting tiles
+		for (int i=0; i<characters.length; i++) {
+			int[] tile = config.getStartingTile(i);
+			setCharacterAt(characters[i], tile[0], tile[1]);
+		}
+		// the same seed always gives the same terrain
+		SplittableRandom rand = random.stream(GameRandom.TERRAIN);
+		placeMountains(rand); 
+		placeWater(rand);
+		for (int cell = 0; cell < board.size(); cell++) {
+			if (board.isPassable(cell)) {
+				passableTiles.set(cell);
+			}
+		}
+		fields = new FlowField[2]; //each is built the first time it is read
+		// vampires attack along rows and columns, werewolves also attack diagonally
+		threats = new ThreatMap[] {new ThreatMap(board, units, UnitStore.PLAYER, false), 
+				new ThreatMap(board, units, UnitStore.AI, true)};
+		for (ThreatMap threat : threats) {
+			threat.rebuild();
 		}
-		//put player characters on map
-		setCharacterAt(characters[0], 0, 0);
-		setCharacterAt(characters[1], 0, 2);
-		setCharacterAt(characters[2], 2, 0);
-		setCharacterAt(characters[3], 2, 3);
-		setCharacterAt(characters[4], 4, 1);
-		//put AI characters on map
-		setCharacterAt(characters[5], 19, 19);
-		setCharacterAt(characters[6], 19, 17);
-		setCharacterAt(characters[7], 17, 19);
-		setCharacterAt(characters[8], 17, 16);
-		setCharacterAt(characters[9], 15, 18);
-		placeMountains(); 
-		placeWater();
 	}
 	
 	/**
-	 * Places the mountain obstacles randomly on the middle of the map
+	 * Builds the list of columns in the middle band of the map, where obstacles may be placed
+	 * 
+	 * @return the columns between the two armies' starting areas
 	 */
-	private void placeMountains() { 
-		Random rand = new Random();
+	private ArrayList<Integer> middleColumns() {
 		ArrayList<Integer> emptyCols = new ArrayList<Integer>();
-		for (int e = 4; e <= 15; e++) { 
+		int margin = config.getObstacleMargin();
+		for (int e = margin; e <= board.getCols() - 1 - margin; e++) { 
 			emptyCols.add(e); 
 		} 
+		return emptyCols;
+	}
+	
+	/**
+	 * Places the mountain obstacles randomly on the middle of the map. Larger maps repeat the
+	 * set of mountains once per obstacle scale step.
+	 * 
+	 * @param rand - the random numbers the terrain is drawn from
+	 */
+	private void placeMountains(SplittableRandom rand) { 
+		ArrayList<Integer> emptyCols = middleColumns();
 		int[] mountains = {4, 3, 2};
-		for (int mSize : mountains) { 
-			int j = emptyCols.get(rand.nextInt(emptyCols.size())); 
-			for (int a = j; a <= j + mSize; a++) { 
-				map[a][j] = new Character(0, 0, 0, "mountain");
+		for (int k = 0; k < config.getObstacleScale(); k++) {
+			for (int mSize : mountains) { 
+				if (emptyCols.isEmpty()) {
+					return;
+				}
+				int j = emptyCols.get(rand.nextInt(emptyCols.size())); 
+				int top = Math.max(0, Math.min(j, board.getRows() - 1 - mSize));
+				for (int a = top; a <= top + mSize && a < board.getRows(); a++) { 
+					board.setTerrain(board.index(a, j), Board.MOUNTAIN);
+				}
+				emptyCols.remove(emptyCols.indexOf(j)); 
 			}
-			emptyCols.remove(emptyCols.indexOf(j)); 
 		}
 	}
 	
 	/**
-	 * Places the water obstacles randomly on the middle of the map
+	 * Places the water obstacles randomly on the middle of the map. Larger maps repeat the
+	 * set of lakes once per obstacle scale step. A lake that finds no free spot after a number 
+	 * of tries is left out, as on small boards the mountains may leave no room for it.
 	 * 	  
+	 * @param rand - the random numbers the terrain is drawn from
 	 */
-	private void placeWater() { 
-		Random rand = new Random();
-		ArrayList<Integer> emptyCols = new ArrayList<Integer>();
-		for (int e = 4; e <= 15; e++) { 
-			emptyCols.add(e); 
-		} 
-		int[] waters = {1, 1, 2, 2};
-		int y = ROWS - 1; 
+	private void placeWater(SplittableRandom rand) { 
+		ArrayList<Integer> emptyCols = middleColumns();
+		int[] waters = new int[4 * config.getObstacleScale()];
+		for (int k = 0; k < waters.length; k++) {
+			waters[k] = k % 4 < 2 ? 1 : 2; //{1, 1, 2, 2} for every scale step
+		}
+		int y = board.getRows() - 1; 
 		for(int wSize: waters) { 
 			if (wSize == 1) { 
 				int j = emptyCols.get(rand.nextInt(emptyCols.size())); 
 				int i = rand.nextInt(y - wSize);
-				Character a = map[i][j]; 
-				if (a == null) { 
-					map[i][j] = new Character(0, 0, 0, "water");
+				if (board.isFree(board.index(i, j))) { 
+					board.setTerrain(board.index(i, j), Board.WATER);
 				} 	
 			} else { 
 				boolean goodSpot = false; 
-				while (goodSpot != true) { 
+				for (int tries = 0; tries < LAKE_TRIES && goodSpot != true; tries++) { 
 					int j = emptyCols.get(rand.nextInt(emptyCols.size())); 
 					int i = rand.nextInt(y - wSize);
-					Character a = map[i][j]; 
-					Character b = map[i][j+1];
-					Character c = map[i+1][j];
-					Character d = map[i+1][j+1];
-					if (a == null && b == null && c == null && d == null) {
+					int a = board.index(i, j); 
+					int b = board.index(i, j+1);
+					int c = board.index(i+1, j);
+					int d = board.index(i+1, j+1);
+					if (board.isFree(a) && board.isFree(b) && board.isFree(c) && board.isFree(d)) {
 						goodSpot = true; 
-						map[i][j] = new Character(0, 0, 0, "water");
-						map[i][j+1] = new Character(0, 0, 0, "water");
-						map[i+1][j] = new Character(0, 0, 0, "water");
-						map[i+1][j+1] = new Character(0, 0, 0, "water");
+						board.setTerrain(a, Board.WATER);
+						board.setTerrain(b, Board.WATER);
+						board.setTerrain(c, Board.WATER);
+						board.setTerrain(d, Board.WATER);
 						emptyCols.add(j);
 						emptyCols.add(j + 1);
 					}
@@ -121,30 +203,341 @@ public class RPGModel extends Observable {
 	}
 	
 	/**
-	 * Getter method for character on map. Retrieves reference to character
+	 * Getter method for character on map. Retrieves reference to character. Obstacle tiles
+	 * are reported as a shared Character whose team is "mountain" or "water".
 	 * 
 	 * @param row int that is the row of the desired character is
 	 * @param col int that is the column of the desired character is
 	 * @return	the Character at said location
 	 */
 	public Character getCharacterAt(int row, int col) {		
-		return map[row][col];
+		return tileView(board.index(row, col));
 	}
 	
 	/**
-	 * Place a character onto a new position on the map
+	 * Builds the compatibility view of a single tile.
+	 * 
+	 * @param cell the index of the tile on the board
+	 * @return the Character on the tile, the obstacle stand-in, or null if the tile is empty
+	 */
+	private Character tileView(int cell) {
+		byte terrain = board.getTerrain(cell);
+		if (terrain == Board.MOUNTAIN) {
+			return MOUNTAIN;
+		} else if (terrain == Board.WATER) {
+			return WATER;
+		}
+		int id = board.getOccupant(cell);
+		return id == Board.NONE ? null : characters[id];
+	}
+	
+	/**
+	 * Returns the configuration the game was created with.
+	 * 
+	 * @return the GameConfig of the game
+	 */
+	public GameConfig getConfig() {
+		return config;
+	}
+	
+	/**
+	 * Returns the events of the game, to listen to what happens in it.
+	 * 
+	 * @return the EventBus of the game
+	 */
+	public EventBus getEvents() {
+		return events;
+	}
+	
+	/**
+	 * Returns the log of the game, which is off until its level is raised.
+	 * 
+	 * @return the GameLog of the game
+	 */
+	public GameLog getLog() {
+		return log;
+	}
+	
+	/**
+	 * Returns the snapshots of the game, which other threads read instead of the model. The 
+	 * first call takes a snapshot of the game as it is, and from then on a new one is taken at 
+	 * the end of every turn. Must first be called by the thread playing the game, or before it 
+	 * starts; a game no one watches takes no snapshots.
+	 * 
+	 * @return the SnapshotBuffer of the game
+	 */
+	public SnapshotBuffer getSnapshots() {
+		if (snapshots == null) {
+			snapshots = new SnapshotBuffer(config);
+			snapshots.publish(this, turns);
+		}
+		return snapshots;
+	}
+	
+	/**
+	 * Takes a snapshot of the game now rather than at the end of the turn, if anyone watches.
+	 */
+	void publishSnapshot() {
+		if (snapshots != null) {
+			snapshots.publish(this, turns);
+		}
+	}
+	
+	/**
+	 * Copies the tiles a team can attack next turn without allocating, see getThreatTiles().
+	 * 
+	 * @param team - "player" or "AI"
+	 * @param into - the array to copy the bitset into, as long as the one getThreatTiles() returns
+	 */
+	void copyThreatTiles(String team, long[] into) {
+		long[] words = threats[UnitStore.factionOf(team)].getTiles().words();
+		System.arraycopy(words, 0, into, 0, words.length);
+	}
+	
+	/**
+	 * @return the number of turns ended so far, by either team
+	 */
+	int getTurns() {
+		return turns;
+	}
+	
+	/**
+	 * Ends a team's turn and tells the listeners, who may wait for the end of a turn to redraw.
+	 * 
+	 * @param team - "player" or "AI", the team whose turn ended
+	 */
+	public void endTurn(String team) {
+		turns++;
+		log.record(GameLog.TURN, team.equals("AI") ? UnitStore.AI : UnitStore.PLAYER, turns, 0);
+		publishSnapshot();
+		if (events.hasListeners(TurnEnded.class)) {
+			events.publish(new TurnEnded(team, turns));
+		}
+		events.endOfTurn(); //the events held back arrive even if no one listens to TurnEnded
+	}
+	
+	/**
+	 * Lowers the health of a character hit by an attack, and removes it from the game when its 
+	 * health reaches 0.
+	 * 
+	 * @param c - the character hit
+	 * @param damage - the health it loses
+	 */
+	public void damageCharacter(Character c, int damage) {
+		c.lowerHP(damage);
+		log.record(GameLog.DAMAGE, c.getId(), damage, c.getHP());
+		if (events.hasListeners(UnitDamaged.class)) {
+			events.publish(new UnitDamaged(c, damage, c.getHP()));
+		}
+		if (c.getHP() <= 0) { // remove character from game when their HP reaches 0
+			killCharacter(c, c.getRow(), c.getCol());
+		}
+	}
+	
+	/**
+	 * Returns the random numbers of the game, which every part of it that draws random numbers
+	 * takes its own stream from.
+	 * 
+	 * @return the GameRandom of the game
+	 */
+	GameRandom getRandom() {
+		return random;
+	}
+	
+	/**
+	 * Returns the row dimension of the board.
+	 * 
+	 * @return the number of rows
+	 */
+	public int getRows() {
+		return board.getRows();
+	}
+	
+	/**
+	 * Returns the column dimension of the board.
+	 * 
+	 * @return the number of columns
+	 */
+	public int getCols() {
+		return board.getCols();
+	}
+	
+	/**
+	 * Checks that a coordinate is on the board and that its terrain can be walked on. 
+	 * Units standing on the tile do not make it impassable.
+	 * 
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return true if the tile is on the board and is neither mountain nor water
+	 */
+	public boolean isPassable(int row, int col) {
+		return board.inBounds(row, col) && board.isPassable(board.index(row, col));
+	}
+	
+	/**
+	 * Checks that a coordinate is on the board and has no obstacle or unit on it.
+	 * 
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return true if a unit could be placed on the tile
+	 */
+	public boolean isEmpty(int row, int col) {
+		return board.inBounds(row, col) && board.isFree(board.index(row, col));
+	}
+	
+	/**
+	 * Looks up the id of a character of this game. Characters are stored by id, so this 
+	 * is a single array read.
+	 * 
+	 * @param c - a Character
+	 * @return the id of the character, or Board.NONE if it is not a living character of this game
+	 */
+	private int idOf(Character c) {
+		if (c != null && c.getId() < characters.length && characters[c.getId()] == c) {
+			return c.getId();
+		}
+		return Board.NONE;
+	}
+	
+	/**
+	 * Clears the tile a unit stands on and marks the unit as off the board.
+	 * 
+	 * @param id - the unit to take off the board
+	 */
+	private void takeOffBoard(int id) {
+		int pos = units.getPos(id);
+		if (pos != UnitStore.NO_POS) {
+			int cell = board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos));
+			if (board.getOccupant(cell) == id) {
+				board.setOccupant(cell, Board.NONE);
+			}
+			units.clearPos(id);
+			reindex(id);
+		}
+	}
+	
+	/**
+	 * Brings every index over the units up to date after a unit was placed, moved or killed.
+	 * 
+	 * @param id - the unit that changed
+	 */
+	private void reindex(int id) {
+		updateMasks(id);
+		spatial.update(id);
+		if (fields != null) { //the fields and threat maps are built once the terrain is placed
+			for (FlowField field : fields) {
+				if (field != null) {
+					field.update(id);
+				}
+			}
+			for (ThreatMap threat : threats) {
+				threat.update(id);
+			}
+		}
+	}
+	
+	/**
+	 * Moves a unit's bits in the team and defending bitboards from the tile they were last 
+	 * recorded on to the tile the unit stands on now.
+	 * 
+	 * @param id - the unit that changed
+	 */
+	private void updateMasks(int id) {
+		BitBoard team = teamTiles[units.getFaction(id)];
+		if (maskCell[id] != Board.NONE) {
+			team.clear(maskCell[id]);
+			defendingTiles.clear(maskCell[id]);
+			maskCell[id] = Board.NONE;
+		}
+		int pos = units.getPos(id);
+		if (units.isAlive(id) && pos != UnitStore.NO_POS) {
+			int cell = board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos));
+			team.set(cell);
+			if (units.isDefending(id)) {
+				defendingTiles.set(cell);
+			}
+			maskCell[id] = cell;
+		}
+	}
+	
+	/**
+	 * Raises or lowers the defense of a character. Characters of a game should defend through 
+	 * this method rather than Character.setDefense(), so the defending tiles stay up to date.
+	 * 
+	 * @param c - a Character
+	 * @param defending - true if the character is defending
+	 */
+	public void setDefending(Character c, boolean defending) {
+		c.setDefense(defending);
+		int id = idOf(c);
+		if (id != Board.NONE) {
+			updateMasks(id);
+		}
+	}
+	
+	/**
+	 * Place a character onto a new position on the map. The tile it stood on before is cleared.
 	 * 
 	 * @param c - the character being moved
 	 * @param row coordinate of destination
 	 * @param col coordinate of destination
 	 */
 	public void setCharacterAt(Character c,int row,int col) {
-		for (Character ch: characters) {
-			if (ch != null && ch.equals(c)) {
-				ch.setPoint(col, row);
-				map[row][col] = ch;
+		int id = idOf(c);
+		if (id != Board.NONE) {
+			takeOffBoard(id);
+			units.setPos(id, row, col);
+			board.setOccupant(board.index(row, col), id);
+			reindex(id);
+		}
+	}
+	
+	/**
+	 * Moves a character to a new position on the map along a shortest path and publishes a 
+	 * UnitMoved carrying that path. A character never jumps: with no path to the destination 
+	 * it stays where it is.
+	 * 
+	 * @param c - the character being moved
+	 * @param row coordinate of destination
+	 * @param col coordinate of destination
+	 * @return true if the character was moved, false if it is not on the map or no path leads 
+	 * 		to the destination
+	 */
+	public boolean moveCharacter(Character c, int row, int col) {
+		if (idOf(c) == Board.NONE || units.getPos(c.getId()) == UnitStore.NO_POS) {
+			return false;
+		}
+		int start = board.index(c.getRow(), c.getCol());
+		int length = pathfinder.findPath(start, pathfinder.exact(row, col));
+		if (length == 0) {
+			return false;
+		}
+		return moveAlong(c, pathfinder.getPath(), length);
+	}
+	
+	/**
+	 * Moves a character along a path of tiles and publishes a UnitMoved carrying that path. The 
+	 * character ends on the last tile of the path.
+	 * 
+	 * @param c - the character being moved
+	 * @param path - tile indices from the character's tile to its destination
+	 * @param length - the number of tiles of the path to use
+	 * @return true if the character was moved, false if it is not on the map
+	 */
+	boolean moveAlong(Character c, int[] path, int length) {
+		if (idOf(c) == Board.NONE || length < 1) {
+			return false;
+		}
+		int end = path[length - 1];
+		setCharacterAt(c, board.rowOf(end), board.colOf(end));
+		if (events.hasListeners(UnitMoved.class)) { //games without a view skip building the route
+			int[] route = new int[length];
+			for (int i = 0; i < length; i++) {
+				route[i] = UnitStore.pack(board.rowOf(path[i]), board.colOf(path[i]));
 			}
+			events.publish(new UnitMoved(c, route));
 		}
+		return true;
 	}
 	
 	/**
@@ -157,11 +550,12 @@ public class RPGModel extends Observable {
 	 * 
 	 */
 	public boolean removeCharacterAt(int row, int col) {
-		if (map[row][col] != null) {
-			Character ch = map[row][col];
-			map[row][col] = null;
-			setChanged();
-			notifyObservers(ch);
+		int id = board.getOccupant(board.index(row, col));
+		if (id != Board.NONE) {
+			takeOffBoard(id);
+			if (events.hasListeners(UnitKilled.class)) {
+				events.publish(new UnitKilled(characters[id], row, col));
+			}
 			return true;
 		} else {
 			return false;
@@ -178,44 +572,271 @@ public class RPGModel extends Observable {
 	}
 	
 	/**
-	 * Returns the map of the game.
+	 * Returns the number of the AI's characters left on the board.
+	 * 
+	 * @return int, the number of AI characters left 
+	 */
+	public int numberOfAIChars() {
+		return nbrOfAI;
+	}
+	
+	/**
+	 * Returns the map of the game. This is a compatibility view built from the board layers on 
+	 * every call, so changes made to the returned array are not reflected in the game. Like 
+	 * every other getter it reads the live game, so other threads read getSnapshots() instead.
 	 * 
 	 * @return the map represented by a 2d grid of Character
 	 */
 	public Character[][] getMap() {
+		Character[][] map = new Character[board.getRows()][board.getCols()];
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				map[i][j] = tileView(board.index(i, j));
+			}
+		}
 		return map;
 	}
 	
 	/**
-	 * Returns an array of Characters
+	 * Returns an array of Characters. This is the live array of the game, indexed by id with 
+	 * null for the dead, so other threads read getSnapshots() instead.
 	 * 
 	 * @return a list of characters as an array of Character
 	 */
 	public Character[] getCharList() {
-		setChanged();
 		return characters;
 	}
 	
 	/**
-	 * Remove a character when its HP reaches 0
+	 * Remove a character when its HP reaches 0. Nothing happens to a character that is already 
+	 * dead or does not belong to this game.
 	 * 
 	 * @param ch - character being removed
 	 * @param row coordinate of the character on the map
 	 * @param col coordinate of the character on the map
 	 */
 	public void killCharacter(Character ch, int row, int col) {
-		for (int i = 0; i < characters.length; i++) {
-			if (characters[i] != null && characters[i].equals(ch)) {
-				characters[i] = null;
-			}
+		int id = idOf(ch);
+		if (id != Board.NONE) {
+			kill(id);
 		}
-		map[row][col] = null;
-		if (ch.getTeam().equals("AI")) {
+	}
+	
+	/**
+	 * Takes a living unit off the board for good and counts it out of its team, telling the 
+	 * listeners, and that the game is over if it was the last of its team.
+	 * 
+	 * @param id - the unit that died
+	 */
+	private void kill(int id) {
+		int pos = units.getPos(id);
+		takeOffBoard(id);
+		characters[id] = null;
+		units.kill(id);
+		reindex(id);
+		if (units.getFaction(id) == UnitStore.AI) {
 			nbrOfAI--;
 		} else {
 			nbrOfUser--;
 		}
-		notifyObservers(getMap());
+		if (pos != UnitStore.NO_POS) {
+			log.record(GameLog.DEATH, id, pos, 0);
+		}
+		if (pos != UnitStore.NO_POS && events.hasListeners(UnitKilled.class)) {
+			events.publish(new UnitKilled(handles[id], UnitStore.rowOf(pos), UnitStore.colOf(pos)));
+		}
+		if ((units.getFaction(id) == UnitStore.AI ? nbrOfAI : nbrOfUser) == 0) { //the last of its team
+			if (events.hasListeners(GameOver.class)) {
+				events.publish(new GameOver(nbrOfUser > 0 ? 1 : nbrOfAI > 0 ? 2 : 3));
+			}
+			events.endOfTurn();
+		}
+	}
+	
+	/**
+	 * Puts a unit on a tile, clearing the tile it stood on, and updates the indexes once.
+	 * 
+	 * @param id - the unit
+	 * @param cell - the index of the tile to put it on
+	 */
+	private void place(int id, int cell) {
+		int pos = units.getPos(id);
+		if (pos != UnitStore.NO_POS) {
+			int old = board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos));
+			if (board.getOccupant(old) == id) {
+				board.setOccupant(old, Board.NONE);
+			}
+		}
+		units.setPos(id, board.rowOf(cell), board.colOf(cell));
+		board.setOccupant(cell, id);
+		reindex(id);
+	}
+	
+	/**
+	 * Plays one action of a character as the controller would, but without printing anything, 
+	 * and returns a record that undo() uses to take the action back. Moves, damage and deaths 
+	 * are published to whoever listens, which in a game without a view costs nothing. A move 
+	 * puts the character straight on its destination, an attack deals the attacker's attack 
+	 * less the target's defense and kills the target when its health runs out, and both stop 
+	 * the character defending. Applying actions and undoing them in the 
+	 * reverse order leaves the game exactly as it was, so a search can walk many positions on 
+	 * the live game without copying it.
+	 * 
+	 * The low bits of the record hold the tile the character left for a move, and the id of 
+	 * the target and the direction of the attack for an attack.
+	 * 
+	 * @param c - a living Character on the board
+	 * @param action - a packed Action
+	 * @return the undo record, see Undo
+	 * @throws IllegalArgumentException if the character is not on the board, a move does not 
+	 * 		end on a free tile, or an attack is not on an enemy on one of the eight tiles around it
+	 */
+	long apply(Character c, int action) {
+		int id = idOf(c);
+		if (id == Board.NONE || units.getPos(id) == UnitStore.NO_POS) {
+			throw new IllegalArgumentException("Character is not on the board");
+		}
+		boolean defending = units.isDefending(id);
+		int target = Action.cellOf(action);
+		switch (Action.kindOf(action)) {
+			case Action.MOVE: {
+				if (target >= board.size() || !board.isFree(target)) {
+					throw new IllegalArgumentException("Cannot move onto tile " + target);
+				}
+				int from = board.index(c.getRow(), c.getCol());
+				units.setDefending(id, false);
+				place(id, target);
+				log.record(GameLog.MOVE, id, UnitStore.pack(board.rowOf(from), board.colOf(from)), units.getPos(id));
+				if (events.hasListeners(UnitMoved.class)) {
+					int[] route = {UnitStore.pack(board.rowOf(from), board.colOf(from)), units.getPos(id)};
+					events.publish(new UnitMoved(c, route));
+				}
+				return Undo.of(Action.MOVE, defending, id, from);
+			}
+			case Action.ATTACK: {
+				int dir = directionOf(c.getRow(), c.getCol(), target);
+				int attacked = dir < 0 ? Board.NONE : board.getOccupant(target);
+				if (attacked == Board.NONE || units.getFaction(attacked) == units.getFaction(id)) {
+					throw new IllegalArgumentException("No enemy to attack on tile " + target);
+				}
+				units.setDefending(id, false);
+				updateMasks(id);
+				int damage = damage(id, attacked);
+				units.lowerHP(attacked, damage);
+				log.record(GameLog.ATTACK, id, attacked, damage);
+				log.record(GameLog.DAMAGE, attacked, damage, units.getHP(attacked));
+				if (events.hasListeners(UnitDamaged.class)) {
+					events.publish(new UnitDamaged(handles[attacked], damage, units.getHP(attacked)));
+				}
+				if (units.getHP(attacked) <= 0) {
+					kill(attacked);
+				}
+				return Undo.of(Action.ATTACK, defending, id, ((long) attacked << 3) | dir);
+			}
+			default:
+				units.setDefending(id, true);
+				updateMasks(id);
+				log.record(GameLog.DEFEND, id, 0, 0);
+				return Undo.of(Action.DEFEND, defending, id, 0);
+		}
+	}
+	
+	/**
+	 * Takes back an action played with apply(). Actions must be undone in the reverse order 
+	 * they were applied in. Nothing is published, so searches should play on a model no one 
+	 * listens to.
+	 * 
+	 * @param record - the record apply() returned for the action
+	 */
+	void undo(long record) {
+		int id = Undo.unitOf(record);
+		long detail = Undo.detailOf(record);
+		switch (Undo.kindOf(record)) {
+			case Action.MOVE:
+				units.setDefending(id, Undo.wasDefending(record));
+				place(id, (int) detail);
+				break;
+			case Action.ATTACK:
+				int attacked = (int) (detail >>> 3);
+				int dir = (int) (detail & 7);
+				units.setDefending(id, Undo.wasDefending(record));
+				updateMasks(id);
+				units.lowerHP(attacked, -damage(id, attacked));
+				if (!units.isAlive(attacked)) {
+					int pos = units.getPos(id);
+					units.revive(attacked);
+					characters[attacked] = handles[attacked];
+					if (units.getFaction(attacked) == UnitStore.AI) {
+						nbrOfAI++;
+					} else {
+						nbrOfUser++;
+					}
+					place(attacked, board.index(UnitStore.rowOf(pos) + AROUND_ROW[dir], 
+							UnitStore.colOf(pos) + AROUND_COL[dir]));
+				}
+				break;
+			default:
+				units.setDefending(id, Undo.wasDefending(record));
+				updateMasks(id);
+		}
+	}
+	
+	/**
+	 * Brings this game level with another game played from the same configuration, for a search 
+	 * that plays ahead on a copy of its own while the other game goes on. Only the units that 
+	 * differ are changed, so a copy kept in step costs a few updates a turn. Units that died 
+	 * here are not brought back.
+	 * 
+	 * @param live - a game made from the same GameConfig, in which no unit dead here is alive
+	 */
+	void mirror(RPGModel live) {
+		UnitStore theirs = live.units;
+		// take every unit that left its tile off the board first, so no tile is taken twice
+		for (int id = 0; id < characters.length; id++) {
+			if (units.isAlive(id) && !theirs.isAlive(id)) {
+				kill(id);
+			} else if (units.getPos(id) != theirs.getPos(id)) {
+				takeOffBoard(id);
+			}
+		}
+		for (int id = 0; id < characters.length; id++) {
+			if (!units.isAlive(id)) {
+				continue;
+			}
+			int pos = theirs.getPos(id);
+			if (units.getPos(id) != pos && pos != UnitStore.NO_POS) {
+				place(id, board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos)));
+			}
+			units.lowerHP(id, units.getHP(id) - theirs.getHP(id));
+			units.setDefending(id, theirs.isDefending(id));
+			updateMasks(id);
+		}
+	}
+	
+	/**
+	 * @param attacker - the id of the attacking unit
+	 * @param attacked - the id of the unit attacked
+	 * @return the health the attacked unit loses, the attack less the defense if it is defending
+	 */
+	private int damage(int attacker, int attacked) {
+		return units.getAttack(attacker) - (units.isDefending(attacked) ? units.getDefense(attacked) : 0);
+	}
+	
+	/**
+	 * @param row - the row of a tile
+	 * @param col - the column of the tile
+	 * @param cell - the index of another tile
+	 * @return the direction of the other tile among the eight tiles around the first, or -1
+	 */
+	private int directionOf(int row, int col, int cell) {
+		for (int dir = 0; dir < AROUND_ROW.length; dir++) {
+			int r = row + AROUND_ROW[dir];
+			int c = col + AROUND_COL[dir];
+			if (board.inBounds(r, c) && board.index(r, c) == cell) {
+				return dir;
+			}
+		}
+		return -1;
 	}
 	
 	/**
@@ -226,14 +847,299 @@ public class RPGModel extends Observable {
 	 * @return an integer array containing the coordinates, [row, col]
 	 */
 	public int[] getCharLoc(Character c) {
-		for (int i=0; i<ROWS; i++) {
-			for (int j=0; j<COLS; j++) {
-				if (map[i][j] != null && map[i][j].equals(c)) {
-					return new int[] {i,j};
-				}
-			}
+		int id = idOf(c);
+		if (id == Board.NONE || units.getPos(id) == UnitStore.NO_POS) {
+			return new int[]{-1,-1};
+		}
+		int pos = units.getPos(id);
+		return new int[] {UnitStore.rowOf(pos), UnitStore.colOf(pos)};
+	}
+	
+	/**
+	 * Returns a 64 bit hash of the position: the health, tile, defense and life of every 
+	 * character. The hash is kept up to date as the game changes, so reading it is free, and 
+	 * the game has the same hash whenever its characters are back in the same position.
+	 * 
+	 * @return the Zobrist hash of the position
+	 */
+	public long getHash() {
+		return units.getHash();
+	}
+	
+	/**
+	 * Returns the living character with a given id.
+	 * 
+	 * @param id - the id of the character
+	 * @return the Character, or null if it has been killed
+	 */
+	public Character getCharacter(int id) {
+		return characters[id];
+	}
+	
+	/**
+	 * Finds the tiles a character can move to. A character walks up to the move range of the
+	 * game along rows and columns, and cannot walk over obstacles or other characters.
+	 * 
+	 * @param c - a Character
+	 * @return a bitset of the reachable tiles, where the tile at (row, col) is bit 
+	 * 		(row * cols + col) % 64 of word (row * cols + col) / 64. Empty if the character is dead.
+	 */
+	public long[] getMoveRange(Character c) {
+		return range(c, config.getMoveRange(), false, false);
+	}
+	
+	/**
+	 * Finds the tiles a character can attack: the tiles one step away along a row or column
+	 * that have no obstacle on them. The character's own tile is included, so an attack 
+	 * can always be given up by choosing it.
+	 * 
+	 * @param c - a Character
+	 * @return a bitset of the tiles in range, laid out as in getMoveRange()
+	 */
+	public long[] getAttackRange(Character c) {
+		return range(c, ATTACK_RANGE, true, true);
+	}
+	
+	/**
+	 * Checks whether a tile is in a bitset returned by getMoveRange() or getAttackRange().
+	 * 
+	 * @param tiles - the bitset of tiles
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return true if the tile is on the board and in the bitset
+	 */
+	public boolean inRange(long[] tiles, int row, int col) {
+		if (!board.inBounds(row, col)) {
+			return false;
+		}
+		int cell = board.index(row, col);
+		return (tiles[cell >>> 6] & (1L << cell)) != 0;
+	}
+	
+	/**
+	 * Floods outwards from a character's tile over the bitboards and collects the tiles reached.
+	 * 
+	 * @param c - the character searched from
+	 * @param steps - the most steps from the character's tile
+	 * @param throughUnits - true if the flood crosses tiles with characters on them
+	 * @param withStart - true to include the character's tile
+	 * @return the bitset of tiles reached
+	 */
+	private long[] range(Character c, int steps, boolean throughUnits, boolean withStart) {
+		int id = idOf(c);
+		if (id == Board.NONE || units.getPos(id) == UnitStore.NO_POS) {
+			return new long[(board.size() + 63) >>> 6];
+		}
+		int start = board.index(c.getRow(), c.getCol());
+		walkTiles.copyFrom(passableTiles);
+		if (!throughUnits) {
+			walkTiles.andNot(teamTiles[UnitStore.PLAYER]);
+			walkTiles.andNot(teamTiles[UnitStore.AI]);
 		}
-		return new int[]{-1,-1};
+		rangeTiles.clearAll();
+		rangeTiles.set(start);
+		rangeTiles.flood(walkTiles, steps);
+		if (!withStart) {
+			rangeTiles.clear(start);
+		}
+		return rangeTiles.words().clone();
+	}
+	
+	/**
+	 * Finds the tiles the characters of a team can attack next turn without moving.
+	 * 
+	 * @param team - "player" or "AI", the attacking team
+	 * @return a bitset of the tiles, laid out as in getMoveRange()
+	 */
+	public long[] getThreatTiles(String team) {
+		return threats[UnitStore.factionOf(team)].getTiles().words().clone();
+	}
+	
+	/**
+	 * Estimates the damage a character on a tile would take next turn if every character of 
+	 * a team that can reach the tile attacked it.
+	 * 
+	 * @param team - "player" or "AI", the attacking team
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @param defense - the defense of the character on the tile, 0 if it is not defending
+	 * @return the total damage, 0 if the tile is safe from the team
+	 */
+	public int getDamageAt(String team, int row, int col, int defense) {
+		return threats[UnitStore.factionOf(team)].damageTo(board.index(row, col), defense);
+	}
+	
+	/**
+	 * Finds the living characters of a team that are closest to a tile, measured in steps
+	 * along rows and columns. Ties go to the character with the lower id.
+	 * 
+	 * @param team - "player" or "AI", the team to search
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @param ids - array to fill with the ids of the characters found, closest first
+	 * @return the number of characters found, at most ids.length
+	 */
+	public int findNearest(String team, int row, int col, int[] ids) {
+		return spatial.nearest(UnitStore.factionOf(team), row, col, ids.length, ids);
+	}
+	
+	/**
+	 * Finds the living characters of a team within a number of steps of a tile.
+	 * 
+	 * @param team - "player" or "AI", the team to search
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @param radius - the largest number of steps along rows and columns to include
+	 * @param ids - array to fill with the ids of the characters found
+	 * @return the number of characters found; only the first ids.length are written
+	 */
+	public int findWithin(String team, int row, int col, int radius, int[] ids) {
+		return spatial.within(UnitStore.factionOf(team), row, col, radius, ids);
+	}
+	
+	/**
+	 * Finds the living enemy closest to a character.
+	 * 
+	 * @param c - a Character on the map
+	 * @return the closest Character of the other team, or null if there is none
+	 */
+	public Character nearestEnemy(Character c) {
+		byte enemy = c.getTeam().equals("AI") ? UnitStore.PLAYER : UnitStore.AI;
+		if (spatial.nearest(enemy, c.getRow(), c.getCol(), 1, nearestScratch) == 0) {
+			return null;
+		}
+		return characters[nearestScratch[0]];
+	}
+	
+	/**
+	 * Returns the board of the game, for the searches that read it directly. Callers must not 
+	 * change it.
+	 * 
+	 * @return the Board of the game
+	 */
+	Board getBoard() {
+		return board;
+	}
+	
+	/**
+	 * Returns the stats and positions of every unit, for the searches that read them directly. 
+	 * Callers must not change them.
+	 * 
+	 * @return the UnitStore of the game
+	 */
+	UnitStore getUnits() {
+		return units;
+	}
+	
+	/**
+	 * Returns the shortest path search of the board. It is shared by everyone using this model 
+	 * and keeps its results only until the next search.
+	 * 
+	 * @return the Pathfinder of the board
+	 */
+	Pathfinder getPathfinder() {
+		return pathfinder;
+	}
+	
+	/**
+	 * Returns the tiles of a team's living characters. The bitboard is kept up to date by the
+	 * model and must not be changed by the caller.
+	 * 
+	 * @param team - "player" or "AI"
+	 * @return the BitBoard of the team's tiles
+	 */
+	BitBoard getTeamTiles(String team) {
+		return teamTiles[UnitStore.factionOf(team)];
+	}
+	
+	/**
+	 * Returns the tiles of characters that are defending, kept up to date by the model.
+	 * 
+	 * @return the BitBoard of the defending characters' tiles
+	 */
+	BitBoard getDefendingTiles() {
+		return defendingTiles;
+	}
+	
+	/**
+	 * Returns the threat map of a team: the tiles its characters can attack next turn.
+	 * Kept up to date on every move and kill.
+	 * 
+	 * @param team - "player" or "AI", the team whose attacks are mapped
+	 * @return the ThreatMap of the team
+	 */
+	ThreatMap getThreatMap(String team) {
+		return threats[UnitStore.factionOf(team)];
+	}
+	
+	/**
+	 * Returns the range finder shared by the controller and the model. Its results are only 
+	 * valid until the next search.
+	 * 
+	 * @return the RangeFinder of this board
+	 */
+	RangeFinder getRangeFinder() {
+		return rangeFinder;
+	}
+	
+	/**
+	 * Returns the distance field towards a team: for every tile, the steps to the closest 
+	 * living character of that team. It is built the first time it is asked for, and brought 
+	 * up to date with the moves and kills since whenever it is read.
+	 * 
+	 * @param team - "player" or "AI", the team the distances are measured to
+	 * @return the FlowField of the team
+	 */
+	FlowField getFlowField(String team) {
+		byte faction = UnitStore.factionOf(team);
+		if (fields[faction] == null) {
+			fields[faction] = new FlowField(board, units, faction);
+			fields[faction].rebuild();
+		}
+		return fields[faction];
+	}
+	
+	/**
+	 * Returns the row of a tile index used by the board and its searches.
+	 * 
+	 * @param cell the index of the tile
+	 * @return the row of the tile
+	 */
+	int rowOf(int cell) {
+		return board.rowOf(cell);
+	}
+	
+	/**
+	 * Returns the column of a tile index used by the board and its searches.
+	 * 
+	 * @param cell the index of the tile
+	 * @return the column of the tile
+	 */
+	int colOf(int cell) {
+		return board.colOf(cell);
+	}
+	
+	/**
+	 * Returns the tile index of a coordinate, as used by the board and its searches.
+	 * 
+	 * @param row coordinate of the tile
+	 * @param col coordinate of the tile
+	 * @return the index of the tile
+	 */
+	int cellOf(int row, int col) {
+		return board.index(row, col);
+	}
+	
+	/**
+	 * Returns the number a character is shown with, as in "Vampire 2" or "Werewolf 4". 
+	 * Both teams are numbered from 1.
+	 * 
+	 * @param c - a Character of this game
+	 * @return the character's number within its team
+	 */
+	public int getDisplayNumber(Character c) {
+		int perSide = config.getUnitsPerSide();
+		return c.getId() < perSide ? c.getId() + 1 : c.getId() - perSide + 1;
 	}
 	
 	/**
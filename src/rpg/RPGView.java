@@ -1,19 +1,19 @@
 package rpg;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
 
 import javafx.animation.PathTransition;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
-import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -25,11 +25,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.Border;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.BorderStroke;
-import javafx.scene.layout.BorderStrokeStyle;
-import javafx.scene.layout.BorderWidths;
 import javafx.scene.layout.ColumnConstraints;
 import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.GridPane;
@@ -48,52 +44,60 @@ import javafx.scene.text.TextAlignment;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 /**
- * This class draws the GUI for the game. Implements observer, 
- * observes the model. 
+ * This class draws the GUI for the game. Listens to the events 
+ * the model publishes. 
  *
  * date: 5/05/21
  */
 
-@SuppressWarnings("deprecation")
-
 /**
- * Intilizes the view and the game, extends Application and 
- * implements observable. 
+ * Intilizes the view and the game, extends Application. 
  */
-public class RPGView extends Application implements Observer {
-	private static final int ROWS = 20; //row dimension of the grid
-	private static final int COLS = 20; //column dimension of the grid
-	private static final int STARTING_PLAYERS = 5; // number of players to start
+public class RPGView extends Application {
+	private static final int BAR_WIDTH = 150; //width of the left panel, in px
+	private static final int GRID_PADDING = 8; //padding around the grid, in px
+	private static final int MAX_TILE = 40; //size of a tile on the classic board, in px
+	private static final int MAX_BOARD = 800; //largest width or height of the drawn board, in px
+	private static final int RETRY_MILLIS = 50; //wait before sending again a request the game thread had no room for
+
+	private int rows; //row dimension of the grid
+	private int cols; //column dimension of the grid
+	private int startingPlayers; // number of players to start
+	private int tile; //size of a tile, in px
 
 	private RPGController controller; //store the controller
-	private GridPane grid; //store the grid of the game
+	private SimulationThread simulation; //plays the game away from the thread drawing it
+	private SnapshotBuffer snapshots; //the game as the game thread last published it
+	private Character[] vampires; //the player's characters, by id, only handed back in orders
+	private BoardRenderer board; //paints the tiles of the grid on a single canvas
+	private StackPane boardPane; //holds the canvas of the board, with a margin around it
 	private BorderPane mainPane; //contains the entire GUI
 	private VBox userBar; //left partition of the GUI, contains the buttons of the game
 	private Button makePlayBtn; //button to perform the player's actions
 	private Button charBtn[]; //button for choosing the actions of each character
-	private StackPane[][] squares; //store the tiles of the grid
 	private Group group; //canvas for character animations
 	private ImageView[] sprite; //store circles which represent the characters on the map
-	private Rectangle[][] moveTiles; //these tiles present available movement squares to the player
-	private Rectangle[][] atkTiles; //these tiles present available attack squares to the player
+	private int choosing; //layer of the tiles the player is choosing from, BoardRenderer.MOVE or ATTACK
+	private IntConsumer chosen; //called with the tile the player chooses, or null if not choosing
+	private boolean showThreats; //whether the threat tiles are drawn
 	private Text[] healthLabel;
 
 	/**
-	 * Updates the view, having been notified by the Observable model
+	 * Listens to the events of the game, which the game thread hands to this thread. Each event 
+	 * redraws only what it changed: a move animates one sprite, damage updates one health label 
+	 * and a death removes one sprite.
 	 */
-	@Override
-	public void update(Observable o, Object obj) {
-		if (obj instanceof Character[]) {
-			updateStats();
-		} else if (obj instanceof Character) {
-			animateMove((Character)obj);
-		} else if (obj instanceof Character[][]) {
+	private void listen() {
+		simulation.subscribe(UnitMoved.class, this::animateMove);
+		simulation.subscribe(UnitDamaged.class, this::showDamage);
+		simulation.subscribe(UnitKilled.class, this::removeSprite);
+		simulation.subscribe(GameOver.class, (over) -> {
 			try {
-				drawMap();
+				gameOver(over.getResult() == 1 ? "user" : over.getResult() == 2 ? "AI" : "tie");
 			} catch (FileNotFoundException e) {
 				e.printStackTrace();
 			}
-		}
+		});
 	}
 
 	/**
@@ -102,56 +106,112 @@ public class RPGView extends Application implements Observer {
 	@Override
 	public void start(Stage stage) throws Exception {
 		//initiate fields
-		sprite = new ImageView[10];
-		controller = new RPGController();
-		controller.bindObservable(this);
-		squares = new StackPane[ROWS][COLS];
-		moveTiles = new Rectangle[ROWS][COLS];
-		atkTiles = new Rectangle[ROWS][COLS];
+		GameConfig config = readConfig();
+		rows = config.getRows();
+		cols = config.getCols();
+		startingPlayers = config.getUnitsPerSide();
+		tile = Math.max(4, Math.min(MAX_TILE, MAX_BOARD / Math.max(rows, cols)));
+		sprite = new ImageView[startingPlayers*2];
+		controller = new RPGController(config);
+		// taken before the game thread starts; from then on the view reads only snapshots
+		vampires = Arrays.copyOf(controller.getCharacters(), startingPlayers);
+		readAI();
+		readLog();
+		simulation = new SimulationThread(controller, Platform::runLater);
+		snapshots = controller.getSnapshots();
+		listen();
 		mainPane = new BorderPane();
-		grid = new GridPane();
+		// the grass, terrain and tiles shown are painted on one canvas, tiles are found from the click
+		board = new BoardRenderer(controller.getMap(), tile);
+		board.getCanvas().setOnMouseClicked((event) -> clickTile(board.cellAt(event.getX(), event.getY())));
+		boardPane = new StackPane(board.getCanvas());
+		boardPane.setAlignment(Pos.TOP_LEFT);
 		group = new Group();
-		healthLabel = new Text[STARTING_PLAYERS*2];
+		healthLabel = new Text[startingPlayers*2];
 		setBG();
 		stage.setTitle("RPG");
-
-		//initiate stack panes for the grid
-		for (int i=0; i<ROWS; i++) {
-			for (int j=0; j<COLS; j++) {
-				moveTiles[i][j] = new Rectangle(38, 38);
-				moveTiles[i][j].setFill(Color.rgb(0, 191, 255, 0.7));
-				moveTiles[i][j].setVisible(false);
-				atkTiles[i][j] = new Rectangle(38, 38);
-				atkTiles[i][j].setFill(Color.rgb(255,  100,  0, 0.7));
-				atkTiles[i][j].setVisible(false);
-				squares[i][j] = new StackPane();
-				squares[i][j].setPrefSize(40, 40);
-				squares[i][j].setMaxSize(40, 40);
-				squares[i][j].getChildren().addAll(moveTiles[i][j], atkTiles[i][j]);
-				// set border of stack panes to black with transparency
-				squares[i][j].setBorder(new Border(new BorderStroke(Color.rgb(0,0,0,0.1),
-						BorderStrokeStyle.SOLID, CornerRadii.EMPTY, BorderWidths.DEFAULT)));
-				grid.add(squares[i][j], j, i);
-			}
-		}
-		mainPane.setCenter(grid);
+		mainPane.setCenter(boardPane);
 		mainPane.autosize();
 		group.getChildren().add(mainPane);
 		group.prefHeight(mainPane.getHeight());
 		group.prefWidth(mainPane.getWidth());
-		drawObstacles();
 		// add dark overlay to give a nighttime effect
 		Rectangle overlay = new Rectangle();
 		overlay.setMouseTransparent(true);
-		overlay.setHeight(grid.getHeight());
-		overlay.setWidth(grid.getWidth());
+		overlay.setHeight(boardPane.getHeight());
+		overlay.setWidth(boardPane.getWidth());
 		overlay.setFill(Color.rgb(0, 0, 100, 0.3));
-		overlay.setLayoutX(150);
+		overlay.setLayoutX(BAR_WIDTH);
 		group.getChildren().add(overlay);
 		drawMap();
 		Scene scene = new Scene(group);
 		stage.setScene(scene);
 		stage.show();
+		board.start();
+		simulation.start();
+	}
+
+	/**
+	 * Stop method that stops the game thread when the window is closed
+	 */
+	@Override
+	public void stop() {
+		simulation.stop();
+	}
+
+	/**
+	 * Read the game configuration from the named command line parameters --rows, --cols, 
+	 * --units and --move. Missing parameters fall back to the classic game.
+	 * 
+	 * @return the GameConfig to start the game with
+	 */
+	private GameConfig readConfig() {
+		GameConfig classic = GameConfig.classic();
+		Map<String, String> params = getParameters().getNamed();
+		int rows = Integer.parseInt(params.getOrDefault("rows", "" + classic.getRows()));
+		int cols = Integer.parseInt(params.getOrDefault("cols", "" + classic.getCols()));
+		int units = Integer.parseInt(params.getOrDefault("units", "" + classic.getUnitsPerSide()));
+		int move = Integer.parseInt(params.getOrDefault("move", "" + classic.getMoveRange()));
+		return new GameConfig(rows, cols, units, classic.getUnitHP(), classic.getUnitDefense(),
+				classic.getUnitAttack(), move);
+	}
+
+	/**
+	 * Read the AI to play against from the named command line parameters --ai, --budget and 
+	 * --playouts. With --ai=search the werewolves search ahead with alpha-beta for up to 
+	 * --budget milliseconds over their whole turn, and with --ai=mcts with Monte Carlo tree 
+	 * search for up to --budget milliseconds each and up to --playouts playouts. Otherwise they follow the simple rules. A searching AI 
+	 * ponders its next turn while the player plans, unless --ponder=off.
+	 */
+	private void readAI() {
+		Map<String, String> params = getParameters().getNamed();
+		controller.usePondering(!"off".equals(params.get("ponder")));
+		if ("search".equals(params.get("ai"))) {
+			controller.useSearchAI(Integer.parseInt(params.getOrDefault("budget", "1000")));
+		} else if ("mcts".equals(params.get("ai"))) {
+			controller.useMonteCarloAI(Integer.parseInt(params.getOrDefault("budget", "200")), 
+					Long.parseLong(params.getOrDefault("playouts", "0")));
+		}
+	}
+
+	/**
+	 * Read how much to log from the named command line parameters --log and --logfile. The log 
+	 * is --log=actions by default, what every character does, and can be detail, which adds 
+	 * the health left after each hit, deaths and turn ends, or off. It is printed on the console 
+	 * unless --logfile names a file to write it to.
+	 */
+	private void readLog() {
+		Map<String, String> params = getParameters().getNamed();
+		String level = params.getOrDefault("log", "actions");
+		if (params.containsKey("logfile")) {
+			try {
+				controller.getLog().setSink(LogSink.file(Paths.get(params.get("logfile"))));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		controller.getLog().setLevel(level.equals("off") ? GameLog.OFF 
+				: level.equals("detail") ? GameLog.DETAIL : GameLog.ACTIONS);
 	}
 
 	/**
@@ -161,8 +221,8 @@ public class RPGView extends Application implements Observer {
 	private void setBG() throws FileNotFoundException {
 		Background gridBG = new Background(new BackgroundFill(Color.FORESTGREEN,
 				CornerRadii.EMPTY, Insets.EMPTY));
-		grid.setPadding(new Insets(8,8,8,8));
-		grid.setBackground(gridBG);
+		boardPane.setPadding(new Insets(GRID_PADDING,GRID_PADDING,GRID_PADDING,GRID_PADDING));
+		boardPane.setBackground(gridBG);
 
 		/** Layout left pane **/
 		// create userBar to make character moves
@@ -170,13 +230,13 @@ public class RPGView extends Application implements Observer {
 		Background vboxBG = new Background(new BackgroundFill(Color.DARKGRAY,
 				CornerRadii.EMPTY, Insets.EMPTY));
 		userBar.setBackground(vboxBG);
-		userBar.setPrefWidth(150);
+		userBar.setPrefWidth(BAR_WIDTH);
 		userBar.setPrefHeight(100);
 		userBar.setPadding(new Insets(15, 15, 15, 15));
 		userBar.setAlignment(Pos.CENTER);
 		//setup characters' buttons and set their handlers
-		charBtn = new Button[STARTING_PLAYERS];
-		for (int i = 0; i < STARTING_PLAYERS; i++) {
+		charBtn = new Button[startingPlayers];
+		for (int i = 0; i < startingPlayers; i++) {
 			Label charLabel = new Label("Vampire " + (i+1));
 			charBtn[i] = new Button();
 			charBtn[i].setPrefSize(100, 50);
@@ -198,6 +258,18 @@ public class RPGView extends Application implements Observer {
 		makePlayBtn = new Button("Make Play!");
 		makePlayBtn.setOnMouseClicked((event) -> {makePlay();});
 		userBar.getChildren().add(makePlayBtn);
+		// add button to show the tiles the werewolves can attack
+		Button threatBtn = new Button("Show Threats");
+		threatBtn.setOnMouseClicked((event) -> {
+			showThreats = !showThreats;
+			threatBtn.setText(showThreats ? "Hide Threats" : "Show Threats");
+			if (showThreats) {
+				drawThreatTiles();
+			} else {
+				board.clear(BoardRenderer.THREAT);
+			}
+		});
+		userBar.getChildren().add(threatBtn);
 		mainPane.setLeft(userBar);
 
 		/** Layout right pane **/
@@ -228,9 +300,9 @@ public class RPGView extends Application implements Observer {
 		upperGrid.setPadding(new Insets(0,0,0,20));
 		lowerGrid.setPadding(new Insets(0,0,0,20));
 		rightPane.getChildren().addAll(jacobRight, container);
-		for (int i = 0; i < STARTING_PLAYERS; i++) {
+		for (int i = 0; i < startingPlayers; i++) {
 			RowConstraints r = new RowConstraints();
-			r.setPercentHeight(20);
+			r.setPercentHeight(100.0 / startingPlayers);
 			upperGrid.getRowConstraints().add(r);
 			lowerGrid.getRowConstraints().add(r);
 		}
@@ -241,10 +313,10 @@ public class RPGView extends Application implements Observer {
 			lowerGrid.getColumnConstraints().add(c);
 		}
 		// add health text
-		Character[] chars = controller.getCharacters();
-		for (int i = 0; i < 5; i++) {
+		GameSnapshot game = snapshots.acquire();
+		for (int i = 0; i < startingPlayers; i++) {
 			Text name = new Text("Vampire " + (i+1) + ":");
-			healthLabel[i] = new Text(chars[i].getHP() + "HP");
+			healthLabel[i] = new Text(game.getHP(i) + "HP");
 			healthLabel[i].setFont(Font.font("System", FontWeight.EXTRA_BOLD, 16));
 			name.setFont(Font.font("System", FontWeight.EXTRA_BOLD, 16));
 			upperGrid.add(name, 0, i);
@@ -252,16 +324,17 @@ public class RPGView extends Application implements Observer {
 			name.setTextAlignment(TextAlignment.RIGHT);
 			healthLabel[i].setTextAlignment(TextAlignment.LEFT);
 		}
-		for (int i = 5; i < 10; i++) {
-			Text name = new Text("Werewolf " + (i-4) + ":");
-			healthLabel[i] = new Text(chars[i].getHP() + "HP");
+		for (int i = startingPlayers; i < startingPlayers*2; i++) {
+			Text name = new Text("Werewolf " + (i-startingPlayers+1) + ":");
+			healthLabel[i] = new Text(game.getHP(i) + "HP");
 			healthLabel[i].setFont(Font.font("System", FontWeight.EXTRA_BOLD, 16));
 			name.setFont(Font.font("System", FontWeight.EXTRA_BOLD, 16));
-			lowerGrid.add(name, 0, i-5);
-			lowerGrid.add(healthLabel[i], 1, i-5);
+			lowerGrid.add(name, 0, i-startingPlayers);
+			lowerGrid.add(healthLabel[i], 1, i-startingPlayers);
 			name.setTextAlignment(TextAlignment.RIGHT);
 			healthLabel[i].setTextAlignment(TextAlignment.LEFT);
 		}
+		game.release();
 		openingAlert();
 	}
 
@@ -345,157 +418,145 @@ public class RPGView extends Application implements Observer {
 	 */
 	private void performAction(int i) {
 		if (i>charBtn.length-1) {
-			runAI(i);
+			send(() -> simulation.endTurn(this::aiPlayed));
+			return;
+		}
+		GameSnapshot game = snapshots.acquire();
+		boolean alive = game.isAlive(i);
+		game.release();
+		if (!alive) { //the dead have no action
+			performAction(i+1);
 			return;
 		}
-		Character current = controller.getCharacters()[i];
+		Character current = vampires[i];
 		if (charBtn[i].getText().equals("Attack")) {
 			enableAtk(current, i);
 		} else if (charBtn[i].getText().equals("Move")) {
 			enableMove(current, i);
 		} else {
-			int[] loc = controller.getCharLoc(current);
-			controller.humanTurn("def", loc[1], loc[0], 0, 0, current);
-			performAction(i+1);
+			send(() -> simulation.play(Command.defend(current), () -> {
+				redrawThreats();
+				performAction(i+1);
+			}));
 		}
 	}
 
 	/**
-	 * Run AI.
-	 * @param i - index of the AI in the characters list
+	 * Send a request to the game thread. If too many requests are waiting, try again a little 
+	 * later rather than lose it, as the player waits on every request sent.
+	 * 
+	 * @param request - sends the request, false if it was not taken
 	 */
-	private void runAI(int i) {
-		if (i > 9) {
-			for (int j=0; j<charBtn.length; j++) {
-				charBtn[j].setDisable(false);
-			}
-			makePlayBtn.setDisable(false);
-			return;
+	private void send(BooleanSupplier request) {
+		if (!request.getAsBoolean()) {
+			PauseTransition wait = new PauseTransition(Duration.millis(RETRY_MILLIS));
+			wait.setOnFinished((event) -> send(request));
+			wait.play();
 		}
-		Character[] chars = controller.getCharacters();
-		if (chars[i] != null) {
-			int[] loc = controller.getCharLoc(chars[i]);
-			String action = controller.AIturn(loc[1], loc[0], chars[i]);
-			if (action.equals("def") ||  action.equals("atk")) {
-				runAI(i+1);
-			}
-		} else {
-			runAI(i+1);
+	}
+
+	/**
+	 * Give the controls back to the player once the AI has played its turn on the game thread.
+	 */
+	private void aiPlayed() {
+		redrawThreats();
+		for (int j=0; j<charBtn.length; j++) {
+			charBtn[j].setDisable(false);
 		}
+		makePlayBtn.setDisable(false);
 	}
 
 	/**
-	 * Present the tiles in which a character can move and set its handlers.
-	 * @param c - the character being moved
-	 * @param n - the index of the current character performing the action
+	 * Redraw the threat tiles, if they are shown, once the game thread has played a request.
 	 */
-	private void enableMove(Character c, int n) {
-		int[] loc = controller.getCharLoc(c);
-		int row = loc[0];
-		int col = loc[1];
-
-		drawMoveTiles(col, row);
-		//set mouseclick handler for the grid
-		//this handler places the player's piece if the move is valid and then advances to the computer's turn.
-		grid.setOnMouseClicked((event)-> {
-			double x = event.getX();
-			double y = event.getY();
-			for (int i=0; i<ROWS; i++) {
-				for (int j=0; j<COLS; j++) {
-					if (squares[i][j].getBoundsInParent().contains(new Point2D(x, y)) && moveTiles[i][j].isVisible()) {
-						if (controller.humanTurn("move", col, row, i, j, c)) {
-							((GridPane)event.getSource()).setOnMouseClicked(null);
-							setInvisible(moveTiles);
-							performAction(n+1);
-						}
-					}
-				}
-			}
-			;});
+	private void redrawThreats() {
+		if (showThreats) {
+			drawThreatTiles();
+		}
 	}
 
 	/**
-	 * Draw the tiles that are availble for movement of a character.
-	 * 
-	 * @param x - the x coordinate of the character
-	 * @param y - the y coordinate of the character
+	 * Present the tiles in which a character can move and wait for the player to choose one.
+	 * @param c - the character being moved
+	 * @param n - the index of the current character performing the action
 	 */
-	private void drawMoveTiles(int x, int y) {
-		drawTilesHelper(x, y, 4, moveTiles);
+	private void enableMove(Character c, int n) {
+		send(() -> simulation.range(c, false, (tiles) -> {
+			board.show(BoardRenderer.MOVE, tiles);
+			chooseTile(BoardRenderer.MOVE, (cell) -> send(() -> simulation.play(Command.move(c, cell/cols, cell%cols), () -> {
+				redrawThreats();
+				performAction(n+1);
+			})));
+		}));
 	}
 
 	/**
-	 * Present the tiles in which a character can atk and set its handlers.
+	 * Present the tiles in which a character can atk and wait for the player to choose one.
 	 * @param c - the character being moved
 	 * @param n - the index of the current character performing the action
 	 */
 	private void enableAtk(Character c, int n) {
-		int[] loc = controller.getCharLoc(c);
-		int row = loc[0];
-		int col = loc[1];
-
-		drawAtkTiles(col, row);
-		//set mouseclick handler for the grid
-		//this handler places the player's piece if the move is valid and then advances to the computer's turn.
-		grid.setOnMouseClicked((event)-> {
-			double x = event.getX();
-			double y = event.getY();
-
-			for (int i=0; i<ROWS; i++) {
-				for (int j=0; j<COLS; j++) {
-					if (squares[i][j].getBoundsInParent().contains(new Point2D(x, y)) && atkTiles[i][j].isVisible()) {
-						if (controller.humanTurn("atk", col, row, i, j, c)) {
-							((GridPane)event.getSource()).setOnMouseClicked(null);
-							setInvisible(atkTiles);
-							performAction(n+1);
-						}
-					}
-				}
-			}
-			;});
+		send(() -> simulation.range(c, true, (tiles) -> {
+			board.show(BoardRenderer.ATTACK, tiles);
+			chooseTile(BoardRenderer.ATTACK, (cell) -> send(() -> simulation.play(Command.attack(c, cell/cols, cell%cols), () -> {
+				redrawThreats();
+				performAction(n+1);
+			})));
+		}));
 	}
 
 	/**
-	 * Draw the tiles that are available for attack of a character.
+	 * Let the player choose one of the tiles shown on a layer.
 	 * 
-	 * @param x - the x coordinate of the character
-	 * @param y - the y coordinate of the character
+	 * @param layer - BoardRenderer.MOVE or ATTACK, the tiles to choose from
+	 * @param then - called with the tile chosen, as row * cols + col, once the tiles are hidden
 	 */
-	private void drawAtkTiles(int x, int y) {
-		drawTilesHelper(x, y, 2, atkTiles);
+	private void chooseTile(int layer, IntConsumer then) {
+		choosing = layer;
+		chosen = then;
 	}
 
 	/**
-	 * Helper for drawing move and atk tiles.
+	 * Handle a click on the board: the tile chosen if the player is choosing one of the tiles 
+	 * shown, otherwise a word about the terrain if it is a mountain or water.
 	 * 
-	 * @param x - x coordinate of the character
-	 * @param y - y coordinate of the character
-	 * @param distance
-	 * @param tiles
+	 * @param cell - the tile clicked, as row * cols + col, or -1 if off the board
 	 */
-	private void drawTilesHelper(int x, int y, int distance, Rectangle[][] tiles) {
-		//check if coordinates are within bound or if distance is 0
-		if (distance == 0 || x<0 || x>=ROWS || y<0 || y>=COLS) return;
-
-		if (tiles.equals(moveTiles) && controller.getMap()[y][x] != null) {
-		} else {
-			tiles[y][x].setVisible(true);
+	private void clickTile(int cell) {
+		if (cell < 0) {
+			return;
+		}
+		if (chosen != null && board.isShown(choosing, cell)) {
+			IntConsumer then = chosen;
+			chosen = null;
+			board.clear(choosing);
+			then.accept(cell);
+		} else if (board.getTerrain(cell) == BoardRenderer.MOUNTAIN) {
+			terrainAlert("Rough terrain... shouldn't go there.", "rpg/mountain.png");
+		} else if (board.getTerrain(cell) == BoardRenderer.WATER) {
+			terrainAlert("There's water... can't go there.", "rpg/water.png");
 		}
-		drawTilesHelper(x+1, y, distance-1, tiles); //move right
-		drawTilesHelper(x-1, y, distance-1, tiles); //move left
-		drawTilesHelper(x, y+1, distance-1, tiles); //move down
-		drawTilesHelper(x, y-1, distance-1, tiles); //move up
 	}
 
 	/**
-	 * Make a grid of tiles invisible.
-	 * @param tiles to make invisible
+	 * Draw the tiles the werewolves can attack next turn, darker where more damage can be dealt 
+	 * to a vampire that is not defending, as of the last snapshot of the game.
 	 */
-	private void setInvisible(Rectangle[][] tiles) {
-		for (int i=0; i<ROWS; i++) {
-			for (int j=0; j<COLS; j++) {
-				tiles[i][j].setVisible(false);
+	private void drawThreatTiles() {
+		GameSnapshot game = snapshots.acquire();
+		try {
+			long[] threats = game.getThreats();
+			int hp = controller.getConfig().getUnitHP();
+			for (int w=0; w<threats.length; w++) {
+				for (long bits = threats[w]; bits != 0; bits &= bits-1) {
+					int cell = w*64 + Long.numberOfTrailingZeros(bits);
+					int damage = game.getDamage(cell/cols, cell%cols);
+					board.setThreatOpacity(cell, Math.min(0.7, 0.2 + 0.5*damage/hp));
+				}
 			}
+			board.show(BoardRenderer.THREAT, threats);
+		} finally {
+			game.release();
 		}
 	}
 
@@ -504,36 +565,38 @@ public class RPGView extends Application implements Observer {
 	 * @throws FileNotFoundException 
 	 */
 	private void drawMap() throws FileNotFoundException {
-		Character[] character = controller.getCharacters();
-		for (int i = 0; i<character.length; i++) {
-			if (character[i] != null && sprite[i] == null) { //initiate character sprites
+		GameSnapshot game = snapshots.acquire();
+		for (int i = 0; i<sprite.length; i++) {
+			if (game.isAlive(i) && sprite[i] == null) { //initiate character sprites
 				sprite[i] = new ImageView();
 				sprite[i].setMouseTransparent(true);
+				sprite[i].setFitWidth(tile);
+				sprite[i].setFitHeight(tile);
 				group.getChildren().add(sprite[i]);
-				if (character[i].getTeam().equals("player")) {
+				if (i < startingPlayers) { //the vampires come first
 					sprite[i].setImage(new Image("rpg/vampire_sprite.png"));
-				} else if (character[i].getTeam().equals("AI")){
+				} else {
 					sprite[i].setImage(new Image("rpg/werewolf_sprite.png"));
 				}
-				int[] loc = controller.getCharLoc(character[i]);
-				sprite[i].setX(getCharCoordX(loc[1])-20);
-				sprite[i].setY(getCharCoordY(loc[0])-20);
-			} else if (character[i] == null && sprite[i] != null) { //delete sprite if character dies
-				sprite[i].setVisible(false);
-				sprite[i] = null;
-				// check if game is over after removing sprite
-				int gameResult = controller.isOver();
-				if (gameResult > 0) {
-					if (gameResult == 1) {
-						gameOver("user");
-					} else if (gameResult == 2) {
-						gameOver("AI");
-					} else {
-						gameOver("tie");
-					}
-				}
-			} 
+				sprite[i].setX(getCharCoordX(game.getCol(i))-tile/2);
+				sprite[i].setY(getCharCoordY(game.getRow(i))-tile/2);
+			}
+		}
+		game.release();
+	}
+
+	/**
+	 * Delete the sprite of a character that died
+	 * 
+	 * @param killed - the death of the character
+	 */
+	private void removeSprite(UnitKilled killed) {
+		int i = killed.getCharacter().getId();
+		if (sprite[i] != null) {
+			sprite[i].setVisible(false);
+			sprite[i] = null;
 		}
+		healthLabel[i].setText(0 + "HP");
 	}
 
 	/**
@@ -576,83 +639,39 @@ public class RPGView extends Application implements Observer {
 		imageView.setImage(image);
 		a.setGraphic(imageView);
 		a.showAndWait();
+		simulation.stop();
+		controller.getLog().close();
 		System.exit(0);
 	}
 
 	/**
-	 * Draw the obstacles features onto the map
+	 * Show an alert about a tile of terrain that was clicked.
+	 * 
+	 * @param message - what to say about the terrain
+	 * @param picture - the picture of the terrain
 	 */
-	private void drawObstacles() { 
-		Character[][] map = controller.getMap();	
-		for (int i=0; i< map.length; i++) {
-			for (int j=0; j<map[i].length; j++) {
-				if (map[i][j] != null) {
-					if (map[i][j].getTeam().equals("mountain")) { 
-						double x = getCharCoordX(j);
-						double y = getCharCoordY(i);
-						ImageView mountain = new ImageView("rpg/mountain.png"); 
-						mountain.setX(x-20);
-						mountain.setY(y-20);
-						mountain.setOnMouseClicked((event) -> {
-							Alert a = new Alert(AlertType.INFORMATION, "Rough terrain... shouldn't go there.");
-							a.setHeaderText("");
-							ImageView t = new ImageView("rpg/mountain.png"); 
-							t.setX(x);
-							t.setY(y);
-							a.setGraphic(t);
-							a.showAndWait();
-						});
-						group.getChildren().add(mountain);
-					}
-					else if(map[i][j].getTeam().equals("water")) { 
-						double x = getCharCoordX(j);
-						double y = getCharCoordY(i);
-						ImageView water = new ImageView("rpg/water.png"); 
-						water.setX(x-20);
-						water.setY(y-20);
-						water.setOnMouseClicked((event) -> {
-							Alert a = new Alert(AlertType.INFORMATION, "There's water... can't go there.");
-							a.setHeaderText("");
-							ImageView e = new ImageView("rpg/water.png"); 
-							e.setX(x);
-							e.setY(y);
-							a.setGraphic(e);
-							a.showAndWait();
-						});
-						group.getChildren().add(water);
-					}
-				}
-			}
-		}
+	private void terrainAlert(String message, String picture) {
+		Alert a = new Alert(AlertType.INFORMATION, message);
+		a.setHeaderText("");
+		a.setGraphic(new ImageView(picture));
+		a.showAndWait();
 	}
 
 	/**
-	 * Animate sprite movement.
+	 * Animate sprite movement along the path the model moved the character on.
 	 * 
-	 * @param c - the sprite being moved
-	 * @param newRow - destination row
-	 * @param newCol - destination column
+	 * @param move - the move to animate
 	 */
-	private void animateMove(Character ch) {
-		Character[][] map = controller.getMap();
-		Character[] chs = controller.getCharacters();
-		int spriteIndex = 0; 
-		for (int i = 0; i<sprite.length; i++) {
-			if (chs[i] != null && chs[i].equals(ch)) {
-				spriteIndex = i;
-			}
-		}
-		int[] loc = new int[] {controller.getCharacters()[spriteIndex].pos.y, controller.getCharacters()[spriteIndex].pos.x};
+	private void animateMove(UnitMoved move) {
+		Character ch = move.getCharacter();
+		int spriteIndex = ch.getId(); 
+		int[] loc = new int[] {move.getRow(move.getLength()-1), move.getCol(move.getLength()-1)};
 		ImageView c = sprite[spriteIndex];
-		int i = getSpriteCoordRow(c.getY()+20);
-		int j = getSpriteCoordCol(c.getX()+20);
-		List<Integer[]> l = getShortestPath(map, i, j, loc[0], loc[1], ch.getTeam());
 		Path path = new Path();
-		path.getElements().add(new MoveTo(c.getX()+20, c.getY()+20));
+		path.getElements().add(new MoveTo(c.getX()+tile/2, c.getY()+tile/2));
 		int duration = 0;
-		while (!l.isEmpty()) {
-			Integer[] next = l.remove(0);
-			path.getElements().add(new LineTo(getCharCoordX(next[1]), getCharCoordY(next[0])));
+		for (int k = 1; k < move.getLength(); k++) {
+			path.getElements().add(new LineTo(getCharCoordX(move.getCol(k)), getCharCoordY(move.getRow(k))));
 			duration += 150;
 		}
 		PathTransition pTrans = new PathTransition();
@@ -663,126 +682,20 @@ public class RPGView extends Application implements Observer {
 		pTrans.setOnFinished((event) -> {
 			pTrans.setNode(null);
 			pTrans.stop();
-			c.setY(getCharCoordY(loc[0])-20);
-			c.setX(getCharCoordX(loc[1])-20);
+			c.setY(getCharCoordY(loc[0])-tile/2);
+			c.setX(getCharCoordX(loc[1])-tile/2);
 			c.setTranslateX(0);
 			c.setTranslateY(0);
-			if (ch.getTeam().equals("AI")) {
-				for (int k = 5; k < chs.length; k++) {
-					if (chs[k] != null && chs[k].equals(ch)) {
-						runAI(k+1);
-					}
-				}
-			}
 		});
 	}
 
-
 	/**
-	 * Find the shortest path from a source point to a destination point.
+	 * Update the HP of a character that was hit
 	 * 
-	 * @param map - represented by a Character grid
-	 * @param i - source row
-	 * @param j - source column
-	 * @param i2 - destination row
-	 * @param j2 - destination column
-	 * @return a list of coordinates that form the path
+	 * @param hit - the damage the character took
 	 */
-	private List<Integer[]> getShortestPath(Character[][] map, int r, int c, int r2, int c2, String team) {
-		List<Integer[]> path = new ArrayList<Integer[]>();
-		boolean[][] visited = new boolean[ROWS][COLS];
-		Loc[][] p = new Loc[ROWS][COLS];
-		int[][] d = new int[ROWS][COLS];
-		Deque<Loc> q = new ArrayDeque<>();
-
-		for (int i = 0; i < ROWS; i++) {
-			Arrays.fill(d[i], Integer.MAX_VALUE);
-		}
-
-		visited[r][c] = true;
-		Loc s = new Loc(r, c);
-		d[r][c] = 0;
-		while (s.y != r2 || s.x != c2) {
-			int dist = d[s.y][s.x] + 1;
-			if (s.y-1 >= 0 && !visited[s.y-1][s.x] && (map[s.y-1][s.x] == null || map[s.y-1][s.x].getTeam().equals(team))) {
-				if (p[s.y-1][s.x] == null) {
-					d[s.y-1][s.x] = dist;
-					p[s.y-1][s.x] = s;
-					q.addLast(new Loc(s.y-1, s.x));
-				} else {
-					if (dist < d[s.y-1][s.x]) {
-						d[s.y-1][s.x] = dist;
-					}
-				}
-			}
-			if (s.x+1 < COLS && !visited[s.y][s.x+1] && (map[s.y][s.x+1] == null || map[s.y][s.x+1].getTeam().equals(team))) {
-				if (p[s.y][s.x+1] == null) {
-					d[s.y][s.x+1] = dist;
-					p[s.y][s.x+1] = s;
-					q.addLast(new Loc(s.y, s.x+1));
-				} else {
-					if (dist < d[s.y][s.x+1]) {
-						d[s.y][s.x+1] = dist;
-					}
-				}
-			}
-			if (s.y+1 < ROWS && !visited[s.y+1][s.x] && (map[s.y+1][s.x] == null || map[s.y+1][s.x].getTeam().equals(team))) {
-				if (p[s.y+1][s.x] == null) {
-					d[s.y+1][s.x] = dist;
-					p[s.y+1][s.x] = s;
-					q.addLast(new Loc(s.y+1, s.x));
-				} else {
-					if (dist < d[s.y+1][s.x]) {
-						d[s.y+1][s.x] = dist;
-					}
-				}
-			}
-			if (s.x-1 >= 0 && !visited[s.y][s.x-1] && (map[s.y][s.x-1] == null || map[s.y][s.x-1].getTeam().equals(team))) {
-				if (p[s.y][s.x-1] == null) {
-					d[s.y][s.x-1] = dist;
-					p[s.y][s.x-1] = s;
-					q.addLast(new Loc(s.y, s.x-1));
-				} else {
-					if (dist < d[s.y][s.x-1]) {
-						d[s.y][s.x-1] = dist;
-					}
-				}
-			}
-			s = q.removeFirst();
-			visited[s.y][s.x] = true; 
-		}
-
-		while (s != null) {
-			path.add(0, new Integer[] {s.y, s.x});
-			s = p[s.y][s.x];
-		}
-		return path;
-	}
-
-	/**
-	 * Create objects for storing coordinates. Used for finding the shortest path.
-	 */
-	private class Loc{
-		Loc(int y, int x) {
-			this.x = x;
-			this.y = y;
-		}
-		int x;
-		int y;
-	}
-
-	/**
-	 * Update characters' HP
-	 */
-	private void updateStats() {
-		Character[] chars = controller.getCharacters();
-		for (int i = 0; i < 10; i++) {
-			if (chars[i] == null) {
-				healthLabel[i].setText(0 + "HP");
-			} else {
-				healthLabel[i].setText(chars[i].getHP() + "HP");
-			}
-		}
+	private void showDamage(UnitDamaged hit) {
+		healthLabel[hit.getCharacter().getId()].setText(Math.max(0, hit.getHP()) + "HP");
 	}
 
 	/**
@@ -792,7 +705,7 @@ public class RPGView extends Application implements Observer {
 	 * @return X coordinate in px
 	 */
 	private double getCharCoordX(int x) {
-		return 178+40*x; //178 is the offset from the left edge of the scene to column 0
+		return BAR_WIDTH+GRID_PADDING+tile/2+tile*x; //offset from the left edge of the scene to the centre of column 0
 	}
 
 	/**
@@ -802,25 +715,7 @@ public class RPGView extends Application implements Observer {
 	 * @return Y coordinate in px
 	 */
 	private double getCharCoordY(int y) {
-		return 28+40*y; //28 is the offset from the top edge of the scene to row 0
-	}
-
-	/**
-	 * Translate a sprite's y coordinate to the row coordinate on the grid
-	 * 
-	 * @return row coordinate as an integer
-	 */
-	private int getSpriteCoordRow(double y) {
-		return (int)(y-28)/40; //28 is the offset from the top edge of the scene to row 0
-	}
-
-	/**
-	 * Translate a sprite's x coordinate to the row coordinate on the grid
-	 * 
-	 * @return row coordinate as an integer
-	 */
-	private int getSpriteCoordCol(double x) {
-		return (int)(x-178)/40; //178 is the offset from the left edge of the scene to column 0
+		return GRID_PADDING+tile/2+tile*y; //offset from the top edge of the scene to the centre of row 0
 	}
 
 }
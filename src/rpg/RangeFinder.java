@@ -0,0 +1,168 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that finds every tile a unit can reach in a limited number of steps, with
+ * a breadth first search that stops at the step limit. Like the Pathfinder, its scratch space is
+ * allocated once per board and a tile's data is only valid while its stamp equals the current
+ * generation, so a search only touches the tiles it reaches.
+ *
+ * A search can also be told that some tiles will be taken or freed by the time the unit moves,
+ * so the walks of orders given for later in a turn are found without changing the board.
+ *
+ * Tiles are reached in order of steps, and among equal steps in the order the steps are tried:
+ * left, up, down, right. The result can be read in that order, or walked back from any reached
+ * tile to the start.
+ *
+ * date: 10/18/26
+ */
+class RangeFinder {
+	// row and column offsets of the four steps, in the order they are tried: left, up, down, right
+	private static final int[] STEP_ROW = {0, -1, 1, 0};
+	private static final int[] STEP_COL = {-1, 0, 0, 1};
+
+	private final Board board;
+	private final int[] stamp; //generation in which a tile was last reached
+	private final int[] steps; //steps from the start, valid while stamp == generation
+	private final int[] parent; //previous tile on the way from the start
+	private final int[] reached; //tiles reached by the last search, in the order they were reached
+	private int reachedCount;
+	private int generation;
+	private int[] changedCell; //tiles whose occupant differs from the board's, for the search running
+	private int[] occupant; //id of the unit on each of those tiles, or Board.NONE
+	private int changes; //number of such tiles, 0 outside a search with changes
+
+	/**
+	 * Constructs a range finder for a board.
+	 *
+	 * @param board, the Board to search
+	 */
+	RangeFinder(Board board) {
+		this.board = board;
+		this.stamp = new int[board.size()];
+		this.steps = new int[board.size()];
+		this.parent = new int[board.size()];
+		this.reached = new int[board.size()];
+	}
+
+	/**
+	 * Finds the tiles within a number of steps of a tile. The start tile may be occupied.
+	 *
+	 * @param start, an int, the index of the tile to start from
+	 * @param maxSteps, an int, the most steps a tile may be from the start
+	 * @param throughUnits, a boolean, true to walk over tiles with units on them, false to
+	 * 		only walk over free tiles. Mountains and water are never walked over.
+	 * @return int, the number of tiles reached, the start being the first. The tiles are read
+	 * 		with getReached().
+	 */
+	int search(int start, int maxSteps, boolean throughUnits) {
+		return walk(start, maxSteps, throughUnits);
+	}
+
+	/**
+	 * Finds the tiles within a number of steps of a tile over free tiles, as they stand once
+	 * some tiles have been taken or freed. The start tile may be occupied.
+	 *
+	 * @param start, an int, the index of the tile to start from
+	 * @param maxSteps, an int, the most steps a tile may be from the start
+	 * @param changedCell, an int[], the indices of the tiles whose occupant changed, oldest first
+	 * @param occupant, an int[], the id of the unit on each of those tiles after the change, or
+	 * 		Board.NONE if it was freed
+	 * @param changes, an int, the number of changes
+	 * @return int, the number of tiles reached, the start being the first. The tiles are read
+	 * 		with getReached().
+	 */
+	int search(int start, int maxSteps, int[] changedCell, int[] occupant, int changes) {
+		this.changedCell = changedCell;
+		this.occupant = occupant;
+		this.changes = changes;
+		try {
+			return walk(start, maxSteps, false);
+		} finally {
+			this.changes = 0;
+		}
+	}
+
+	/**
+	 * The breadth first search of both kinds of search().
+	 */
+	private int walk(int start, int maxSteps, boolean throughUnits) {
+		if (++generation == 0) { //stamps wrapped around, forget every tile
+			Arrays.fill(stamp, 0);
+			generation = 1;
+		}
+		stamp[start] = generation;
+		steps[start] = 0;
+		parent[start] = Board.NONE;
+		reached[0] = start;
+		reachedCount = 1;
+		for (int head = 0; head < reachedCount; head++) {
+			int cell = reached[head];
+			if (steps[cell] == maxSteps) {
+				break; //tiles are reached in order of steps, every later tile is as far
+			}
+			int row = board.rowOf(cell);
+			int col = board.colOf(cell);
+			for (int i = 0; i < 4; i++) {
+				int r = row + STEP_ROW[i];
+				int c = col + STEP_COL[i];
+				if (!board.inBounds(r, c)) {
+					continue;
+				}
+				int n = board.index(r, c);
+				if (stamp[n] == generation || !(throughUnits ? board.isPassable(n) : isFree(n))) {
+					continue;
+				}
+				stamp[n] = generation;
+				steps[n] = steps[cell] + 1;
+				parent[n] = cell;
+				reached[reachedCount++] = n;
+			}
+		}
+		return reachedCount;
+	}
+
+	/**
+	 * @return boolean, true if the tile is free once the changes of the search running are made
+	 */
+	private boolean isFree(int cell) {
+		for (int k = changes - 1; k >= 0; k--) {
+			if (changedCell[k] == cell) {
+				return occupant[k] == Board.NONE && board.isPassable(cell);
+			}
+		}
+		return board.isFree(cell);
+	}
+
+	/**
+	 * @return int[], the tiles reached by the last search in the order they were reached. Only
+	 * 		the first search() entries are valid and the array is reused by the next search.
+	 */
+	int[] getReached() {
+		return reached;
+	}
+
+	/**
+	 * @param cell, an int, a tile reached by the last search
+	 * @return int, the steps from the start to the tile
+	 */
+	int getSteps(int cell) {
+		return steps[cell];
+	}
+
+	/**
+	 * Walks back from a tile reached by the last search to the start.
+	 *
+	 * @param cell, an int, a tile reached by the last search
+	 * @param path, an int[] with room for getSteps(cell) + 1 tiles, filled start first
+	 * @return int, the number of tiles on the path including the start
+	 */
+	int pathTo(int cell, int[] path) {
+		int length = steps[cell] + 1;
+		for (int i = length - 1; i >= 0; cell = parent[cell], i--) {
+			path[i] = cell;
+		}
+		return length;
+	}
+}
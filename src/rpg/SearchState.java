@@ -0,0 +1,346 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class holding the part of a game the AI searches over: the few units close to
+ * the unit deciding what to do, each with its health, tile and defense. Everything else, the
+ * terrain and the units too far away to matter, is read from the live board and stays put for the
+ * whole search, so a state is a handful of small arrays and copying one is cheap.
+ *
+ * Units are addressed by their index in the state, not by their id in the game.
+ *
+ * A search can either copy states or play actions on one state with apply() and take them back
+ * with undo(), which allocates nothing and copies nothing. The state keeps the Zobrist hash of
+ * the whole game as it would be after the same actions, so positions reached in a search hash
+ * the same as in the game.
+ *
+ * date: 10/18/26
+ */
+class SearchState {
+	private final Board board; //terrain and the tiles of the units left out of the state
+	private final int count;
+	private final int[] unitIds; //id in the game of each unit in the state
+	private final int[] localOf; //index in the state of each unit id of the game, or -1
+	private final byte[] faction;
+	private final int[] attack;
+	private final int[] defense;
+	private final int[] hp;
+	private final int[] cell;
+	private final boolean[] defending;
+	private long hash; //Zobrist hash of the game with the units of the state where they are now
+
+	/**
+	 * Builds a state from the current game.
+	 *
+	 * @param board, the Board of the game
+	 * @param units, the UnitStore of the game
+	 * @param ids, an int[] of the ids of the living units to put in the state
+	 * @param count, an int, the number of ids to use
+	 */
+	SearchState(Board board, UnitStore units, int[] ids, int count) {
+		this.board = board;
+		this.count = count;
+		this.unitIds = new int[count];
+		this.localOf = new int[units.size()];
+		this.faction = new byte[count];
+		this.attack = new int[count];
+		this.defense = new int[count];
+		this.hp = new int[count];
+		this.cell = new int[count];
+		this.defending = new boolean[count];
+		this.hash = units.getHash();
+		Arrays.fill(localOf, -1);
+		for (int i = 0; i < count; i++) {
+			int id = ids[i];
+			int pos = units.getPos(id);
+			unitIds[i] = id;
+			localOf[id] = i;
+			faction[i] = units.getFaction(id);
+			attack[i] = units.getAttack(id);
+			defense[i] = units.getDefense(id);
+			hp[i] = units.getHP(id);
+			cell[i] = board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos));
+			defending[i] = units.isDefending(id);
+		}
+	}
+
+	/**
+	 * Copy constructor. The parts that never change during a search are shared.
+	 *
+	 * @param other, the SearchState to copy
+	 */
+	private SearchState(SearchState other) {
+		this.board = other.board;
+		this.count = other.count;
+		this.unitIds = other.unitIds;
+		this.localOf = other.localOf;
+		this.faction = other.faction;
+		this.attack = other.attack;
+		this.defense = other.defense;
+		this.hp = other.hp.clone();
+		this.cell = other.cell.clone();
+		this.defending = other.defending.clone();
+		this.hash = other.hash;
+	}
+
+	/**
+	 * @return SearchState, an independent copy of this state
+	 */
+	SearchState copy() {
+		return new SearchState(this);
+	}
+
+	/**
+	 * Overwrites this state with another state built from the same units, without allocating.
+	 *
+	 * @param other, a SearchState copied from this one or from the same original
+	 */
+	void copyFrom(SearchState other) {
+		System.arraycopy(other.hp, 0, hp, 0, count);
+		System.arraycopy(other.cell, 0, cell, 0, count);
+		System.arraycopy(other.defending, 0, defending, 0, count);
+		hash = other.hash;
+	}
+
+	/**
+	 * Plays one action of a unit. The action must be legal for the unit, as generated by an
+	 * ActionGenerator for this state. The low bits of the returned record hold the tile the unit
+	 * left for a move, and one more than the index of the unit attacked for an attack, or 0 if
+	 * the attack hit nobody.
+	 *
+	 * @param unit, an int, the index of the acting unit
+	 * @param action, an int, the packed Action
+	 * @return long, the Undo record that takes the action back
+	 */
+	long apply(int unit, int action) {
+		int target = Action.cellOf(action);
+		boolean wasDefending = defending[unit];
+		switch (Action.kindOf(action)) {
+			case Action.MOVE:
+				int from = cell[unit];
+				setDefending(unit, false);
+				moveTo(unit, target);
+				return Undo.of(Action.MOVE, wasDefending, unit, from);
+			case Action.ATTACK:
+				setDefending(unit, false);
+				int attacked = unitAt(target);
+				if (attacked >= 0 && faction[attacked] != faction[unit]) {
+					setHP(attacked, hp[attacked] - damage(unit, attacked));
+					return Undo.of(Action.ATTACK, wasDefending, unit, attacked + 1);
+				}
+				return Undo.of(Action.ATTACK, wasDefending, unit, 0);
+			default:
+				setDefending(unit, true);
+				return Undo.of(Action.DEFEND, wasDefending, unit, 0);
+		}
+	}
+
+	/**
+	 * Takes back an action played with apply(). Actions must be undone in the reverse order
+	 * they were applied in.
+	 *
+	 * @param record, a long, the Undo record apply() returned for the action
+	 */
+	void undo(long record) {
+		int unit = Undo.unitOf(record);
+		int detail = (int) Undo.detailOf(record);
+		setDefending(unit, Undo.wasDefending(record));
+		if (Undo.kindOf(record) == Action.MOVE) {
+			moveTo(unit, detail);
+		} else if (Undo.kindOf(record) == Action.ATTACK && detail > 0) {
+			setHP(detail - 1, hp[detail - 1] + damage(unit, detail - 1));
+		}
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit
+	 * @param b, a boolean, true if the unit is defending
+	 */
+	private void setDefending(int unit, boolean b) {
+		if (defending[unit] != b) {
+			hash ^= Zobrist.key(Zobrist.DEFENDING, unitIds[unit], 0);
+			defending[unit] = b;
+		}
+	}
+
+	/**
+	 * @param unit, an int, the index of a living unit
+	 * @param tile, an int, the index of the tile it moves to
+	 */
+	private void moveTo(int unit, int tile) {
+		hash ^= posKey(unit, cell[unit]) ^ posKey(unit, tile);
+		cell[unit] = tile;
+	}
+
+	/**
+	 * Changes the health of a unit. A unit whose health drops to 0 dies and leaves its tile, 
+	 * as in the game, and comes back on it if its health rises again.
+	 *
+	 * @param unit, an int, the index of a unit
+	 * @param now, an int, its new health
+	 */
+	private void setHP(int unit, int now) {
+		int id = unitIds[unit];
+		hash ^= Zobrist.key(Zobrist.HP, id, hp[unit]) ^ Zobrist.key(Zobrist.HP, id, now);
+		if ((hp[unit] > 0) != (now > 0)) {
+			hash ^= posKey(unit, cell[unit]) ^ Zobrist.key(Zobrist.ALIVE, id, 0);
+		}
+		hp[unit] = now;
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit
+	 * @param tile, an int, the index of a tile
+	 * @return long, the Zobrist key of the unit standing on the tile
+	 */
+	private long posKey(int unit, int tile) {
+		return Zobrist.key(Zobrist.POS, unitIds[unit], UnitStore.pack(board.rowOf(tile), board.colOf(tile)));
+	}
+
+	/**
+	 * @return long, the Zobrist hash of the game with the units of the state where they are now
+	 */
+	long getHash() {
+		return hash;
+	}
+
+	/**
+	 * @param unit, an int, the index of the attacking unit
+	 * @param attacked, an int, the index of the unit attacked
+	 * @return int, the health the attacked unit loses, less its defense if it is defending
+	 */
+	private int damage(int unit, int attacked) {
+		return attack[unit] - (defending[attacked] ? defense[attacked] : 0);
+	}
+
+	/**
+	 * Checks that a tile has no obstacle and no living unit on it.
+	 *
+	 * @param tile, an int, the index of a tile
+	 * @return boolean, true if a unit could walk onto the tile
+	 */
+	boolean isFree(int tile) {
+		if (!board.isPassable(tile)) {
+			return false;
+		}
+		int occupant = board.getOccupant(tile);
+		if (occupant != Board.NONE && localOf[occupant] < 0) {
+			return false; //a unit left out of the state, which never moves
+		}
+		return unitAt(tile) < 0;
+	}
+
+	/**
+	 * @param tile, an int, the index of a tile
+	 * @return int, the index of the living unit of the state on the tile, or -1
+	 */
+	int unitAt(int tile) {
+		for (int i = 0; i < count; i++) {
+			if (cell[i] == tile && hp[i] > 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param f, a byte, PLAYER or AI
+	 * @return int, the number of living units of the faction in the state
+	 */
+	int aliveCount(byte f) {
+		int alive = 0;
+		for (int i = 0; i < count; i++) {
+			if (faction[i] == f && hp[i] > 0) {
+				alive++;
+			}
+		}
+		return alive;
+	}
+
+	/**
+	 * @return int, the number of units in the state
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * @return Board, the board the state was built from
+	 */
+	Board getBoard() {
+		return board;
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return int, the id of the unit in the game
+	 */
+	int getUnitId(int unit) {
+		return unitIds[unit];
+	}
+
+	/**
+	 * @param id, an int, the id of a unit in the game
+	 * @return int, the index of the unit in the state, or -1 if it was left out
+	 */
+	int indexOf(int id) {
+		return id < localOf.length ? localOf[id] : -1;
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return byte, the faction of the unit, PLAYER or AI
+	 */
+	byte getFaction(int unit) {
+		return faction[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return int, the attack of the unit
+	 */
+	int getAttack(int unit) {
+		return attack[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return int, the defense of the unit when it is defending
+	 */
+	int getDefense(int unit) {
+		return defense[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return int, the health of the unit, 0 or below once it is dead
+	 */
+	int getHP(int unit) {
+		return hp[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return int, the index of the tile the unit stands on, or last stood on if it is dead
+	 */
+	int getCell(int unit) {
+		return cell[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return boolean, true while the unit is defending
+	 */
+	boolean isDefending(int unit) {
+		return defending[unit];
+	}
+
+	/**
+	 * @param unit, an int, the index of a unit in the state
+	 * @return boolean, true until the unit's health drops to 0
+	 */
+	boolean isAlive(int unit) {
+		return hp[unit] > 0;
+	}
+}
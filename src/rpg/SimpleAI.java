@@ -0,0 +1,129 @@
+package rpg;
+
+import java.util.SplittableRandom;
+
+/**
+ * Package private class holding the simple rules the AI has always played by, for either team.
+ * A character next to an enemy defends if the enemies around could kill it and defending would
+ * save it, and otherwise attacks or defends at random, flipping a coin drawn from the game's
+ * seed. A character with no enemy next to it walks towards the closest enemy: it looks at every
+ * tile it can reach in its steps and picks the one closest to the enemy team by the model's
+ * distance field, and among equally close tiles the one the enemies can hit the least.
+ *
+ * Werewolves look for enemies on all eight tiles around them and vampires only along rows and
+ * columns, as each team attacks.
+ *
+ * date: 10/18/26
+ */
+class SimpleAI implements AIEngine {
+	// neighbours a character looks for enemies on, as {row, col} offsets, in the order tried
+	private static final int[][] DIRECTIONS = {
+			{-1, 0}, //n, up a row
+			{1, 0}, //s, down a row
+			{0, 1}, //e, to the right
+			{0, -1}, //w, to the left
+			{-1, 1}, //ne
+			{-1, -1}, //nw
+			{1, 1}, //se
+			{1, -1}}; //sw
+
+	private final RPGModel model;
+	private final String enemyTeam;
+	private final int reach; //neighbours looked at for enemies, 4 or 8
+	private final int steps; //most tiles walked per move
+	private final SplittableRandom random; //the coin flipped between attacking and defending
+
+	/**
+	 * Constructs the simple rules for one team of a game.
+	 *
+	 * @param model, the RPGModel to play in
+	 * @param team, a String, "player" or "AI", the team deciding
+	 * @param steps, an int, the most tiles a character of the team walks per move
+	 */
+	SimpleAI(RPGModel model, String team, int steps) {
+		this.model = model;
+		this.enemyTeam = team.equals("AI") ? "player" : "AI";
+		this.reach = team.equals("AI") ? 8 : 4;
+		this.steps = steps;
+		this.random = model.getRandom().stream(GameRandom.RULES);
+	}
+
+	/**
+	 * Chooses the action of a living character by the simple rules.
+	 *
+	 * @param c, the Character deciding
+	 * @return int, the packed Action to play, or Action.NONE if the character has no enemy
+	 * 		left or cannot get any closer to one
+	 */
+	@Override
+	public int chooseAction(Character c) {
+		int row = c.getRow();
+		int col = c.getCol();
+		int cell = model.cellOf(row, col);
+		//if there's anyone next to them, attack or defend
+		//the enemies' bitboard answers whether any of the 8 neighbours is taken in three reads
+		BitBoard enemies = model.getTeamTiles(enemyTeam);
+		boolean nearby = enemies.anyAround(row, col);
+		for (int d = 0; nearby && d < reach; d++) {
+			int nextRow = row + DIRECTIONS[d][0];
+			int nextCol = col + DIRECTIONS[d][1];
+			if (nextRow >= 0 && nextRow < model.getRows() && nextCol >= 0 && nextCol < model.getCols()
+					&& enemies.get(model.cellOf(nextRow, nextCol))) {
+				//defend when the enemies around could kill it and defending would save it
+				ThreatMap danger = model.getThreatMap(enemyTeam);
+				if (danger.damageTo(cell, 0) >= c.getHP()
+						&& danger.damageTo(cell, model.getConfig().getUnitDefense()) < c.getHP()) {
+					return Action.of(Action.DEFEND, cell);
+				}
+				if (random.nextInt(2) == 0) {
+					return Action.of(Action.ATTACK, model.cellOf(nextRow, nextCol));
+				}
+				return Action.of(Action.DEFEND, cell);
+			}
+		}
+		//if theres no one next to them, then move towards the closest living enemy
+		Character target = model.nearestEnemy(c);
+		if (target == null) {
+			return Action.NONE;
+		}
+		int to = walkTowards(cell, target);
+		return to == cell ? Action.NONE : Action.of(Action.MOVE, to);
+	}
+
+	/**
+	 * Finds where a character walks towards a target. The character looks at every tile it can
+	 * reach in its steps and walks to the one closest to the enemy team, reading the distance
+	 * field the model keeps up to date, so a move costs a small bounded search. Among equally
+	 * close tiles it takes the one the enemies can hit the least, then the one with the fewest
+	 * steps, trying left, up, down, right first. When no reachable tile gets closer, because the
+	 * way is blocked by other units, it falls back to a shortest path search to any tile next to
+	 * the target, and stays put if no such tile can be reached.
+	 *
+	 * @param start - the index of the tile the character stands on
+	 * @param target - the enemy walked towards
+	 * @return the index of the tile to walk to, start to stay put
+	 */
+	private int walkTowards(int start, Character target) {
+		FlowField field = model.getFlowField(enemyTeam);
+		ThreatMap danger = model.getThreatMap(enemyTeam);
+		RangeFinder range = model.getRangeFinder();
+		int reached = range.search(start, steps, false);
+		int[] tiles = range.getReached();
+		int best = start;
+		for (int i = 1; i < reached; i++) {
+			int closer = Integer.compare(field.distance(tiles[i]), field.distance(best));
+			if (closer < 0 || (closer == 0 && best != start && danger.getPower(tiles[i]) < danger.getPower(best))) {
+				best = tiles[i];
+			}
+		}
+		if (best != start) {
+			return best;
+		}
+		Pathfinder finder = model.getPathfinder();
+		int length = finder.findPath(start, finder.near(target.getRow(), target.getCol()));
+		if (length > 1) {
+			return finder.getPath()[Math.min(length, steps + 1) - 1];
+		}
+		return start;
+	}
+}
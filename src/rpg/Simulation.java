@@ -0,0 +1,156 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that plays whole games with no view, no listeners and no printing, for
+ * balancing and regression tests. Each team is played by a Policy. A turn is every living vampire
+ * acting once, in the order of the characters, then every living werewolf, as in the game.
+ *
+ * Actions are played with RPGModel.apply(), which keeps the model's indexes up to date but
+ * builds no event no one listens to and logs nothing while the log is off, so no JavaFX class is
+ * ever loaded and the cost of a game is the cost of the rules and of the model alone.
+ *
+ * date: 10/18/26
+ */
+class Simulation {
+	private final RPGModel model;
+	private final AIEngine[] engines; //engine of each team by faction, or null
+	private final SimpleAI[] rules; //simple rules of each team by faction
+	private final int maxTurns;
+	private int turns;
+	private long actions;
+	private long[][] latencies = {new long[64], new long[64]}; //nanoseconds of each decision, by faction
+	private final int[] decisions = new int[2]; //decisions made, by faction
+
+	/**
+	 * Sets up a new game.
+	 *
+	 * @param config, the GameConfig of the game
+	 * @param vampires, the Policy playing the vampires
+	 * @param werewolves, the Policy playing the werewolves
+	 * @param maxTurns, an int, the game is stopped undecided after this many turns
+	 */
+	Simulation(GameConfig config, Policy vampires, Policy werewolves, int maxTurns) {
+		this(new RPGModel(config), vampires, werewolves, maxTurns);
+	}
+
+	/**
+	 * Sets up a game from a model, which may already be under way.
+	 *
+	 * @param model, the RPGModel to play in
+	 * @param vampires, the Policy playing the vampires
+	 * @param werewolves, the Policy playing the werewolves
+	 * @param maxTurns, an int, the game is stopped undecided after this many turns
+	 */
+	Simulation(RPGModel model, Policy vampires, Policy werewolves, int maxTurns) {
+		this.model = model;
+		this.maxTurns = maxTurns;
+		this.engines = new AIEngine[] {vampires.engineFor(model, "player"), werewolves.engineFor(model, "AI")};
+		this.rules = new SimpleAI[] {new SimpleAI(model, "player", model.getConfig().getMoveRange()),
+				new SimpleAI(model, "AI", RPGController.AI_STEPS)};
+	}
+
+	/**
+	 * Plays turns until one team is wiped out or the turn limit is reached.
+	 *
+	 * @return int, 1 if the vampires won, 2 if the werewolves won, 0 if the game was stopped
+	 * 		undecided, as RPGController.isOver() reports
+	 */
+	int play() {
+		int result = getResult();
+		while (result == 0 && turns < maxTurns) {
+			result = playTurn();
+		}
+		return result;
+	}
+
+	/**
+	 * Plays one turn: every living vampire acts, then every living werewolf. The turn ends early
+	 * once a team is wiped out.
+	 *
+	 * @return int, the result after the turn, as from play()
+	 */
+	int playTurn() {
+		turns++;
+		int total = model.getConfig().getUnitsPerSide() * 2;
+		for (byte faction = UnitStore.PLAYER; faction <= UnitStore.AI; faction++) {
+			for (int id = 0; id < total; id++) {
+				Character c = model.getCharacter(id);
+				if (c == null || model.getUnits().getFaction(id) != faction) {
+					continue;
+				}
+				if (act(c, faction) && getResult() != 0) {
+					return getResult();
+				}
+			}
+			model.endTurn(faction == UnitStore.PLAYER ? "player" : "AI");
+		}
+		return getResult();
+	}
+
+	/**
+	 * Lets one character act.
+	 *
+	 * @param c, the Character acting
+	 * @param faction, a byte, its faction
+	 * @return boolean, true if it did something
+	 */
+	private boolean act(Character c, byte faction) {
+		long start = System.nanoTime();
+		int action = engines[faction] == null ? Action.NONE : engines[faction].chooseAction(c);
+		if (action == Action.NONE) {
+			action = rules[faction].chooseAction(c);
+		}
+		if (decisions[faction] == latencies[faction].length) {
+			latencies[faction] = Arrays.copyOf(latencies[faction], decisions[faction] * 2);
+		}
+		latencies[faction][decisions[faction]++] = System.nanoTime() - start;
+		if (action == Action.NONE) {
+			return false;
+		}
+		model.apply(c, action);
+		actions++;
+		return true;
+	}
+
+	/**
+	 * @return int, 0 while both teams have characters left, 1 if only the vampires do, 2 if
+	 * 		only the werewolves do
+	 */
+	int getResult() {
+		if (model.numberOfUserChars() > 0 && model.numberOfAIChars() > 0) {
+			return 0;
+		}
+		return model.numberOfUserChars() > 0 ? 1 : 2;
+	}
+
+	/**
+	 * @return int, the number of turns played
+	 */
+	int getTurns() {
+		return turns;
+	}
+
+	/**
+	 * @return long, the number of actions played
+	 */
+	long getActions() {
+		return actions;
+	}
+
+	/**
+	 * @param faction, a byte, UnitStore.PLAYER or UnitStore.AI
+	 * @return long[], how long each decision of the team took, in nanoseconds, in the order made
+	 */
+	long[] getLatencies(byte faction) {
+		return Arrays.copyOf(latencies[faction], decisions[faction]);
+	}
+
+	/**
+	 * @return RPGModel, the game being played
+	 */
+	RPGModel getModel() {
+		return model;
+	}
+}
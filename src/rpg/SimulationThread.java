@@ -0,0 +1,173 @@
+package rpg;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Package private thread that plays a game away from the thread drawing it, so a long AI turn
+ * never holds up the drawing or the mouse. The view sends its requests, an order for a vampire
+ * or the end of the player's turn, through a bounded lock-free queue. The game thread plays them
+ * one after the other, publishes a GameSnapshot of the game after each one, and tells the view
+ * it is done through the handoff it was given, such as Platform::runLater. The events of the
+ * game are handed to the view the same way as they happen.
+ *
+ * The model belongs to the game thread alone: even the tiles a character can move to or attack
+ * are worked out there, since working them out writes to scratch space the model shares, and
+ * handed to the view as a copy. While the player plans, the game thread lets the AI ponder its
+ * next turn on a copy of the game, and gives up as soon as a request arrives.
+ *
+ * date: 10/18/26
+ */
+class SimulationThread {
+	private static final int QUEUE_CAPACITY = 64; //requests waiting for the game thread
+
+	private final RPGController controller;
+	private final Executor handoff; //runs code on the thread of the view
+	private final SpscQueue<Runnable> requests = new SpscQueue<>(QUEUE_CAPACITY);
+	private final Thread thread;
+	private volatile boolean running = true;
+	private boolean ponderDue = true; //the game changed since it was last pondered, game thread only
+
+	/**
+	 * Sets up the thread of a game. It waits for requests once started.
+	 *
+	 * @param controller, the RPGController of the game, used by this thread only from then on
+	 * @param handoff, an Executor running code on the thread of the view
+	 */
+	SimulationThread(RPGController controller, Executor handoff) {
+		this.controller = controller;
+		this.handoff = handoff;
+		controller.getSnapshots(); //snapshots are taken from now on
+		this.thread = new Thread(this::run, "game");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Starts playing requests.
+	 */
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Adds a listener for one type of event, called on the thread of the view. Events are never
+	 * changed once published, so the listener may keep them.
+	 *
+	 * @param type, the class of the events, such as UnitMoved.class
+	 * @param listener, a Consumer called with every event of that type
+	 */
+	<E extends GameEvent> void subscribe(Class<E> type, Consumer<? super E> listener) {
+		controller.getEvents().subscribe(type, (event) -> handoff.execute(() -> listener.accept(event)));
+	}
+
+	/**
+	 * Asks for an order to be played.
+	 *
+	 * @param order, the Command of a vampire
+	 * @param done, called on the thread of the view once the order is played
+	 * @return boolean, false if too many requests are waiting and this one was not sent
+	 */
+	boolean play(Command order, Runnable done) {
+		return send(() -> {
+			controller.execute(order);
+			controller.publishSnapshot();
+			ponderDue = true;
+			handoff.execute(done);
+		});
+	}
+
+	/**
+	 * Asks for the tiles a vampire can move to or attack in the game as it stands.
+	 *
+	 * @param c, the Character of the vampire
+	 * @param attack, a boolean, true for the tiles it can attack, false for the ones it can move to
+	 * @param done, called on the thread of the view with a copy of the tiles, one bit per tile
+	 * @return boolean, false if too many requests are waiting and this one was not sent
+	 */
+	boolean range(Character c, boolean attack, Consumer<long[]> done) {
+		return send(() -> {
+			long[] tiles = attack ? controller.getAttackRange(c) : controller.getMoveRange(c);
+			long[] copy = tiles.clone();
+			handoff.execute(() -> done.accept(copy));
+		});
+	}
+
+	/**
+	 * Asks for the player's turn to end and the AI to play its turn: every living werewolf acts
+	 * once, then the AI's turn ends.
+	 *
+	 * @param done, called on the thread of the view once the AI's turn is over
+	 * @return boolean, false if too many requests are waiting and this one was not sent
+	 */
+	boolean endTurn(Runnable done) {
+		return send(() -> {
+			controller.endTurn("player");
+			Character[] chars = controller.getCharacters();
+			for (int i = 0; i < chars.length && controller.isOver() == 0; i++) {
+				if (chars[i] != null && chars[i].getTeam().equals("AI")) {
+					controller.AIturn(chars[i].getCol(), chars[i].getRow(), chars[i]);
+				}
+			}
+			controller.endTurn("AI");
+			ponderDue = true;
+			handoff.execute(done);
+		});
+	}
+
+	/**
+	 * Stops the thread once the request it is playing, if any, is over, and lets go of the
+	 * threads the AI searches on. Requests still waiting are dropped.
+	 */
+	void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return boolean, true if the thread is playing requests
+	 */
+	boolean isAlive() {
+		return thread.isAlive();
+	}
+
+	/**
+	 * Queues a request and wakes the game thread.
+	 */
+	private boolean send(Runnable request) {
+		if (!requests.offer(request)) {
+			return false;
+		}
+		LockSupport.unpark(thread);
+		return true;
+	}
+
+	/**
+	 * The loop of the game thread: plays the requests in the order they were sent, ponders once
+	 * they are all played, and sleeps while there is nothing to do. A request sent while
+	 * the thread falls asleep wakes it straight away. Once stopped it lets go of the threads
+	 * the AI searches on.
+	 */
+	private void run() {
+		while (running) {
+			Runnable request = requests.poll();
+			if (request != null) {
+				request.run();
+			} else if (ponderDue) {
+				ponderDue = false;
+				if (controller.isOver() == 0) {
+					controller.ponder(() -> !running || !requests.isEmpty());
+					ponderDue = !requests.isEmpty(); //cut short, by a request that may not change the game
+				}
+			} else if (running && requests.isEmpty()) {
+				LockSupport.park(this);
+			}
+		}
+		controller.close();
+	}
+}
@@ -0,0 +1,187 @@
+package rpg;
+
+/**
+ * Package private class describing the fight a search looks at when a character decides what to
+ * do: the units close enough to take part, the order they act in, and how good a position is for
+ * the side deciding. Units act one at a time in team turns: the character deciding, then its
+ * allies after it that have not acted yet this turn, then every enemy, then every ally again, and
+ * so on. Everything outside the fight stays put. Either team can search, the werewolves as the AI
+ * and the vampires when a search plays them in a Simulation.
+ *
+ * date: 10/18/26
+ */
+class Skirmish {
+	static final int MAX_ALLIES = 4; //most units of the deciding side in a fight, including the one deciding
+	static final int MAX_ENEMIES = 4; //most enemies in a fight
+	private static final int KILL_VALUE = 100; //value of a living unit on top of its health
+
+	private final SearchState state;
+	private final int[] schedule; //unit of the state acting at each ply
+
+	/**
+	 * @param state, the SearchState of the units taking part, the deciding character first
+	 * @param schedule, an int[], the unit acting at each ply
+	 */
+	private Skirmish(SearchState state, int[] schedule) {
+		this.state = state;
+		this.schedule = schedule;
+	}
+
+	/**
+	 * Returns how far from the deciding character units take part in a fight: far enough for a 
+	 * vampire and a werewolf walking towards each other to meet within a turn each.
+	 *
+	 * @param playerMoves, an int, the most tiles a vampire walks per move
+	 * @param aiMoves, an int, the most tiles a werewolf walks per move
+	 * @return int, the radius in steps along rows and columns
+	 */
+	static int radiusFor(int playerMoves, int aiMoves) {
+		return 2 * (Math.max(playerMoves, aiMoves) + 1);
+	}
+
+	/**
+	 * Gathers the fight around a character: the closest enemies and allies within a radius.
+	 *
+	 * @param model, the RPGModel being played
+	 * @param c, the Character deciding
+	 * @param radius, an int, units further than this many steps from the character are left out
+	 * @param plies, an int, the number of actions to schedule
+	 * @return Skirmish, the fight, or null if no enemy is within the radius
+	 */
+	static Skirmish around(RPGModel model, Character c, int radius, int plies) {
+		int[] enemies = new int[MAX_ENEMIES];
+		int[] allies = new int[MAX_ALLIES];
+		int enemyCount = withinRadius(model, c.getTeam().equals("AI") ? "player" : "AI", c, radius, enemies);
+		if (enemyCount == 0) {
+			return null;
+		}
+		int allyCount = withinRadius(model, c.getTeam(), c, radius, allies);
+		int[] ids = new int[MAX_ALLIES + MAX_ENEMIES];
+		// the deciding character comes first, so it is unit 0 of the state
+		int count = 0;
+		ids[count++] = c.getId();
+		for (int i = 0; i < allyCount; i++) {
+			if (allies[i] != c.getId() && count < MAX_ALLIES) {
+				ids[count++] = allies[i];
+			}
+		}
+		int firstEnemy = count;
+		for (int i = 0; i < enemyCount; i++) {
+			ids[count++] = enemies[i];
+		}
+		// first turn: the deciding character, then its allies after it in the turn order
+		int[] schedule = new int[plies];
+		int ply = 0;
+		schedule[ply++] = 0;
+		for (int i = 1; i < firstEnemy && ply < plies; i++) {
+			if (ids[i] > c.getId()) {
+				schedule[ply++] = i;
+			}
+		}
+		// then whole team turns, enemies first, as the two teams take turns in the game
+		boolean enemy = true;
+		while (ply < plies) {
+			for (int i = enemy ? firstEnemy : 0; i < (enemy ? count : firstEnemy) && ply < plies; i++) {
+				schedule[ply++] = i;
+			}
+			enemy = !enemy;
+		}
+		return new Skirmish(new SearchState(model.getBoard(), model.getUnits(), ids, count), schedule);
+	}
+
+	/**
+	 * Finds the closest living units of a team within a radius of a character.
+	 *
+	 * @param model, the RPGModel being played
+	 * @param team, a String, "player" or "AI"
+	 * @param c, the Character to measure from
+	 * @param radius, an int, the most steps along rows and columns
+	 * @param out, an int[] to fill with ids, closest first
+	 * @return int, the number of units found
+	 */
+	private static int withinRadius(RPGModel model, String team, Character c, int radius, int[] out) {
+		int found = model.findNearest(team, c.getRow(), c.getCol(), out);
+		for (int i = 0; i < found; i++) {
+			Character other = model.getCharacter(out[i]);
+			if (Math.abs(other.getRow() - c.getRow()) + Math.abs(other.getCol() - c.getCol()) > radius) {
+				return i;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return SearchState, the units taking part, as the fight starts. Searches copy it.
+	 */
+	SearchState getState() {
+		return state;
+	}
+
+	/**
+	 * @return int, the number of actions scheduled
+	 */
+	int getPlies() {
+		return schedule.length;
+	}
+
+	/**
+	 * @return byte, the faction of the character deciding, the side positions are scored for
+	 */
+	byte getSide() {
+		return state.getFaction(0);
+	}
+
+	/**
+	 * @param ply, an int, the number of actions played since the fight started
+	 * @return int, the unit of the state acting next
+	 */
+	int actorAt(int ply) {
+		return schedule[ply];
+	}
+
+	/**
+	 * @param state, a SearchState of this fight
+	 * @return boolean, true if one side has no living unit left in the fight
+	 */
+	static boolean isOver(SearchState state) {
+		return state.aliveCount(UnitStore.PLAYER) == 0 || state.aliveCount(UnitStore.AI) == 0;
+	}
+
+	/**
+	 * Scores a position for one side: the health of its living units less that of the living
+	 * enemies, with a bonus for every living unit, less the steps each of its units still has to
+	 * walk to its closest enemy.
+	 *
+	 * @param state, a SearchState of this fight
+	 * @param side, a byte, the faction the position is scored for
+	 * @return int, higher is better for the side
+	 */
+	static int evaluate(SearchState state, byte side) {
+		Board board = state.getBoard();
+		int score = 0;
+		for (int i = 0; i < state.size(); i++) {
+			if (!state.isAlive(i)) {
+				continue;
+			}
+			int value = state.getHP(i) + KILL_VALUE;
+			if (state.getFaction(i) != side) {
+				score -= value;
+				continue;
+			}
+			score += value;
+			int cell = state.getCell(i);
+			int closest = Integer.MAX_VALUE;
+			for (int j = 0; j < state.size(); j++) {
+				if (state.isAlive(j) && state.getFaction(j) != side) {
+					int other = state.getCell(j);
+					closest = Math.min(closest, Math.abs(board.rowOf(other) - board.rowOf(cell))
+							+ Math.abs(board.colOf(other) - board.colOf(cell)));
+				}
+			}
+			if (closest != Integer.MAX_VALUE) {
+				score -= closest;
+			}
+		}
+		return score;
+	}
+}
@@ -0,0 +1,81 @@
+package rpg;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class hands out the latest GameSnapshot of a game to the threads watching it: the view,
+ * spectators, or anything gathering statistics. The game fills a spare snapshot and swaps it in
+ * with a single atomic write, so readers take no lock and never hold up the game, and the game
+ * never waits for a reader.
+ *
+ * Snapshots come from a pool. With no reader holding an old snapshot the game fills two in
+ * turn; a snapshot still held is left alone and another one is used instead, so the pool only
+ * grows with the number of snapshots held at once and publishing allocates nothing once it has.
+ *
+ * A reader takes the latest snapshot with acquire() and must release() it when done:
+ *
+ *    GameSnapshot game = snapshots.acquire();
+ *    try { ... } finally { game.release(); }
+ *
+ * date: 10/18/26
+ */
+public class SnapshotBuffer {
+	private final GameConfig config;
+	private final AtomicReference<GameSnapshot> latest = new AtomicReference<>();
+	private final ArrayList<GameSnapshot> pool = new ArrayList<>(); //every snapshot, used by the game only
+
+	/**
+	 * Sets up the snapshots of a game. Nothing can be acquired before the first publish().
+	 *
+	 * @param config, the GameConfig of the game
+	 */
+	SnapshotBuffer(GameConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * Takes a snapshot of the game and makes it the latest. Called by the thread playing the game.
+	 *
+	 * @param model, the RPGModel of the game
+	 * @param turn, an int, the turns ended so far
+	 */
+	void publish(RPGModel model, int turn) {
+		GameSnapshot live = latest.get();
+		GameSnapshot spare = null;
+		for (int i = 0; i < pool.size() && spare == null; i++) {
+			GameSnapshot s = pool.get(i);
+			if (s != live && s.claim()) {
+				spare = s;
+			}
+		}
+		if (spare == null) { //every snapshot is held, a new one starts out held for filling
+			spare = new GameSnapshot(config);
+			pool.add(spare);
+		}
+		spare.fill(model, turn);
+		spare.open();
+		latest.set(spare);
+	}
+
+	/**
+	 * Holds the latest snapshot for reading. It must be given back with release().
+	 *
+	 * @return GameSnapshot, the latest snapshot of the game
+	 */
+	public GameSnapshot acquire() {
+		while (true) {
+			GameSnapshot s = latest.get();
+			if (s.retain()) { //fails only if the game reused it since it was read, so try the newer one
+				return s;
+			}
+		}
+	}
+
+	/**
+	 * @return int, the number of snapshots in the pool
+	 */
+	int getPoolSize() {
+		return pool.size();
+	}
+}
@@ -0,0 +1,223 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that indexes the living units on the board in a uniform grid of buckets,
+ * one grid per faction. Each bucket is a doubly linked list threaded through per-unit arrays, so
+ * adding, moving and removing a unit is O(1) and never allocates.
+ *
+ * Queries search rings of buckets outwards from the query tile and stop as soon as no unvisited
+ * bucket can hold a closer unit. Distances are Manhattan distances; ties go to the lower unit id.
+ *
+ * date: 10/18/26
+ */
+class SpatialGrid {
+	static final int BUCKET = 8; //side of a bucket, in tiles
+	private static final int FACTIONS = 2; //only vampires and werewolves are indexed
+
+	private final UnitStore units;
+	private final int bucketRows;
+	private final int bucketCols;
+	private final int[][] head; //first unit of each bucket, per faction
+	private int[] next; //next unit in the same bucket
+	private int[] prev; //previous unit in the same bucket
+	private int[] bucketOf; //bucket a unit is in, or Board.NONE
+
+	// scratch space for the distances of the units found by a query
+	private int[] foundDist = new int[16];
+
+	/**
+	 * Constructs an empty index for a board.
+	 *
+	 * @param units, the UnitStore holding the positions of the units
+	 * @param rows, an int, the row dimension of the board
+	 * @param cols, an int, the column dimension of the board
+	 */
+	SpatialGrid(UnitStore units, int rows, int cols) {
+		this.units = units;
+		this.bucketRows = (rows + BUCKET - 1) / BUCKET;
+		this.bucketCols = (cols + BUCKET - 1) / BUCKET;
+		this.head = new int[FACTIONS][bucketRows * bucketCols];
+		for (int[] h : head) {
+			Arrays.fill(h, Board.NONE);
+		}
+		next = new int[0];
+		prev = new int[0];
+		bucketOf = new int[0];
+	}
+
+	/**
+	 * Makes room for every unit currently in the store.
+	 */
+	private void ensureCapacity() {
+		int size = units.size();
+		if (bucketOf.length < size) {
+			int old = bucketOf.length;
+			next = Arrays.copyOf(next, size);
+			prev = Arrays.copyOf(prev, size);
+			bucketOf = Arrays.copyOf(bucketOf, size);
+			Arrays.fill(bucketOf, old, size, Board.NONE);
+		}
+	}
+
+	/**
+	 * Puts a unit in the bucket of its current position, or takes it out of the index if it is
+	 * dead or off the board. Call this after every change to a unit's position.
+	 *
+	 * @param id, an int, the unit
+	 */
+	void update(int id) {
+		ensureCapacity();
+		int pos = units.getPos(id);
+		int bucket = Board.NONE;
+		if (pos != UnitStore.NO_POS && units.isAlive(id) && units.getFaction(id) < FACTIONS) {
+			bucket = (UnitStore.rowOf(pos) / BUCKET) * bucketCols + UnitStore.colOf(pos) / BUCKET;
+		}
+		if (bucket == bucketOf[id]) {
+			return;
+		}
+		unlink(id);
+		if (bucket != Board.NONE) {
+			int[] h = head[units.getFaction(id)];
+			next[id] = h[bucket];
+			prev[id] = Board.NONE;
+			if (h[bucket] != Board.NONE) {
+				prev[h[bucket]] = id;
+			}
+			h[bucket] = id;
+			bucketOf[id] = bucket;
+		}
+	}
+
+	/**
+	 * Takes a unit out of the bucket it is in.
+	 *
+	 * @param id, an int, the unit
+	 */
+	private void unlink(int id) {
+		int bucket = bucketOf[id];
+		if (bucket == Board.NONE) {
+			return;
+		}
+		if (prev[id] != Board.NONE) {
+			next[prev[id]] = next[id];
+		} else {
+			head[units.getFaction(id)][bucket] = next[id];
+		}
+		if (next[id] != Board.NONE) {
+			prev[next[id]] = prev[id];
+		}
+		bucketOf[id] = Board.NONE;
+	}
+
+	/**
+	 * Finds the k units of a faction closest to a tile.
+	 *
+	 * @param faction, a byte, the faction to search
+	 * @param row, an int, the row of the query tile
+	 * @param col, an int, the column of the query tile
+	 * @param k, an int, how many units to find
+	 * @param out, an int[] of length at least k, filled with unit ids, closest first
+	 * @return int, the number of units found, at most k
+	 */
+	int nearest(byte faction, int row, int col, int k, int[] out) {
+		if (k <= 0) {
+			return 0;
+		}
+		if (foundDist.length < k) {
+			foundDist = new int[k];
+		}
+		int found = 0;
+		int br = row / BUCKET;
+		int bc = col / BUCKET;
+		int maxRing = Math.max(Math.max(br, bucketRows - 1 - br), Math.max(bc, bucketCols - 1 - bc));
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// every tile in this ring is at least this far from the query tile
+			if (found == k && foundDist[k - 1] < ringDistance(ring)) {
+				break;
+			}
+			for (int r = br - ring; r <= br + ring; r++) {
+				if (r < 0 || r >= bucketRows) {
+					continue;
+				}
+				// inside rows of the ring only have buckets at the two ends
+				int step = (r == br - ring || r == br + ring) ? 1 : Math.max(1, 2 * ring);
+				for (int c = bc - ring; c <= bc + ring; c += step) {
+					if (c < 0 || c >= bucketCols) {
+						continue;
+					}
+					for (int id = head[faction][r * bucketCols + c]; id != Board.NONE; id = next[id]) {
+						int pos = units.getPos(id);
+						int dist = Math.abs(UnitStore.rowOf(pos) - row) + Math.abs(UnitStore.colOf(pos) - col);
+						found = insert(out, found, k, id, dist);
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Finds every unit of a faction within a distance of a tile.
+	 *
+	 * @param faction, a byte, the faction to search
+	 * @param row, an int, the row of the query tile
+	 * @param col, an int, the column of the query tile
+	 * @param radius, an int, the largest Manhattan distance to include
+	 * @param out, an int[] to fill with unit ids, in no particular order
+	 * @return int, the number of units found; only the first out.length are written
+	 */
+	int within(byte faction, int row, int col, int radius, int[] out) {
+		int found = 0;
+		int r0 = Math.max(0, (row - radius) / BUCKET);
+		int r1 = Math.min(bucketRows - 1, (row + radius) / BUCKET);
+		int c0 = Math.max(0, (col - radius) / BUCKET);
+		int c1 = Math.min(bucketCols - 1, (col + radius) / BUCKET);
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				for (int id = head[faction][r * bucketCols + c]; id != Board.NONE; id = next[id]) {
+					int pos = units.getPos(id);
+					if (Math.abs(UnitStore.rowOf(pos) - row) + Math.abs(UnitStore.colOf(pos) - col) <= radius) {
+						if (found < out.length) {
+							out[found] = id;
+						}
+						found++;
+					}
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @param ring, an int, the Chebyshev distance between two buckets
+	 * @return int, the smallest Manhattan distance between tiles of two buckets that far apart
+	 */
+	private static int ringDistance(int ring) {
+		return ring == 0 ? 0 : (ring - 1) * BUCKET + 1;
+	}
+
+	/**
+	 * Inserts a unit into a list of the closest units found so far, kept sorted by distance and id.
+	 *
+	 * @return int, the new length of the list
+	 */
+	private int insert(int[] out, int found, int k, int id, int dist) {
+		int i = found < k ? found : k;
+		if (i == k && (dist > foundDist[k - 1] || (dist == foundDist[k - 1] && id > out[k - 1]))) {
+			return found;
+		}
+		if (i == k) {
+			i--;
+		}
+		while (i > 0 && (foundDist[i - 1] > dist || (foundDist[i - 1] == dist && out[i - 1] > id))) {
+			out[i] = out[i - 1];
+			foundDist[i] = foundDist[i - 1];
+			i--;
+		}
+		out[i] = id;
+		foundDist[i] = dist;
+		return found < k ? found + 1 : found;
+	}
+}
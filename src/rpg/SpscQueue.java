@@ -0,0 +1,68 @@
+package rpg;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Package private bounded queue between exactly one thread putting items in and one thread
+ * taking them out, such as the view sending orders to the thread playing the game. Items are
+ * kept in a ring allocated once; neither side takes a lock or waits, a full queue refuses the
+ * item and an empty one returns null.
+ *
+ * date: 10/18/26
+ */
+final class SpscQueue<E> {
+	private final Object[] ring;
+	private final int mask; //slots in the ring minus one
+	private final AtomicLong head = new AtomicLong(); //items put in, by the producer
+	private final AtomicLong tail = new AtomicLong(); //items taken out, by the consumer
+
+	/**
+	 * @param capacity, an int, the most items waiting, rounded up to a power of two
+	 */
+	SpscQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+		this.ring = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Puts an item at the back of the queue. Called by the producer only.
+	 *
+	 * @param item, the item, not null
+	 * @return boolean, false if the queue is full and the item was not put in
+	 */
+	boolean offer(E item) {
+		long h = head.get();
+		if (h - tail.get() > mask) {
+			return false;
+		}
+		ring[(int) (h & mask)] = item;
+		head.lazySet(h + 1); //publishes the item to the consumer
+		return true;
+	}
+
+	/**
+	 * Takes the item at the front of the queue. Called by the consumer only.
+	 *
+	 * @return E, the item, or null if the queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	E poll() {
+		long t = tail.get();
+		if (t == head.get()) {
+			return null;
+		}
+		int at = (int) (t & mask);
+		E item = (E) ring[at];
+		ring[at] = null;
+		tail.lazySet(t + 1); //hands the slot back to the producer
+		return item;
+	}
+
+	/**
+	 * @return boolean, true if no item is waiting
+	 */
+	boolean isEmpty() {
+		return tail.get() == head.get();
+	}
+}
@@ -1,5 +1,13 @@
 package rpg;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 import org.junit.Test;
 import org.junit.Before;
 import static org.junit.Assert.*;
@@ -9,20 +17,19 @@ import static org.junit.Assert.*;
  * 
  * date: 5/04/21
  * 
- * NOTE: There is some level of variance in this game - the obstacles 
- * are randomly assigned, which occasionally blocks the path of the 
- * test characters moving. When this happens, there is an assertion 
- * error in TestBattle, and the overall coverage is about 38%, 
- * the coverage for controller is about 75%, because it's random, 
- * another few runs should yield a run, where the overall coverage is 43.1%,
- *  and the coverage for controller is over 90%.
+ * NOTE: The obstacles and the AI's choices are random in the game, so 
+ * every test plays on a fixed seed, where the obstacles leave the paths 
+ * of the test characters open. The tests give the same results on 
+ * every run.
  */
 
 public class TestRPG {
+	private static final long SEED = 42L; //a seed whose terrain the tests are written for
+	private static final GameConfig CLASSIC = GameConfig.classic().withSeed(SEED);
 	
 	@Test 
 	public void TestModelSetUp() { 
-		RPGModel model = new RPGModel(); 
+		RPGModel model = new RPGModel(CLASSIC); 
 		Character playerGame = model.getCharacterAt(0, 0);
 		Character AIGame = model.getCharacterAt(19, 19);
 		assertNotNull(playerGame);
@@ -37,7 +44,7 @@ public class TestRPG {
 	}
 	
 	@Test public void TestControllerSetup() { 
-		RPGController controller = new RPGController(); 
+		RPGController controller = new RPGController(CLASSIC); 
 		Character[] testChars = new Character[10];
 		for (int i = 0; i< 5; i++) {
 			testChars[i] = new Character(100, 5, 10, "player");
@@ -57,14 +64,17 @@ public class TestRPG {
 	
 	@Test
 	public void testMoves() {
-		RPGModel model = new RPGModel(); 
+		RPGModel model = new RPGModel(CLASSIC); 
 		RPGController controller = new RPGController(model);
-		Character playerGame = model.getCharacterAt(0, 0);
+		Character playerGame = model.getCharacterAt(2, 0);
 		Character AIGame = model.getCharacterAt(19, 17);
-		assertTrue(controller.humanTurn("move", 0, 0, 3, 0, playerGame)); 
+		assertTrue(controller.humanTurn("move", 0, 2, 5, 0, playerGame)); 
 		assertEquals(controller.AIturn(19, 17, AIGame), "move"); 
+		// a character walks no further than its move range, and not through other characters
+		assertFalse(controller.humanTurn("move", 0, 5, 9, 0, playerGame));
+		assertFalse(controller.humanTurn("move", 0, 0, 0, 3, model.getCharacterAt(0, 0)));
 
-		assertEquals(model.getCharLoc(playerGame)[0], 3);
+		assertEquals(model.getCharLoc(playerGame)[0], 5);
 		assertEquals(model.getCharLoc(playerGame)[1], 0);
 		assertEquals(model.getCharLoc(AIGame)[0], 19);
 		assertEquals(model.getCharLoc(AIGame)[1], 15);
@@ -72,16 +82,15 @@ public class TestRPG {
 	
 	@Test
 	public void testBattle() {
-		RPGModel model = new RPGModel(); 
+		RPGModel model = new RPGModel(CLASSIC); 
 		RPGController controller = new RPGController(model);
 		Character AIGame = model.getCharacterAt(19, 17);
-		controller.humanTurn("move", 0, 0, 3, 0, model.getCharacterAt(0, 0));
-		controller.humanTurn("move", 0, 3, 6, 0, model.getCharacterAt(3, 0));
-		controller.humanTurn("move", 0, 6, 9, 0, model.getCharacterAt(6, 0));
-		controller.humanTurn("move", 0, 9, 12, 0, model.getCharacterAt(9, 0));
-		controller.humanTurn("move", 0, 12, 15, 0, model.getCharacterAt(12, 0));
-		controller.humanTurn("move", 0, 15, 18, 0, model.getCharacterAt(15, 0));
-		controller.humanTurn("move", 0, 18, 19, 0, model.getCharacterAt(18, 0));
+		controller.humanTurn("move", 0, 2, 5, 0, model.getCharacterAt(2, 0));
+		controller.humanTurn("move", 0, 5, 8, 0, model.getCharacterAt(5, 0));
+		controller.humanTurn("move", 0, 8, 11, 0, model.getCharacterAt(8, 0));
+		controller.humanTurn("move", 0, 11, 14, 0, model.getCharacterAt(11, 0));
+		controller.humanTurn("move", 0, 14, 17, 0, model.getCharacterAt(14, 0));
+		controller.humanTurn("move", 0, 17, 19, 0, model.getCharacterAt(17, 0));
 		controller.humanTurn("move", 0, 19, 19, 3, model.getCharacterAt(19, 0));
 		controller.humanTurn("move", 3, 19, 19, 6, model.getCharacterAt(19, 3));
 		controller.humanTurn("move", 6, 19, 19, 8, model.getCharacterAt(19, 6));
@@ -109,9 +118,818 @@ public class TestRPG {
 		
 	}
 	
+	@Test(timeout = 10000)
+	public void testSmallBoards() {
+		// the smallest boards are built whatever the seed, leaving out the lakes that find no room
+		for (int size = 5; size <= 7; size++) {
+			for (long seed = 0; seed < 50; seed++) {
+				RPGModel model = new RPGModel(new GameConfig(size, size, 1).withSeed(seed));
+				assertEquals(1, model.numberOfUserChars());
+				assertEquals(1, model.numberOfAIChars());
+				assertNotNull(model.getCharacterAt(0, 0));
+				assertNotNull(model.getCharacterAt(size - 1, size - 1));
+			}
+		}
+	}
+	
+	@Test
+	public void testBoardLayers() {
+		RPGModel model = new RPGModel(CLASSIC);
+		Character[][] map = model.getMap();
+		int mountains = 0;
+		for (int i = 0; i < model.getRows(); i++) {
+			for (int j = 0; j < model.getCols(); j++) {
+				if (map[i][j] != null && map[i][j].getTeam().equals("mountain")) {
+					mountains++;
+					assertFalse(model.isPassable(i, j));
+				}
+				assertEquals(map[i][j], model.getCharacterAt(i, j));
+			}
+		}
+		assertEquals(mountains, 12);
+		assertTrue(model.isPassable(0, 0));
+		assertFalse(model.isEmpty(0, 0));
+		assertTrue(model.isEmpty(0, 1));
+		assertFalse(model.isEmpty(-1, 0));
+	}
+	
+	@Test
+	public void testUnitStore() {
+		UnitStore store = new UnitStore(1);
+		Character a = new Character(store, store.add(100, 5, 10, UnitStore.PLAYER));
+		Character b = new Character(store, store.add(50, 2, 7, UnitStore.AI));
+		assertEquals(store.size(), 2);
+		a.setPoint(3, 7);
+		assertEquals(a.getRow(), 7);
+		assertEquals(a.getCol(), 3);
+		assertEquals(b.getRow(), -1);
+		b.setDefense(true);
+		assertEquals(b.defend(), 2);
+		assertEquals(a.defend(), 0);
+		b.lowerHP(8);
+		assertEquals(b.getHP(), 42);
+		assertEquals(b.getTeam(), "AI");
+		assertEquals(store.aliveCount(UnitStore.AI), 1);
+		store.kill(b.getId());
+		assertEquals(store.aliveCount(UnitStore.AI), 0);
+		assertEquals(store.aliveCount(UnitStore.PLAYER), 1);
+	}
+	
+	@Test
+	public void testUnitIndex() {
+		RPGModel model = new RPGModel(CLASSIC);
+		Character vampire = model.getCharacterAt(0, 0);
+		assertTrue(model.moveCharacter(vampire, 1, 1));
+		assertNull(model.getCharacterAt(0, 0));
+		assertEquals(model.getCharacterAt(1, 1), vampire);
+		assertEquals(model.getCharLoc(vampire)[0], 1);
+		assertEquals(model.getCharLoc(vampire)[1], 1);
+		assertEquals(model.getDisplayNumber(model.getCharacterAt(19, 17)), 2);
+		model.killCharacter(vampire, 1, 1);
+		assertNull(model.getCharacterAt(1, 1));
+		assertNull(model.getCharacter(vampire.getId()));
+		assertEquals(model.getCharLoc(vampire)[0], -1);
+		assertFalse(model.moveCharacter(vampire, 0, 0));
+	}
+	
+	@Test
+	public void testSpatialIndex() {
+		RPGModel model = new RPGModel(new GameConfig(64, 64, 40).withSeed(SEED));
+		Character[] chars = model.getCharList();
+		// kill every third vampire so the index has to skip the dead
+		for (int i = 0; i < 40; i += 3) {
+			model.killCharacter(chars[i], chars[i].getRow(), chars[i].getCol());
+		}
+		int[] found = new int[5];
+		int[] within = new int[80];
+		for (int row = 0; row < 64; row += 7) {
+			for (int col = 0; col < 64; col += 5) {
+				int n = model.findNearest("player", row, col, found);
+				assertEquals(n, 5);
+				// brute force: the 5th closest distance and the count within 12 steps
+				int[] dists = new int[80];
+				int count = 0;
+				int close = 0;
+				for (Character c : model.getCharList()) {
+					if (c != null && c.getTeam().equals("player")) {
+						int d = Math.abs(c.getRow() - row) + Math.abs(c.getCol() - col);
+						dists[count++] = d;
+						if (d <= 12) {
+							close++;
+						}
+					}
+				}
+				Arrays.sort(dists, 0, count);
+				Character fifth = model.getCharacter(found[4]);
+				assertEquals(dists[4], Math.abs(fifth.getRow() - row) + Math.abs(fifth.getCol() - col));
+				assertEquals(close, model.findWithin("player", row, col, 12, within));
+			}
+		}
+		Character wolf = model.getCharacterAt(63, 63);
+		Character target = model.nearestEnemy(wolf);
+		assertEquals(target.getTeam(), "player");
+	}
+	
+	@Test
+	public void testPathfinder() {
+		RPGModel model = new RPGModel(new GameConfig(40, 40, 10).withSeed(SEED));
+		Pathfinder finder = model.getPathfinder();
+		int start = model.cellOf(39, 39);
+		for (int target = 0; target < 40 * 40; target += 37) {
+			int row = model.rowOf(target);
+			int col = model.colOf(target);
+			int length = finder.findPath(start, finder.exact(row, col));
+			// breadth first search for the true distance
+			int[] dist = new int[40 * 40];
+			Arrays.fill(dist, -1);
+			int[] queue = new int[40 * 40];
+			int head = 0, tail = 0;
+			dist[start] = 0;
+			queue[tail++] = start;
+			while (head < tail) {
+				int cell = queue[head++];
+				int r = model.rowOf(cell), c = model.colOf(cell);
+				int[][] steps = {{0, -1}, {-1, 0}, {1, 0}, {0, 1}};
+				for (int[] step : steps) {
+					if (model.isEmpty(r + step[0], c + step[1])) {
+						int n = model.cellOf(r + step[0], c + step[1]);
+						if (dist[n] < 0) {
+							dist[n] = dist[cell] + 1;
+							queue[tail++] = n;
+						}
+					}
+				}
+			}
+			if (target == start) {
+				assertEquals(length, 1);
+			} else if (dist[target] < 0) {
+				assertEquals(length, 0);
+			} else {
+				assertEquals(length, dist[target] + 1);
+				int[] path = finder.getPath();
+				for (int i = 1; i < length; i++) {
+					assertTrue(model.isEmpty(model.rowOf(path[i]), model.colOf(path[i])));
+					int dr = Math.abs(model.rowOf(path[i]) - model.rowOf(path[i - 1]));
+					int dc = Math.abs(model.colOf(path[i]) - model.colOf(path[i - 1]));
+					assertEquals(dr + dc, 1);
+				}
+				assertEquals(path[length - 1], target);
+			}
+		}
+	}
+	
+	@Test
+	public void testMoveRange() {
+		RPGModel model = new RPGModel(new GameConfig(40, 40, 10, 100, 5, 10, 6).withSeed(SEED));
+		for (Character c : model.getCharList()) {
+			// breadth first search over empty tiles, up to the move range
+			int[][] steps = new int[40][40];
+			for (int[] row : steps) {
+				Arrays.fill(row, -1);
+			}
+			java.util.ArrayDeque<int[]> queue = new java.util.ArrayDeque<int[]>();
+			steps[c.getRow()][c.getCol()] = 0;
+			queue.add(new int[] {c.getRow(), c.getCol()});
+			int[][] dirs = {{0, -1}, {-1, 0}, {1, 0}, {0, 1}};
+			while (!queue.isEmpty()) {
+				int[] tile = queue.poll();
+				for (int[] dir : dirs) {
+					int r = tile[0] + dir[0], col = tile[1] + dir[1];
+					if (steps[tile[0]][tile[1]] < 6 && model.isEmpty(r, col) && steps[r][col] == -1) {
+						steps[r][col] = steps[tile[0]][tile[1]] + 1;
+						queue.add(new int[] {r, col});
+					}
+				}
+			}
+			long[] move = model.getMoveRange(c);
+			long[] attack = model.getAttackRange(c);
+			for (int r = 0; r < 40; r++) {
+				for (int col = 0; col < 40; col++) {
+					assertEquals(steps[r][col] > 0, model.inRange(move, r, col));
+					int reach = Math.abs(r - c.getRow()) + Math.abs(col - c.getCol());
+					assertEquals(reach <= 1 && model.isPassable(r, col), model.inRange(attack, r, col));
+				}
+			}
+		}
+		Character dead = model.getCharList()[0];
+		model.killCharacter(dead, dead.getRow(), dead.getCol());
+		assertFalse(model.inRange(model.getMoveRange(dead), 1, 0));
+		// tiles freed or taken earlier in a turn change the walk without changing the board
+		RPGModel classic = new RPGModel(CLASSIC);
+		RangeFinder range = classic.getRangeFinder();
+		int corner = classic.cellOf(0, 0);
+		int[] freed = {classic.cellOf(0, 2)};
+		int reached = range.search(corner, 2, freed, new int[] {Board.NONE}, 1);
+		boolean found = false;
+		for (int i = 0; i < reached; i++) {
+			found |= range.getReached()[i] == freed[0];
+		}
+		assertTrue(found);
+		int[] taken = {classic.cellOf(0, 1), classic.cellOf(1, 0)};
+		assertEquals(1, range.search(corner, 2, taken, new int[] {7, 8}, 2));
+		assertEquals(3, range.search(corner, 1, true));
+		assertFalse(classic.isEmpty(0, 2));
+	}
+	
+	@Test
+	public void testBitBoard() {
+		// 13 x 70: rows longer than a word and rows that straddle words
+		int rows = 13, cols = 70;
+		Random random = new Random(7);
+		BitBoard set = new BitBoard(rows, cols);
+		BitBoard within = new BitBoard(rows, cols);
+		boolean[] inSet = new boolean[rows * cols];
+		boolean[] inWithin = new boolean[rows * cols];
+		for (int cell = 0; cell < rows * cols; cell++) {
+			if (random.nextInt(10) == 0) {
+				set.set(cell);
+				inSet[cell] = true;
+			}
+			if (random.nextInt(4) != 0) {
+				within.set(cell);
+				inWithin[cell] = true;
+			}
+		}
+		BitBoard four = new BitBoard(rows, cols);
+		BitBoard eight = new BitBoard(rows, cols);
+		set.expand(four, false);
+		set.expand(eight, true);
+		int count = 0;
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				boolean near4 = false, near8 = false;
+				for (int dr = -1; dr <= 1; dr++) {
+					for (int dc = -1; dc <= 1; dc++) {
+						int nr = r + dr, nc = c + dc;
+						if (nr >= 0 && nr < rows && nc >= 0 && nc < cols && inSet[nr * cols + nc]) {
+							near8 = true;
+							near4 |= dr == 0 || dc == 0;
+						}
+					}
+				}
+				assertEquals(near4, four.get(r * cols + c));
+				assertEquals(near8, eight.get(r * cols + c));
+				assertEquals(near8, set.anyAround(r, c));
+				count += inSet[r * cols + c] ? 1 : 0;
+			}
+		}
+		assertEquals(count, set.count());
+		int seen = 0;
+		for (int cell = set.nextSet(0); cell != Board.NONE; cell = set.nextSet(cell + 1)) {
+			assertTrue(inSet[cell]);
+			seen++;
+		}
+		assertEquals(count, seen);
+		// flooding two steps is the same as stepping twice into the allowed tiles
+		boolean[] expected = inSet.clone();
+		for (int step = 0; step < 2; step++) {
+			boolean[] next = expected.clone();
+			for (int cell = 0; cell < rows * cols; cell++) {
+				int r = cell / cols, c = cell % cols;
+				boolean touches = (c > 0 && expected[cell - 1]) || (c < cols - 1 && expected[cell + 1])
+						|| (r > 0 && expected[cell - cols]) || (r < rows - 1 && expected[cell + cols]);
+				next[cell] |= touches && inWithin[cell];
+			}
+			expected = next;
+		}
+		set.flood(within, 2);
+		for (int cell = 0; cell < rows * cols; cell++) {
+			assertEquals(expected[cell], set.get(cell));
+		}
+	}
+	
+	@Test
+	public void testTeamTiles() {
+		RPGModel model = new RPGModel(new GameConfig(40, 40, 10).withSeed(SEED));
+		RPGController controller = new RPGController(model);
+		Character[] chars = model.getCharList();
+		for (int i = 0; i < 10; i++) {
+			if (model.isEmpty(chars[i].getRow() + 3, chars[i].getCol())) {
+				controller.move(chars[i].getCol(), chars[i].getRow(), chars[i].getRow() + 3, chars[i].getCol());
+			}
+		}
+		model.setDefending(chars[2], true);
+		model.setDefending(chars[15], true);
+		model.killCharacter(chars[4], chars[4].getRow(), chars[4].getCol());
+		BitBoard vampires = model.getTeamTiles("player");
+		BitBoard werewolves = model.getTeamTiles("AI");
+		assertEquals(9, vampires.count());
+		assertEquals(10, werewolves.count());
+		assertEquals(2, model.getDefendingTiles().count());
+		for (Character c : model.getCharList()) {
+			if (c != null) {
+				int cell = model.cellOf(c.getRow(), c.getCol());
+				assertTrue((c.getTeam().equals("player") ? vampires : werewolves).get(cell));
+				assertEquals(c.defend() > 0, model.getDefendingTiles().get(cell));
+			}
+		}
+	}
+	
+	@Test
+	public void testThreatMap() {
+		RPGModel model = new RPGModel(new GameConfig(40, 40, 10).withSeed(SEED));
+		RPGController controller = new RPGController(model);
+		Character[] chars = model.getCharList();
+		// bring both armies towards the middle and kill a character of each
+		for (int turn = 0; turn < 6; turn++) {
+			for (int i = 0; i < 20; i++) {
+				Character c = chars[i];
+				if (c != null && c.getTeam().equals("AI")) {
+					controller.AIturn(c.getCol(), c.getRow(), c);
+				} else if (c != null && model.isEmpty(c.getRow() + 2, c.getCol() + 1)) {
+					controller.move(c.getCol(), c.getRow(), c.getRow() + 2, c.getCol() + 1);
+				}
+			}
+		}
+		model.killCharacter(chars[1], chars[1].getRow(), chars[1].getCol());
+		model.killCharacter(chars[12], chars[12].getRow(), chars[12].getCol());
+		long[] wolfTiles = model.getThreatTiles("AI");
+		for (String team : new String[] {"player", "AI"}) {
+			ThreatMap threat = model.getThreatMap(team);
+			boolean diagonal = team.equals("AI");
+			for (int r = 0; r < 40; r++) {
+				for (int col = 0; col < 40; col++) {
+					int attackers = 0;
+					for (Character c : model.getCharList()) {
+						if (c == null || !c.getTeam().equals(team)) {
+							continue;
+						}
+						int dr = Math.abs(c.getRow() - r), dc = Math.abs(c.getCol() - col);
+						if (dr <= 1 && dc <= 1 && dr + dc > 0 && (diagonal || dr + dc == 1) && model.isPassable(r, col)) {
+							attackers++;
+						}
+					}
+					int cell = model.cellOf(r, col);
+					assertEquals(attackers, threat.getAttackers(cell));
+					assertEquals(attackers * 10, threat.getPower(cell));
+					assertEquals(attackers * 5, model.getDamageAt(team, r, col, 5));
+					assertEquals(attackers > 0, threat.getTiles().get(cell));
+					if (diagonal) {
+						assertEquals(attackers > 0, model.inRange(wolfTiles, r, col));
+					}
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testSearchAI() {
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		Character[] chars = model.getCharList();
+		// a wounded vampire next to a werewolf, with another vampire close by
+		Character wounded = chars[0];
+		Character werewolf = chars[5];
+		model.setCharacterAt(wounded, 10, 5);
+		model.setCharacterAt(chars[1], 10, 3);
+		model.setCharacterAt(werewolf, 11, 6);
+		wounded.lowerHP(95);
+		AlphaBetaAI search = new AlphaBetaAI(model, 2, 100);
+		long start = System.nanoTime();
+		int action = search.chooseAction(werewolf);
+		long millis = (System.nanoTime() - start) / 1000000;
+		assertTrue("search took " + millis + " ms", millis < 300);
+		assertTrue(search.getDepthReached() >= 1);
+		assertEquals(Action.ATTACK, Action.kindOf(action));
+		assertEquals(model.cellOf(10, 5), Action.cellOf(action));
+		// the controller plays the chosen attack
+		controller.useSearchAI(100);
+		assertEquals("atk", controller.AIturn(6, 11, werewolf));
+		assertNull(model.getCharacter(wounded.getId()));
+		// with no vampire nearby the search steps aside for the simple rules
+		assertEquals(Action.NONE, search.chooseAction(chars[9]));
+		controller.close();
+		// the budget is for the whole turn, each werewolf gets its share of the time left
+		TurnClock clock = new TurnClock(model, 100);
+		long now = System.nanoTime();
+		int living = model.numberOfAIChars();
+		assertEquals(100.0 / living, clock.share(werewolf, now) / 1e6, 1);
+		assertEquals(40.0 / (living - 1), clock.share(werewolf, now + 60_000_000L) / 1e6, 1);
+		assertEquals(0, clock.share(werewolf, now + 200_000_000L));
+		model.endTurn("AI");
+		assertEquals(100.0 / living, clock.share(werewolf, System.nanoTime()) / 1e6, 1);
+	}
+	
+	@Test
+	public void testUndo() {
+		RPGModel model = new RPGModel(CLASSIC);
+		Character[] chars = model.getCharList().clone();
+		// a wounded vampire between two werewolves, left of the obstacles
+		model.setCharacterAt(chars[0], 10, 1);
+		model.setCharacterAt(chars[5], 11, 2);
+		model.setCharacterAt(chars[6], 10, 2);
+		chars[0].lowerHP(92);
+		model.setDefending(chars[0], true);
+		int[] actions = {Action.of(Action.DEFEND, model.cellOf(11, 2)), 
+				Action.of(Action.MOVE, model.cellOf(12, 3)), 
+				Action.of(Action.ATTACK, model.cellOf(10, 1)), 
+				Action.of(Action.ATTACK, model.cellOf(10, 1))};
+		Character[] actors = {chars[5], chars[1], chars[6], chars[6]};
+		String[] before = new String[actions.length];
+		long[] records = new long[actions.length];
+		for (int i = 0; i < actions.length; i++) {
+			before[i] = describe(model);
+			records[i] = model.apply(actors[i], actions[i]);
+		}
+		// the second attack kills the vampire
+		assertNull(model.getCharacter(chars[0].getId()));
+		assertEquals(4, model.playersLeft()[0]);
+		assertSame(chars[1], model.getCharacterAt(12, 3));
+		assertTrue(model.getDefendingTiles().get(model.cellOf(11, 2)));
+		for (int i = actions.length - 1; i >= 0; i--) {
+			model.undo(records[i]);
+			assertEquals(before[i], describe(model));
+		}
+		assertSame(chars[0], model.getCharacter(chars[0].getId()));
+		assertEquals(8, chars[0].getHP());
+		try {
+			model.apply(chars[5], Action.of(Action.ATTACK, model.cellOf(0, 0)));
+			fail("attacked a tile out of reach");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		// a long random walk on a search state comes back to where it started
+		RPGModel game = new RPGModel(new GameConfig(30, 30, 8).withSeed(SEED));
+		Character[] all = game.getCharList();
+		int[] ids = new int[16];
+		for (int i = 0; i < 16; i++) {
+			ids[i] = all[i].getId();
+		}
+		SearchState state = new SearchState(game.getBoard(), game.getUnits(), ids, 16);
+		SearchState start = state.copy();
+		ActionGenerator generator = new ActionGenerator(game.getBoard(), 3, 2);
+		Random random = new Random(7);
+		int[] list = new int[16];
+		long[] walk = new long[500];
+		for (int i = 0; i < walk.length; i++) {
+			int unit = random.nextInt(16);
+			list = generator.generate(state, unit, list);
+			walk[i] = state.apply(unit, list[random.nextInt(generator.getCount())]);
+		}
+		for (int i = walk.length - 1; i >= 0; i--) {
+			state.undo(walk[i]);
+		}
+		for (int i = 0; i < 16; i++) {
+			assertEquals(start.getHP(i), state.getHP(i));
+			assertEquals(start.getCell(i), state.getCell(i));
+			assertEquals(start.isDefending(i), state.isDefending(i));
+		}
+	}
+	
+	/**
+	 * Describes everything apply() may change in a game: the units, the team counts and every 
+	 * index the model keeps over the units.
+	 * 
+	 * @param model the game
+	 * @return a String that is the same for two games in the same position
+	 */
+	private String describe(RPGModel model) {
+		StringBuilder out = new StringBuilder();
+		UnitStore units = model.getUnits();
+		for (int id = 0; id < units.size(); id++) {
+			out.append(id).append(':').append(units.getHP(id)).append(',').append(units.getPos(id)).append(',')
+					.append(units.isDefending(id)).append(',').append(units.isAlive(id)).append(',')
+					.append(model.getCharacter(id) != null).append(' ');
+		}
+		out.append(Arrays.toString(model.playersLeft()));
+		for (String team : new String[] {"player", "AI"}) {
+			out.append(Arrays.toString(model.getTeamTiles(team).words()));
+			out.append(Arrays.toString(model.getThreatTiles(team)));
+			int[] nearest = new int[3];
+			int found = model.findNearest(team, 10, 10, nearest);
+			out.append(Arrays.toString(Arrays.copyOf(nearest, found)));
+			for (int cell = 0; cell < model.getRows() * model.getCols(); cell++) {
+				out.append(model.getFlowField(team).distance(cell)).append(',');
+				out.append(model.getThreatMap(team).getPower(cell)).append(',');
+			}
+		}
+		out.append(Arrays.toString(model.getDefendingTiles().words()));
+		return out.toString();
+	}
+	
+	@Test
+	public void testZobrist() {
+		RPGModel model = new RPGModel(CLASSIC);
+		Character[] chars = model.getCharList().clone();
+		model.setCharacterAt(chars[0], 10, 1);
+		model.setCharacterAt(chars[5], 11, 2);
+		model.setCharacterAt(chars[6], 10, 2);
+		chars[0].lowerHP(85);
+		long start = model.getHash();
+		int[] ids = {chars[0].getId(), chars[5].getId(), chars[6].getId()};
+		SearchState state = new SearchState(model.getBoard(), model.getUnits(), ids, 3);
+		assertEquals(start, state.getHash());
+		// the same actions give the same hash in the game and in a search
+		int[] actions = {Action.of(Action.DEFEND, model.cellOf(10, 1)), 
+				Action.of(Action.ATTACK, model.cellOf(10, 1)), 
+				Action.of(Action.MOVE, model.cellOf(12, 3)), 
+				Action.of(Action.ATTACK, model.cellOf(10, 1)), 
+				Action.of(Action.ATTACK, model.cellOf(10, 1))};
+		Character[] actors = {chars[0], chars[6], chars[5], chars[6], chars[6]};
+		long[] records = new long[actions.length];
+		long[] hashes = new long[actions.length + 1];
+		hashes[0] = start;
+		for (int i = 0; i < actions.length; i++) {
+			records[i] = model.apply(actors[i], actions[i]);
+			state.apply(state.indexOf(actors[i].getId()), actions[i]);
+			hashes[i + 1] = model.getHash();
+			assertEquals(hashes[i + 1], state.getHash());
+			for (int j = 0; j <= i; j++) {
+				assertNotEquals(hashes[j], hashes[i + 1]);
+			}
+		}
+		assertNull(model.getCharacter(chars[0].getId()));
+		for (int i = actions.length - 1; i >= 0; i--) {
+			model.undo(records[i]);
+			assertEquals(hashes[i], model.getHash());
+		}
+		// moving away and back, or defending through the character, keeps the hash in step
+		model.setCharacterAt(chars[5], 13, 2);
+		model.setCharacterAt(chars[5], 11, 2);
+		chars[5].setDefense(true);
+		chars[5].setDefense(false);
+		assertEquals(start, model.getHash());
+	}
+	
+	@Test
+	public void testTranspositionTable() throws Exception {
+		TranspositionTable table = new TranspositionTable(4);
+		long hash = 0x123456789ABCDEFL;
+		assertEquals(TranspositionTable.MISS, table.probe(hash));
+		int action = Action.of(Action.ATTACK, 399);
+		table.store(hash, action, -1234, 5, TranspositionTable.LOWER);
+		long result = table.probe(hash);
+		assertEquals(action, TranspositionTable.actionOf(result));
+		assertEquals(-1234, TranspositionTable.valueOf(result));
+		assertEquals(5, TranspositionTable.depthOf(result));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.boundOf(result));
+		// a shallower result for the same position does not replace a deeper one
+		table.store(hash, action, 7, 2, TranspositionTable.EXACT);
+		assertEquals(-1234, TranspositionTable.valueOf(table.probe(hash)));
+		// another position in the same entry does
+		table.store(hash + 16, action, 7, 1, TranspositionTable.EXACT);
+		assertEquals(TranspositionTable.MISS, table.probe(hash));
+		// threads hammering a small table never read a result stored for another position
+		TranspositionTable shared = new TranspositionTable(6);
+		Thread[] threads = new Thread[4];
+		boolean[] torn = new boolean[threads.length];
+		for (int t = 0; t < threads.length; t++) {
+			int id = t;
+			threads[t] = new Thread(() -> {
+				Random random = new Random(id);
+				for (int i = 0; i < 200000; i++) {
+					long key = random.nextLong() & 0xFFFFL;
+					if (random.nextBoolean()) {
+						shared.store(key, (int) key, (int) key, 1 + (int) (key & 31), TranspositionTable.EXACT);
+					} else {
+						long found = shared.probe(key);
+						if (found != TranspositionTable.MISS && (TranspositionTable.actionOf(found) != (int) key 
+								|| TranspositionTable.valueOf(found) != (int) key)) {
+							torn[id] = true;
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (boolean b : torn) {
+			assertFalse(b);
+		}
+	}
+	
+	@Test
+	public void testMonteCarloAI() {
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		Character[] chars = model.getCharList();
+		// the same fight as in testSearchAI
+		Character wounded = chars[0];
+		Character werewolf = chars[5];
+		model.setCharacterAt(wounded, 10, 5);
+		model.setCharacterAt(chars[1], 10, 3);
+		model.setCharacterAt(werewolf, 11, 6);
+		wounded.lowerHP(95);
+		MonteCarloAI search = new MonteCarloAI(model, 2, 100, 0, 2);
+		long start = System.nanoTime();
+		int action = search.chooseAction(werewolf);
+		long millis = (System.nanoTime() - start) / 1000000;
+		assertTrue("search took " + millis + " ms", millis < 300);
+		assertTrue(search.getPlayouts() > 0);
+		assertTrue(search.getPlayoutsPerCoreSecond() > 0);
+		assertEquals(Action.ATTACK, Action.kindOf(action));
+		assertEquals(model.cellOf(10, 5), Action.cellOf(action));
+		// a playout budget stops the search before its time runs out
+		MonteCarloAI limited = new MonteCarloAI(model, 2, 10000, 500, 2);
+		limited.chooseAction(werewolf);
+		assertTrue(limited.getPlayouts() >= 500 && limited.getPlayouts() < 600);
+		// the controller plays the chosen attack
+		controller.useMonteCarloAI(100, 0);
+		assertEquals("atk", controller.AIturn(6, 11, werewolf));
+		assertNull(model.getCharacter(wounded.getId()));
+		assertEquals(Action.NONE, search.chooseAction(chars[9]));
+		controller.close();
+		limited.close();
+		// a closed search has let go of its threads
+		search.close();
+		try {
+			search.chooseAction(werewolf);
+			fail("a closed search still searched");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testSimulation() {
+		java.io.PrintStream out = System.out;
+		java.io.ByteArrayOutputStream printed = new java.io.ByteArrayOutputStream();
+		System.setOut(new java.io.PrintStream(printed));
+		int[] results = new int[3];
+		try {
+			for (int game = 0; game < 200; game++) {
+				Simulation simulation = new Simulation(CLASSIC.withSeed(SEED + game), Policy.SIMPLE, Policy.SIMPLE, 300);
+				int result = simulation.play();
+				results[result]++;
+				assertTrue(simulation.getTurns() <= 300);
+				assertEquals(result, simulation.getResult());
+				// the fields kept up to date over a whole game match ones computed from scratch
+				RPGModel model = simulation.getModel();
+				for (byte faction = UnitStore.PLAYER; faction <= UnitStore.AI; faction++) {
+					FlowField fresh = new FlowField(model.getBoard(), model.getUnits(), faction);
+					fresh.rebuild();
+					FlowField kept = model.getFlowField(faction == UnitStore.PLAYER ? "player" : "AI");
+					for (int cell = 0; cell < model.getRows() * model.getCols(); cell++) {
+						assertEquals(fresh.distance(cell), kept.distance(cell));
+					}
+				}
+			}
+		} finally {
+			System.setOut(out);
+		}
+		// nothing is printed and most games end with a team wiped out
+		assertEquals("", printed.toString());
+		assertTrue(results[1] + results[2] > results[0]);
+	}
+	
+	@Test
+	public void testTournamentTerrain() {
+		// the same seed gives the same terrain, even from configurations made apart
+		RPGModel first = new RPGModel(CLASSIC.withSeed(SEED + 1));
+		RPGModel second = new RPGModel(GameConfig.classic().withSeed(SEED + 1));
+		RPGModel other = new RPGModel(CLASSIC.withSeed(SEED + 2));
+		boolean differs = false;
+		for (int cell = 0; cell < 20 * 20; cell++) {
+			boolean passable = first.isPassable(first.rowOf(cell), first.colOf(cell));
+			assertEquals(passable, second.isPassable(second.rowOf(cell), second.colOf(cell)));
+			differs |= passable != other.isPassable(other.rowOf(cell), other.colOf(cell));
+		}
+		// another seed gives other terrain
+		assertTrue(differs);
+	}
+	
+	@Test
+	public void testTournamentEngines() {
+		// either side can search: a vampire finishes off a wounded werewolf next to it
+		RPGModel model = new RPGModel(CLASSIC);
+		Character[] chars = model.getCharList();
+		model.setCharacterAt(chars[0], 10, 2);
+		model.setCharacterAt(chars[5], 10, 3);
+		chars[5].lowerHP(95);
+		int attack = Action.of(Action.ATTACK, model.cellOf(10, 3));
+		assertEquals(attack, new AlphaBetaAI(model, 2, 50).chooseAction(chars[0]));
+		assertEquals(attack, new MonteCarloAI(model, 2, 50, 0, 1).chooseAction(chars[0]));
+		try {
+			Policy.named("random", 1);
+			fail("unknown policy accepted");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+	
+	@Test
+	public void testTournamentStatistics() {
+		// intervals
+		double[] half = Tournament.wilson(50, 100);
+		assertEquals(0.5, half[0], 1e-9);
+		assertEquals(0.404, half[1], 0.001);
+		assertEquals(0.596, half[2], 0.001);
+		double[] none = Tournament.wilson(0, 10);
+		assertEquals(0, none[1], 1e-9);
+		assertEquals(0.278, none[2], 0.001);
+		long[] sorted = new long[100];
+		for (int i = 0; i < 100; i++) {
+			sorted[i] = i + 1;
+		}
+		assertEquals(50, Tournament.percentile(sorted, 0.5));
+		assertEquals(99, Tournament.percentile(sorted, 0.99));
+		long[] bounds = Tournament.percentileInterval(sorted, 0.5);
+		assertTrue(bounds[0] < 50 && bounds[1] > 50);
+	}
+	
+	@Test
+	public void testTournamentRoundRobin() throws Exception {
+		// a small round robin, every pairing plays its games
+		Policy[] policies = {Policy.named("simple", 1), Policy.named("search", 1)};
+		Tournament tournament = new Tournament(new String[] {"simple", "search"}, policies, 
+				GameConfig.classic(), 2, 42);
+		java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(2);
+		try {
+			tournament.run(pool);
+		} finally {
+			pool.shutdown();
+		}
+		for (int v = 0; v < 2; v++) {
+			for (int w = 0; w < 2; w++) {
+				Tournament.Match match = tournament.getMatch(v, w);
+				assertEquals(2, match.getGames());
+				assertTrue(match.getMeanTurns() > 0 && match.getMeanTurns() <= Tournament.MAX_TURNS);
+			}
+		}
+		java.io.ByteArrayOutputStream report = new java.io.ByteArrayOutputStream();
+		tournament.report(new java.io.PrintStream(report));
+		assertTrue(report.toString().contains("search"));
+	}
+	
+	@Test
+	public void testGameRandom() {
+		// the same seed gives the same streams, in the order they are asked for
+		GameRandom first = new GameRandom(SEED);
+		GameRandom second = new GameRandom(SEED);
+		second.stream(GameRandom.SEARCH); //streams of other subsystems do not shift a subsystem
+		for (int i = 0; i < 3; i++) {
+			assertEquals(first.stream(GameRandom.RULES).nextLong(), second.stream(GameRandom.RULES).nextLong());
+		}
+		assertNotEquals(first.stream(GameRandom.RULES).nextLong(), first.stream(GameRandom.RULES).nextLong());
+		assertNotEquals(new GameRandom(SEED).stream(GameRandom.TERRAIN).nextLong(), 
+				new GameRandom(SEED).stream(GameRandom.RULES).nextLong());
+		// a game played again from its seed is played alike, coin flips and all
+		for (int game = 0; game < 20; game++) {
+			Simulation once = new Simulation(CLASSIC.withSeed(game), Policy.SIMPLE, Policy.SIMPLE, 300);
+			Simulation again = new Simulation(CLASSIC.withSeed(game), Policy.SIMPLE, Policy.SIMPLE, 300);
+			assertEquals(once.play(), again.play());
+			assertEquals(once.getTurns(), again.getTurns());
+			assertEquals(once.getActions(), again.getActions());
+			assertEquals(once.getModel().getHash(), again.getModel().getHash());
+		}
+		// so is a Monte Carlo search stopped by its playout budget
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGModel copy = new RPGModel(CLASSIC);
+		MonteCarloAI search = new MonteCarloAI(model, 2, 10000, 300, 1);
+		MonteCarloAI replay = new MonteCarloAI(copy, 2, 10000, 300, 1);
+		model.setCharacterAt(model.getCharList()[5], 4, 3);
+		copy.setCharacterAt(copy.getCharList()[5], 4, 3);
+		assertEquals(search.chooseAction(model.getCharList()[5]), replay.chooseAction(copy.getCharList()[5]));
+	}
+	
+	@Test
+	public void testFlowField() {
+		RPGModel model = new RPGModel(new GameConfig(40, 40, 10).withSeed(SEED));
+		Character[] chars = model.getCharList();
+		// move every vampire a few tiles down and to the right, and kill two of them
+		for (int i = 0; i < 10; i++) {
+			int row = chars[i].getRow() + 5 + i;
+			int col = chars[i].getCol() + 1;
+			if (model.isEmpty(row, col)) {
+				model.moveCharacter(chars[i], row, col);
+			}
+		}
+		model.killCharacter(chars[3], chars[3].getRow(), chars[3].getCol());
+		model.killCharacter(chars[7], chars[7].getRow(), chars[7].getCol());
+		// breadth first search from every living vampire over tiles without obstacles
+		int[] dist = new int[40 * 40];
+		Arrays.fill(dist, FlowField.UNREACHABLE);
+		int[] queue = new int[40 * 40];
+		int head = 0, tail = 0;
+		for (Character c : model.getCharList()) {
+			if (c != null && c.getTeam().equals("player")) {
+				int cell = model.cellOf(c.getRow(), c.getCol());
+				dist[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		int[][] steps = {{0, -1}, {-1, 0}, {1, 0}, {0, 1}};
+		while (head < tail) {
+			int cell = queue[head++];
+			for (int[] step : steps) {
+				int r = model.rowOf(cell) + step[0], c = model.colOf(cell) + step[1];
+				if (model.isPassable(r, c) && dist[model.cellOf(r, c)] == FlowField.UNREACHABLE) {
+					dist[model.cellOf(r, c)] = dist[cell] + 1;
+					queue[tail++] = model.cellOf(r, c);
+				}
+			}
+		}
+		FlowField field = model.getFlowField("player");
+		for (int cell = 0; cell < 40 * 40; cell++) {
+			assertEquals(dist[cell], field.distance(cell));
+		}
+	}
+	
 	@Test
 	public void testGameOver() {
-		RPGModel model = new RPGModel(); 
+		RPGModel model = new RPGModel(CLASSIC); 
 		RPGController controller = new RPGController(model);
 		assertEquals(controller.isOver(), 0); 
 		model.killCharacter(model.getCharacterAt(0, 0), 0, 0); 
@@ -126,6 +944,314 @@ public class TestRPG {
 		model.killCharacter(model.getCharacterAt(17, 16), 17, 16); 
 		model.killCharacter(model.getCharacterAt(15, 18), 15, 18); 
 		assertEquals(controller.isOver(), 3);
+		// killing the dead again changes nothing, even once a teammate stands on their tile
+		RPGModel game = new RPGModel(CLASSIC);
+		Character dead = game.getCharacterAt(0, 0);
+		Character mate = game.getCharacterAt(0, 2);
+		game.killCharacter(dead, 0, 0);
+		assertTrue(game.moveCharacter(mate, 0, 0));
+		game.killCharacter(dead, 0, 0);
+		assertSame(mate, game.getCharacterAt(0, 0));
+		assertFalse(game.isEmpty(0, 0));
+		assertEquals(4, game.numberOfUserChars());
+		game.killCharacter(new Character(100, 5, 10, "AI"), 19, 19);
+		assertNotNull(game.getCharacterAt(19, 19));
+		assertEquals(5, game.numberOfAIChars());
+	}
+	
+	@Test
+	public void testEventBus() {
+		RPGModel model = new RPGModel(CLASSIC);
+		EventBus events = model.getEvents();
+		ArrayList<GameEvent> seen = new ArrayList<>();
+		assertFalse(events.hasListeners(UnitMoved.class));
+		Character vampire = model.getCharacterAt(0, 0);
+		model.moveCharacter(vampire, 1, 1); // nobody listens, nothing is published
+		Consumer<GameEvent> record = seen::add;
+		events.subscribe(UnitMoved.class, record);
+		events.subscribe(UnitDamaged.class, record);
+		events.subscribe(UnitKilled.class, record);
+		events.subscribe(TurnEnded.class, record);
+		events.subscribe(GameOver.class, record);
+		assertTrue(seen.isEmpty());
+		// a move carries its route
+		model.moveCharacter(vampire, 0, 0);
+		UnitMoved moved = (UnitMoved) seen.get(0);
+		assertSame(vampire, moved.getCharacter());
+		assertEquals(1, moved.getRow(0));
+		assertEquals(0, moved.getRow(moved.getLength() - 1));
+		// damage, then death
+		Character werewolf = model.getCharacterAt(19, 19);
+		model.damageCharacter(werewolf, 1);
+		UnitDamaged hit = (UnitDamaged) seen.get(1);
+		assertEquals(1, hit.getDamage());
+		assertEquals(werewolf.getHP(), hit.getHP());
+		model.damageCharacter(werewolf, werewolf.getHP());
+		assertTrue(seen.get(3) instanceof UnitKilled);
+		assertEquals(19, ((UnitKilled) seen.get(3)).getRow());
+		// coalesced damage waits for the end of the turn and arrives folded
+		seen.clear();
+		events.setCoalescing(true);
+		Character other = model.getCharacterAt(19, 17);
+		model.damageCharacter(other, 1);
+		model.damageCharacter(other, 2);
+		assertTrue(seen.isEmpty());
+		model.endTurn("player");
+		assertEquals(2, seen.size());
+		assertEquals(3, ((UnitDamaged) seen.get(0)).getDamage());
+		assertEquals("player", ((TurnEnded) seen.get(1)).getTeam());
+		events.setCoalescing(false);
+		// coalesced events still arrive at the end of the turn when no one listens to TurnEnded
+		RPGModel quiet = new RPGModel(CLASSIC);
+		ArrayList<GameEvent> moves = new ArrayList<>();
+		quiet.getEvents().subscribe(UnitMoved.class, moves::add);
+		quiet.getEvents().subscribe(UnitDamaged.class, moves::add);
+		quiet.getEvents().setCoalescing(true);
+		quiet.moveCharacter(quiet.getCharacterAt(0, 0), 1, 0);
+		quiet.damageCharacter(quiet.getCharacterAt(19, 19), 1);
+		assertTrue(moves.isEmpty());
+		quiet.endTurn("player");
+		assertEquals(2, moves.size());
+		assertTrue(moves.get(0) instanceof UnitMoved);
+		assertTrue(moves.get(1) instanceof UnitDamaged);
+		// the last death of a team ends the game, once
+		seen.clear();
+		events.unsubscribe(UnitKilled.class, record);
+		events.unsubscribe(UnitDamaged.class, record);
+		assertFalse(events.hasListeners(UnitKilled.class));
+		for (Character c : model.getCharList()) {
+			if (c != null && c.getTeam().equals("AI")) {
+				model.killCharacter(c, c.getRow(), c.getCol());
+			}
+		}
+		assertEquals(1, seen.size());
+		assertEquals(1, ((GameOver) seen.get(0)).getResult());
+	}
+	
+	@Test
+	public void testGameLog() {
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		GameLog log = controller.getLog();
+		LogSink.Memory lines = LogSink.memory();
+		log.setSink(lines);
+		// off by default: nothing is recorded
+		assertEquals(GameLog.OFF, log.getLevel());
+		controller.humanTurn("move", 0, 0, 1, 0, model.getCharacterAt(0, 0));
+		log.flush();
+		assertTrue(lines.getLines().isEmpty());
+		// actions only
+		log.setLevel(GameLog.ACTIONS);
+		controller.humanTurn("move", 0, 1, 1, 1, model.getCharacterAt(1, 0));
+		controller.humanTurn("def", 1, 1, 0, 0, model.getCharacterAt(1, 1));
+		controller.endTurn("player");
+		log.flush();
+		assertEquals(Arrays.asList("Vampire 1 moves from (1, 0) to (1, 1).", "Vampire 1 is defending."), 
+				lines.getLines());
+		// detail adds the health left, deaths and turn ends
+		log.setLevel(GameLog.DETAIL);
+		Character werewolf = model.getCharacterAt(19, 19);
+		model.damageCharacter(werewolf, werewolf.getHP());
+		controller.endTurn("AI");
+		log.flush();
+		assertEquals(Arrays.asList("Werewolf 1 has 0HP left.", "Werewolf 1 dies at (19, 19).", 
+				"Turn 2: the AI ends its turn."), lines.getLines().subList(2, 5));
+		log.close();
+		assertEquals(0, log.getDropped());
+	}
+	
+	@Test
+	public void testTurnOrders() {
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		Character first = model.getCharacterAt(0, 0);
+		Character second = model.getCharacterAt(2, 0);
+		Character third = model.getCharacterAt(0, 2);
+		Character werewolf = model.getCharacterAt(19, 19);
+		// orders that cannot be played are refused before any is played
+		TurnOrders taken = new TurnOrders("player").add(Command.move(first, 1, 0)).add(Command.move(third, 1, 0));
+		TurnOrders twice = new TurnOrders("player").add(Command.defend(first)).add(Command.move(first, 1, 0));
+		TurnOrders enemy = new TurnOrders("player").add(Command.defend(werewolf));
+		TurnOrders tooFar = new TurnOrders("player").add(Command.defend(third)).add(Command.move(first, 10, 0));
+		TurnOrders distant = new TurnOrders("player").add(Command.attack(first, 19, 19));
+		// the first vampire cannot walk past the second, which only moves away after it
+		TurnOrders blocked = new TurnOrders("player").add(Command.move(first, 3, 0)).add(Command.move(second, 4, 0));
+		for (TurnOrders orders : new TurnOrders[] {taken, twice, enemy, tooFar, distant, blocked}) {
+			try {
+				controller.submit(orders);
+				fail();
+			} catch (IllegalArgumentException e) {
+				assertEquals(0, first.getRow());
+				assertEquals(0, first.defend());
+			}
+		}
+		// single orders are held to the same reach, and a refused one changes nothing
+		assertFalse(controller.execute(Command.move(first, 10, 0)));
+		assertFalse(controller.execute(Command.attack(first, 19, 19)));
+		assertSame(first, model.getCharacterAt(0, 0));
+		assertEquals(werewolf.getHP(), controller.getConfig().getUnitHP());
+		// a move may take the tile an earlier order freed, and listeners hear of it all at the end
+		ArrayList<Character> onTile = new ArrayList<>();
+		controller.getEvents().subscribe(UnitMoved.class, (move) -> onTile.add(model.getCharacterAt(2, 0)));
+		controller.submit(new TurnOrders("player").add(Command.move(second, 3, 0)).add(Command.move(first, 2, 0))
+				.add(Command.defend(third)));
+		assertEquals(Arrays.asList(first, first), onTile);
+		assertSame(second, model.getCharacterAt(3, 0));
+		assertTrue(third.defend() > 0);
+		// an attack that kills frees the tile for a later move
+		assertTrue(model.isPassable(0, 1));
+		model.setCharacterAt(werewolf, 0, 1);
+		model.damageCharacter(werewolf, werewolf.getHP() - 1);
+		controller.submit(new TurnOrders("player").add(Command.attack(second, 3, 1)).add(Command.attack(third, 0, 1))
+				.add(Command.move(first, 0, 1)));
+		assertNull(model.getCharacter(werewolf.getId()));
+		assertSame(first, model.getCharacterAt(0, 1));
+		assertEquals(0, third.defend());
+	}
+	
+	@Test
+	public void testSimulationThread() throws InterruptedException {
+		// the queue refuses what does not fit
+		SpscQueue<Integer> queue = new SpscQueue<>(2);
+		assertTrue(queue.offer(1));
+		assertTrue(queue.offer(2));
+		assertFalse(queue.offer(3));
+		assertEquals(Integer.valueOf(1), queue.poll());
+		assertTrue(queue.offer(3));
+		assertEquals(Integer.valueOf(2), queue.poll());
+		assertEquals(Integer.valueOf(3), queue.poll());
+		assertNull(queue.poll());
+		// the game is played on its own thread, and handed back to this one, which stands in for the view
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		LinkedBlockingQueue<Runnable> view = new LinkedBlockingQueue<>();
+		SimulationThread simulation = new SimulationThread(controller, view::add);
+		ArrayList<Thread> movedOn = new ArrayList<>();
+		simulation.subscribe(UnitMoved.class, (move) -> movedOn.add(Thread.currentThread()));
+		simulation.start();
+		Character vampire = model.getCharacterAt(0, 0);
+		assertSame(model.getCharacterAt(19, 19), model.getCharacter(5));
+		boolean[] played = new boolean[1];
+		assertTrue(simulation.play(Command.move(vampire, 1, 1), () -> played[0] = true));
+		while (!played[0]) {
+			Runnable task = view.poll(5, TimeUnit.SECONDS);
+			assertNotNull(task);
+			task.run();
+		}
+		GameSnapshot afterMove = controller.getSnapshots().acquire();
+		assertEquals(1, afterMove.getRow(vampire.getId()));
+		assertEquals(Arrays.asList(Thread.currentThread()), movedOn);
+		// the AI plays its whole turn on the game thread
+		played[0] = false;
+		assertTrue(simulation.endTurn(() -> played[0] = true));
+		while (!played[0]) {
+			Runnable task = view.poll(5, TimeUnit.SECONDS);
+			assertNotNull(task);
+			task.run();
+		}
+		assertTrue(movedOn.size() > 1);
+		// the snapshot held through the AI's turn still shows the werewolves where they were
+		assertEquals(19, afterMove.getRow(5));
+		assertEquals(19, afterMove.getCol(5));
+		afterMove.release();
+		GameSnapshot afterTurn = controller.getSnapshots().acquire();
+		assertEquals(2, afterTurn.getTurn());
+		assertNotEquals(19 * 100 + 19, afterTurn.getRow(5) * 100 + afterTurn.getCol(5));
+		assertEquals(0, afterTurn.getResult());
+		afterTurn.release();
+		simulation.stop();
+		assertFalse(simulation.isAlive());
+	}
+	
+	@Test
+	public void testSnapshots() throws InterruptedException {
+		RPGModel model = new RPGModel(CLASSIC);
+		Character vampire = model.getCharacterAt(0, 0);
+		SnapshotBuffer snapshots = model.getSnapshots();
+		GameSnapshot first = snapshots.acquire();
+		assertEquals(0, first.getTurn());
+		assertEquals(0, first.getRow(vampire.getId()));
+		assertEquals(CLASSIC.getUnitHP(), first.getHP(vampire.getId()));
+		// a held snapshot is left alone while the game goes on
+		model.setCharacterAt(vampire, 1, 0);
+		model.endTurn("player");
+		assertEquals(0, first.getRow(vampire.getId()));
+		GameSnapshot second = snapshots.acquire();
+		assertEquals(1, second.getTurn());
+		assertEquals(1, second.getRow(vampire.getId()));
+		assertFalse(second.isDefending(vampire.getId()));
+		first.release();
+		second.release();
+		// a character defending shows as defending even when its defense is 0
+		RPGModel unarmoured = new RPGModel(new GameConfig(20, 20, 5, 100, 0, 10));
+		unarmoured.getCharacter(0).setDefense(true);
+		GameSnapshot defended = unarmoured.getSnapshots().acquire();
+		assertTrue(defended.isDefending(0));
+		defended.release();
+		// a reader on another thread always sees whole turns, and the pool stops growing
+		boolean[] torn = new boolean[1];
+		Thread reader = new Thread(() -> {
+			for (int i = 0; i < 20000; i++) {
+				GameSnapshot game = snapshots.acquire();
+				if (game.getRow(vampire.getId()) != game.getTurn() % 2) {
+					torn[0] = true;
+				}
+				game.release();
+			}
+		});
+		reader.start();
+		for (int turn = 2; turn < 2000; turn++) {
+			model.setCharacterAt(vampire, turn % 2, 0);
+			model.endTurn("player");
+		}
+		reader.join();
+		assertFalse(torn[0]);
+		assertTrue(snapshots.getPoolSize() <= 3);
+	}
+	
+	@Test
+	public void testPondering() {
+		RPGModel model = new RPGModel(CLASSIC);
+		RPGController controller = new RPGController(model);
+		Character[] chars = model.getCharList().clone();
+		// the fight of testSearchAI, pondered before the player gives any order
+		model.setCharacterAt(chars[0], 10, 5);
+		model.setCharacterAt(chars[1], 10, 3);
+		model.setCharacterAt(chars[5], 11, 6);
+		chars[0].lowerHP(95);
+		controller.usePondering(true);
+		controller.useSearchAI(50);
+		Ponderer ponderer = controller.getPonderer();
+		long start = model.getHash();
+		// pondering that has to stop at once keeps nothing, and pondering leaves the game alone
+		controller.ponder(() -> true);
+		assertEquals(0, ponderer.getStored());
+		controller.ponder(() -> false);
+		assertEquals(start, model.getHash());
+		assertTrue(ponderer.getStored() > 0);
+		// the player plays one of the guesses, every vampire defending, and the werewolf in the
+		// fight answers from it
+		for (Character c : chars) {
+			if (c.getTeam().equals("player")) {
+				assertTrue(controller.execute(Command.defend(c)));
+			}
+		}
+		controller.endTurn("player");
+		for (Character c : chars) {
+			if (c.getTeam().equals("AI") && controller.isOver() == 0) {
+				controller.AIturn(c.getCol(), c.getRow(), c);
+			}
+		}
+		assertEquals(1, ponderer.getHits());
+		controller.endTurn("AI");
+		assertEquals(0, ponderer.getStored());
+		// a wrong guess only misses
+		controller.ponder(() -> false);
+		assertTrue(controller.execute(Command.move(chars[4], 5, 1)));
+		controller.endTurn("player");
+		controller.AIturn(chars[5].getCol(), chars[5].getRow(), chars[5]);
+		assertEquals(1, ponderer.getHits());
+		controller.close();
 	}
 
 
@@ -0,0 +1,163 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that keeps, for one faction, every tile its living units can attack next
+ * turn and how hard. A unit attacks the tiles one step away along a row or column and, for
+ * factions that attack diagonally, the four diagonal tiles too. Each tile holds the number of
+ * units that reach it and the sum of their attack, so the damage a unit standing there would take
+ * is known without looking at any enemy.
+ *
+ * The map is updated incrementally: every unit remembers the tile and the attack it was last
+ * counted with, and when it moves or dies only the tiles around its old and new tile change.
+ *
+ * date: 10/18/26
+ */
+class ThreatMap {
+	// row and column offsets of the tiles a unit attacks, along rows and columns first
+	private static final int[] REACH_ROW = {0, -1, 1, 0, -1, -1, 1, 1};
+	private static final int[] REACH_COL = {-1, 0, 0, 1, -1, 1, -1, 1};
+
+	private final Board board;
+	private final UnitStore units;
+	private final byte faction;
+	private final int reach; //4 to attack along rows and columns, 8 to also attack diagonally
+	private final int[] attackers; //number of units that can attack each tile
+	private final int[] power; //sum of the attack of those units
+	private final BitBoard threatened; //tiles at least one unit can attack
+	private int[] sourceCell = new int[0]; //tile each unit was last counted on, or Board.NONE
+	private int[] sourceAttack = new int[0]; //attack each unit was last counted with
+
+	/**
+	 * Constructs the threat map of a faction. The map is empty until rebuild() is called.
+	 *
+	 * @param board, the Board the units stand on
+	 * @param units, the UnitStore holding the positions and stats of the units
+	 * @param faction, a byte, the faction whose attacks are mapped
+	 * @param diagonal, a boolean, true if the faction attacks diagonally
+	 */
+	ThreatMap(Board board, UnitStore units, byte faction, boolean diagonal) {
+		this.board = board;
+		this.units = units;
+		this.faction = faction;
+		this.reach = diagonal ? 8 : 4;
+		this.attackers = new int[board.size()];
+		this.power = new int[board.size()];
+		this.threatened = new BitBoard(board.getRows(), board.getCols());
+	}
+
+	/**
+	 * Counts every living unit of the faction from scratch.
+	 */
+	void rebuild() {
+		Arrays.fill(attackers, 0);
+		Arrays.fill(power, 0);
+		threatened.clearAll();
+		sourceCell = new int[units.size()];
+		sourceAttack = new int[units.size()];
+		Arrays.fill(sourceCell, Board.NONE);
+		for (int id = 0; id < units.size(); id++) {
+			update(id);
+		}
+	}
+
+	/**
+	 * Brings the map up to date after a unit moved, was placed or died. Units of other
+	 * factions are ignored.
+	 *
+	 * @param id, an int, the unit that changed
+	 */
+	void update(int id) {
+		if (units.getFaction(id) != faction) {
+			return;
+		}
+		if (sourceCell.length < units.size()) {
+			int old = sourceCell.length;
+			sourceCell = Arrays.copyOf(sourceCell, units.size());
+			sourceAttack = Arrays.copyOf(sourceAttack, units.size());
+			Arrays.fill(sourceCell, old, sourceCell.length, Board.NONE);
+		}
+		int pos = units.getPos(id);
+		int now = units.isAlive(id) && pos != UnitStore.NO_POS
+				? board.index(UnitStore.rowOf(pos), UnitStore.colOf(pos)) : Board.NONE;
+		int attack = units.getAttack(id);
+		if (now == sourceCell[id] && attack == sourceAttack[id]) {
+			return;
+		}
+		if (sourceCell[id] != Board.NONE) {
+			count(sourceCell[id], -1, -sourceAttack[id]);
+		}
+		sourceCell[id] = now;
+		sourceAttack[id] = attack;
+		if (now != Board.NONE) {
+			count(now, 1, attack);
+		}
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the number of units of the faction that can attack the tile
+	 */
+	int getAttackers(int cell) {
+		return attackers[cell];
+	}
+
+	/**
+	 * @param cell, an int, the index of a tile
+	 * @return int, the sum of the attack of the units of the faction that can attack the tile
+	 */
+	int getPower(int cell) {
+		return power[cell];
+	}
+
+	/**
+	 * Estimates the damage a unit standing on a tile takes if every unit that can reach it
+	 * attacks. Each attack deals the attacker's attack less the defense of the unit.
+	 *
+	 * @param cell, an int, the index of a tile
+	 * @param defense, an int, the defense of the unit on the tile, 0 if it is not defending
+	 * @return int, the total damage, never below 0
+	 */
+	int damageTo(int cell, int defense) {
+		return Math.max(0, power[cell] - attackers[cell] * defense);
+	}
+
+	/**
+	 * @return BitBoard, the tiles at least one unit of the faction can attack. Kept up to date
+	 * 		by the map and must not be changed by the caller.
+	 */
+	BitBoard getTiles() {
+		return threatened;
+	}
+
+	/**
+	 * Adds or removes one unit's attack on every tile it reaches from a tile.
+	 *
+	 * @param cell, an int, the tile the unit stands on
+	 * @param unit, an int, 1 to add the unit and -1 to remove it
+	 * @param attack, an int, the unit's attack, negative when removing
+	 */
+	private void count(int cell, int unit, int attack) {
+		int row = board.rowOf(cell);
+		int col = board.colOf(cell);
+		for (int i = 0; i < reach; i++) {
+			int r = row + REACH_ROW[i];
+			int c = col + REACH_COL[i];
+			if (!board.inBounds(r, c)) {
+				continue;
+			}
+			int n = board.index(r, c);
+			if (!board.isPassable(n)) {
+				continue; //no unit can stand on an obstacle
+			}
+			attackers[n] += unit;
+			power[n] += attack;
+			if (attackers[n] == 0) {
+				threatened.clear(n);
+			} else {
+				threatened.set(n);
+			}
+		}
+	}
+}
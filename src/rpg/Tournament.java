@@ -0,0 +1,372 @@
+package rpg;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class plays a round-robin tournament between AI policies with no window, to judge an AI
+ * change by its results instead of by playing it by hand. Every policy plays every other one, and
+ * itself, as the vampires and as the werewolves, since the two teams do not attack alike. Games
+ * are Simulations played on a work-stealing pool with one game per core at a time.
+ *
+ * Game g of every pairing is played on the same terrain, drawn from the seed plus g, so pairings
+ * are compared on the same boards and a tournament can be played again with the same seed: every
+ * random choice of a game is drawn from its seed, so only searches stopped by the clock can play
+ * differently the second time.
+ *
+ * The report gives, for every pairing and for every policy, the share of points won with its 95%
+ * Wilson interval, where a game stopped undecided counts half, the length of the games with its
+ * 95% interval, and the percentiles of the time each policy took per decision with their 95%
+ * intervals from the order statistics.
+ *
+ * Usage: java rpg.Tournament [policies] [games] [budget] [board] [seed], for example
+ * java rpg.Tournament simple,search,mcts 100 5 classic 42
+ *
+ * The policies are simple, search and mcts, searching for up to budget ms per decision. The
+ * board is classic for the 20 x 20 game with 5 characters per side, or rowsxcols:units such as
+ * 40x40:10. Without a seed a random one is drawn and printed.
+ *
+ * date: 10/18/26
+ */
+public class Tournament {
+	static final int MAX_TURNS = 300; //a game is stopped undecided after this many turns
+	private static final double Z = 1.96; //normal quantile of the 95% intervals
+	private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+
+	private final String[] names;
+	private final Policy[] policies;
+	private final GameConfig config;
+	private final int games; //games per pairing
+	private final long seed;
+	private final Match[][] matches; //by vampire policy, then werewolf policy
+
+	/**
+	 * Sets up a tournament.
+	 *
+	 * @param names, a String[], the names of the policies, for the report
+	 * @param policies, a Policy[], the policies playing
+	 * @param config, the GameConfig every game is played with, apart from its seed
+	 * @param games, an int, the number of games of every pairing
+	 * @param seed, a long, the seed of the terrain of the first game of every pairing
+	 */
+	Tournament(String[] names, Policy[] policies, GameConfig config, int games, long seed) {
+		this.names = names;
+		this.policies = policies;
+		this.config = config;
+		this.games = games;
+		this.seed = seed;
+		this.matches = new Match[policies.length][policies.length];
+		for (Match[] row : matches) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = new Match();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		String[] names = (args.length > 0 ? args[0] : "simple,search,mcts").split(",");
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int budget = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		String board = args.length > 3 ? args[3] : "classic";
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+
+		Policy[] policies = new Policy[names.length];
+		for (int i = 0; i < names.length; i++) {
+			policies[i] = Policy.named(names[i].trim(), budget);
+		}
+		GameConfig config = scenario(board);
+		int threads = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d games per pairing on %s (%dx%d, %d per side), search budget %d ms, seed %d, %d threads%n%n",
+				games, board, config.getRows(), config.getCols(), config.getUnitsPerSide(), budget, seed, threads);
+		Tournament tournament = new Tournament(names, policies, config, games, seed);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		try {
+			tournament.run(pool);
+		} finally {
+			pool.shutdown();
+		}
+		tournament.report(System.out);
+		System.out.printf("%nplayed in %.1f s%n", (System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * Reads the board of a tournament.
+	 *
+	 * @param name, a String, classic or rowsxcols:units, such as 40x40:10
+	 * @return GameConfig, the settings of the games, with the classic unit stats
+	 * @throws IllegalArgumentException if the name is not understood or the armies do not fit
+	 */
+	static GameConfig scenario(String name) {
+		if (name.equals("classic")) {
+			return GameConfig.classic();
+		}
+		String[] parts = name.split("[x:]");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Board must be classic or rowsxcols:units, was " + name);
+		}
+		try {
+			return new GameConfig(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Board must be classic or rowsxcols:units, was " + name);
+		}
+	}
+
+	/**
+	 * Plays every game of every pairing on a pool and adds them up, pairing by pairing.
+	 *
+	 * @param pool, the ForkJoinPool to play the games on
+	 * @throws InterruptedException if the thread is interrupted while the games are played
+	 */
+	void run(ForkJoinPool pool) throws InterruptedException {
+		List<Callable<Game>> tasks = new ArrayList<>();
+		for (int v = 0; v < policies.length; v++) {
+			for (int w = 0; w < policies.length; w++) {
+				for (int g = 0; g < games; g++) {
+					Policy vampires = policies[v];
+					Policy werewolves = policies[w];
+					GameConfig seeded = config.withSeed(seed + g);
+					tasks.add(() -> {
+						Simulation game = new Simulation(seeded, vampires, werewolves, MAX_TURNS);
+						game.play();
+						return new Game(game);
+					});
+				}
+			}
+		}
+		List<Future<Game>> played = pool.invokeAll(tasks);
+		for (int i = 0; i < played.size(); i++) {
+			try {
+				matches[i / games / policies.length][i / games % policies.length].add(played.get(i).get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Tournament game failed", e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * @param vampires, an int, the index of the policy playing the vampires
+	 * @param werewolves, an int, the index of the policy playing the werewolves
+	 * @return Match, the games of the pairing
+	 */
+	Match getMatch(int vampires, int werewolves) {
+		return matches[vampires][werewolves];
+	}
+
+	/**
+	 * Prints the results of every pairing, the score of every policy against the others and
+	 * the time every policy took per decision.
+	 *
+	 * @param out, the PrintStream to print to
+	 */
+	void report(PrintStream out) {
+		out.printf("%-10s %-10s %6s %6s %6s %6s %22s %18s%n", "vampires", "werewolves", "games", "v wins", "w wins",
+				"draws", "vampire score [95%]", "turns [95%]");
+		for (int v = 0; v < policies.length; v++) {
+			for (int w = 0; w < policies.length; w++) {
+				Match match = matches[v][w];
+				int n = match.getGames();
+				double[] score = wilson(match.getResults(1) + match.getResults(0) / 2.0, n);
+				double[] turns = meanInterval(match.turns, match.turnsSquared, n);
+				out.printf("%-10s %-10s %6d %6d %6d %6d %22s %18s%n", names[v], names[w], n, match.getResults(1),
+						match.getResults(2), match.getResults(0), interval(score[0], score[1], score[2], "%.3f"),
+						interval(turns[0], turns[1], turns[2], "%.1f"));
+			}
+		}
+		out.printf("%n%-10s %6s %22s%n", "policy", "games", "score vs others [95%]");
+		for (int p = 0; p < policies.length; p++) {
+			double points = 0;
+			int n = 0;
+			for (int o = 0; o < policies.length; o++) {
+				if (o != p) {
+					points += matches[p][o].getResults(1) + matches[o][p].getResults(2)
+							+ (matches[p][o].getResults(0) + matches[o][p].getResults(0)) / 2.0;
+					n += matches[p][o].getGames() + matches[o][p].getGames();
+				}
+			}
+			double[] score = wilson(points, n);
+			out.printf("%-10s %6d %22s%n", names[p], n, n == 0 ? "-" : interval(score[0], score[1], score[2], "%.3f"));
+		}
+		out.printf("%n%-10s %10s %22s %22s %22s %10s%n", "policy", "decisions", "p50 us [95%]", "p90 us [95%]",
+				"p99 us [95%]", "max us");
+		for (int p = 0; p < policies.length; p++) {
+			long[] sorted = latencies(p);
+			Arrays.sort(sorted);
+			out.printf("%-10s %10d", names[p], sorted.length);
+			for (double q : PERCENTILES) {
+				long[] bounds = percentileInterval(sorted, q);
+				out.printf(" %22s", sorted.length == 0 ? "-" : interval(percentile(sorted, q) / 1e3,
+						bounds[0] / 1e3, bounds[1] / 1e3, "%.1f"));
+			}
+			out.printf(" %10.1f%n", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e3);
+		}
+	}
+
+	/**
+	 * @param p, an int, the index of a policy
+	 * @return long[], the time of every decision the policy made, on either side, in nanoseconds
+	 */
+	private long[] latencies(int p) {
+		long[] all = new long[0];
+		for (int o = 0; o < policies.length; o++) {
+			all = concat(all, matches[p][o].latencies[UnitStore.PLAYER], matches[p][o].decisions[UnitStore.PLAYER]);
+			all = concat(all, matches[o][p].latencies[UnitStore.AI], matches[o][p].decisions[UnitStore.AI]);
+		}
+		return all;
+	}
+
+	/**
+	 * @return long[], the first array followed by the first count values of the second
+	 */
+	private static long[] concat(long[] first, long[] second, int count) {
+		long[] both = Arrays.copyOf(first, first.length + count);
+		System.arraycopy(second, 0, both, first.length, count);
+		return both;
+	}
+
+	/**
+	 * Formats an estimate with its interval.
+	 */
+	private static String interval(double value, double low, double high, String format) {
+		return String.format(format + " [" + format + "," + format + "]", value, low, high);
+	}
+
+	/**
+	 * Finds the Wilson score interval of a share, which stays inside 0 and 1 and is reliable
+	 * even for few games or a share close to 0 or 1.
+	 *
+	 * @param successes, a double, the points won, where a draw may count half
+	 * @param n, an int, the number of games
+	 * @return double[], {share, low, high} at 95%, all 0 with no games
+	 */
+	static double[] wilson(double successes, int n) {
+		if (n == 0) {
+			return new double[3];
+		}
+		double p = successes / n;
+		double z2 = Z * Z;
+		double center = (p + z2 / (2 * n)) / (1 + z2 / n);
+		double half = Z * Math.sqrt(p * (1 - p) / n + z2 / (4.0 * n * n)) / (1 + z2 / n);
+		return new double[] {p, Math.max(0, center - half), Math.min(1, center + half)};
+	}
+
+	/**
+	 * Finds the mean of a sample and its 95% interval from the normal approximation.
+	 *
+	 * @param sum, a long, the sum of the values
+	 * @param sumSquared, a long, the sum of their squares
+	 * @param n, an int, the number of values
+	 * @return double[], {mean, low, high}, all 0 with no values
+	 */
+	static double[] meanInterval(long sum, long sumSquared, int n) {
+		if (n == 0) {
+			return new double[3];
+		}
+		double mean = sum / (double) n;
+		double variance = n < 2 ? 0 : Math.max(0, (sumSquared - n * mean * mean) / (n - 1));
+		double half = Z * Math.sqrt(variance / n);
+		return new double[] {mean, mean - half, mean + half};
+	}
+
+	/**
+	 * @param sorted, a long[] in ascending order, not empty
+	 * @param q, a double, the percentile between 0 and 1
+	 * @return long, the smallest value at least a share q of the values are at or below
+	 */
+	static long percentile(long[] sorted, double q) {
+		return sorted[Math.max(0, (int) Math.ceil(q * sorted.length) - 1)];
+	}
+
+	/**
+	 * Finds a 95% interval of a percentile from the order statistics: the number of values below
+	 * the true percentile is binomial, so the interval runs between the values ranked that count
+	 * less and more two standard deviations. This holds whatever the shape of the times.
+	 *
+	 * @param sorted, a long[] in ascending order
+	 * @param q, a double, the percentile between 0 and 1
+	 * @return long[], {low, high}, both 0 if there are no values
+	 */
+	static long[] percentileInterval(long[] sorted, double q) {
+		int n = sorted.length;
+		if (n == 0) {
+			return new long[2];
+		}
+		double spread = Z * Math.sqrt(n * q * (1 - q));
+		int low = Math.max(1, (int) Math.floor(n * q - spread));
+		int high = Math.min(n, (int) Math.ceil(n * q + spread) + 1);
+		return new long[] {sorted[low - 1], sorted[high - 1]};
+	}
+
+	/**
+	 * What is kept of a finished game, so that its model and engines can go.
+	 */
+	private static final class Game {
+		private final int result;
+		private final int turns;
+		private final long[][] latencies;
+
+		private Game(Simulation game) {
+			this.result = game.getResult();
+			this.turns = game.getTurns();
+			this.latencies = new long[][] {game.getLatencies(UnitStore.PLAYER), game.getLatencies(UnitStore.AI)};
+		}
+	}
+
+	/**
+	 * The games played between one policy as the vampires and one as the werewolves.
+	 */
+	static final class Match {
+		private final int[] results = new int[3]; //games by result, as from Simulation.play()
+		private long turns;
+		private long turnsSquared;
+		private final long[][] latencies = {new long[0], new long[0]}; //decision times by faction
+		private final int[] decisions = new int[2];
+
+		/**
+		 * Adds a finished game.
+		 */
+		private void add(Game game) {
+			results[game.result]++;
+			turns += game.turns;
+			turnsSquared += (long) game.turns * game.turns;
+			for (byte faction = UnitStore.PLAYER; faction <= UnitStore.AI; faction++) {
+				long[] times = game.latencies[faction];
+				if (decisions[faction] + times.length > latencies[faction].length) {
+					latencies[faction] = Arrays.copyOf(latencies[faction],
+							Math.max(decisions[faction] + times.length, latencies[faction].length * 2));
+				}
+				System.arraycopy(times, 0, latencies[faction], decisions[faction], times.length);
+				decisions[faction] += times.length;
+			}
+		}
+
+		/**
+		 * @return int, the number of games played
+		 */
+		int getGames() {
+			return results[0] + results[1] + results[2];
+		}
+
+		/**
+		 * @param result, an int, 1 for vampire wins, 2 for werewolf wins, 0 for games stopped undecided
+		 * @return int, the number of games that ended so
+		 */
+		int getResults(int result) {
+			return results[result];
+		}
+
+		/**
+		 * @return double, the mean number of turns of a game
+		 */
+		double getMeanTurns() {
+			return getGames() == 0 ? 0 : turns / (double) getGames();
+		}
+	}
+}
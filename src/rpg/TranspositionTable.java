@@ -0,0 +1,116 @@
+package rpg;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Package private class holding a fixed size table of search results by position hash, shared
+ * by any number of search threads without locks. Each entry is two longs: the result, and the
+ * hash XOR the result. A thread can read one long of an entry while another thread writes the
+ * other, so a read checks that the two still XOR to the hash it looks for and treats a mismatch
+ * as a miss. A torn entry is never used, and no thread ever waits.
+ *
+ * A result packs the best action found, the value, how many actions deep the search went and
+ * whether the value is exact or a bound, and is never 0, so 0 means a miss. A new result
+ * replaces whatever the entry held unless the entry holds a deeper result for the same hash.
+ *
+ * date: 10/18/26
+ */
+class TranspositionTable {
+	static final long MISS = 0;
+	static final int EXACT = 0; //the value is the value of the position
+	static final int LOWER = 1; //the value of the position is at least the value
+	static final int UPPER = 2; //the value of the position is at most the value
+	static final int MAX_DEPTH = 63;
+	static final int MAX_VALUE = (1 << 23) - 1; //values are clamped to this size
+
+	private final AtomicLongArray entries; //hash XOR result, then result, for every entry
+	private final int mask;
+
+	/**
+	 * Constructs an empty table.
+	 *
+	 * @param log2Entries, an int, the table holds 2 to the power of this many entries
+	 */
+	TranspositionTable(int log2Entries) {
+		if (log2Entries < 1 || log2Entries > 28) {
+			throw new IllegalArgumentException("Table must hold between 2^1 and 2^28 entries");
+		}
+		this.entries = new AtomicLongArray(2 << log2Entries);
+		this.mask = (1 << log2Entries) - 1;
+	}
+
+	/**
+	 * @param hash, a long, the hash of a position
+	 * @return long, the result stored for the position, or MISS
+	 */
+	long probe(long hash) {
+		int i = ((int) hash & mask) << 1;
+		long result = entries.getOpaque(i + 1);
+		if ((entries.getOpaque(i) ^ result) != hash) {
+			return MISS;
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the result of a search.
+	 *
+	 * @param hash, a long, the hash of the position searched
+	 * @param action, an int, the best packed Action found
+	 * @param value, an int, the value found
+	 * @param depth, an int, the actions searched ahead, 1 to MAX_DEPTH
+	 * @param bound, an int, EXACT, LOWER or UPPER
+	 */
+	void store(long hash, int action, int value, int depth, int bound) {
+		int i = ((int) hash & mask) << 1;
+		long old = entries.getOpaque(i + 1);
+		if ((entries.getOpaque(i) ^ old) == hash && depthOf(old) > depth) {
+			return;
+		}
+		value = Math.max(-MAX_VALUE, Math.min(MAX_VALUE, value));
+		long result = ((long) action << 32) | ((value & 0xFFFFFFL) << 8) | (depth << 2) | bound;
+		entries.setOpaque(i, hash ^ result);
+		entries.setOpaque(i + 1, result);
+	}
+
+	/**
+	 * Empties the table.
+	 */
+	void clear() {
+		for (int i = 0; i < entries.length(); i++) {
+			entries.setOpaque(i, 0);
+		}
+	}
+
+	/**
+	 * @param result, a long, a result returned by probe()
+	 * @return int, the best packed Action found
+	 */
+	static int actionOf(long result) {
+		return (int) (result >>> 32);
+	}
+
+	/**
+	 * @param result, a long, a result returned by probe()
+	 * @return int, the value found
+	 */
+	static int valueOf(long result) {
+		return (int) (result << 32 >> 40);
+	}
+
+	/**
+	 * @param result, a long, a result returned by probe()
+	 * @return int, the actions searched ahead
+	 */
+	static int depthOf(long result) {
+		return (int) (result >>> 2) & MAX_DEPTH;
+	}
+
+	/**
+	 * @param result, a long, a result returned by probe()
+	 * @return int, EXACT, LOWER or UPPER
+	 */
+	static int boundOf(long result) {
+		return (int) result & 3;
+	}
+}
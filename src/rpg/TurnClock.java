@@ -0,0 +1,56 @@
+package rpg;
+
+/**
+ * Package private clock of a search's time budget over a team's whole turn. The budget is given
+ * once per turn, and each decision of the turn gets an equal share of the time left: the time left
+ * divided by the characters of the team still to decide. A character with no fight to search
+ * leaves its share to the ones after it, and the whole turn takes no more than the budget.
+ *
+ * A new turn starts when the model's turn counter moves on, or when start() is called by someone
+ * playing a turn over again on a copy of the game.
+ *
+ * date: 10/18/26
+ */
+class TurnClock {
+	private final RPGModel model;
+	private final long budgetNanos; //time of a whole turn
+	private int turn = -1; //turn counter of the model when the turn started
+	private long deadline; //time the turn must be over by, as System.nanoTime()
+	private int decided; //decisions made so far in the turn
+
+	/**
+	 * Sets up the clock of a game.
+	 *
+	 * @param model, the RPGModel whose turns are timed
+	 * @param budgetMillis, an int, the most time a team's turn may take, in milliseconds
+	 */
+	TurnClock(RPGModel model, int budgetMillis) {
+		this.model = model;
+		this.budgetNanos = budgetMillis * 1_000_000L;
+	}
+
+	/**
+	 * Starts a turn now, with the whole budget.
+	 */
+	void start() {
+		turn = model.getTurns();
+		deadline = System.nanoTime() + budgetNanos;
+		decided = 0;
+	}
+
+	/**
+	 * Hands out the time of a decision, starting a new turn first if the model's turn moved on.
+	 *
+	 * @param c, the Character deciding
+	 * @param now, a long, the time the decision starts, as System.nanoTime()
+	 * @return long, the time the decision may take, in nanoseconds
+	 */
+	long share(Character c, long now) {
+		if (model.getTurns() != turn) {
+			start();
+		}
+		int living = c.getTeam().equals("AI") ? model.numberOfAIChars() : model.numberOfUserChars();
+		int left = Math.max(1, living - decided++);
+		return Math.max(0, (deadline - now) / left);
+	}
+}
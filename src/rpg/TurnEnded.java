@@ -0,0 +1,36 @@
+package rpg;
+
+/**
+ * This class describes a team finishing its turn, every one of its characters having acted.
+ *
+ * date: 10/18/26
+ */
+public class TurnEnded implements GameEvent {
+	private final String team;
+	private final int turn;
+
+	/**
+	 * Constructor for an end of turn event.
+	 *
+	 * @param team, a String, "player" or "AI", the team whose turn ended
+	 * @param turn, an int, the number of turns ended so far in the game, this one included
+	 */
+	TurnEnded(String team, int turn) {
+		this.team = team;
+		this.turn = turn;
+	}
+
+	/**
+	 * @return String, "player" or "AI", the team whose turn ended
+	 */
+	public String getTeam() {
+		return team;
+	}
+
+	/**
+	 * @return int, the number of turns ended so far in the game, this one included
+	 */
+	public int getTurn() {
+		return turn;
+	}
+}
@@ -0,0 +1,60 @@
+package rpg;
+
+import java.util.ArrayList;
+
+/**
+ * This class holds the orders of a whole team for one turn, at most one per character, played in
+ * the order they were added. RPGController.submit() checks the whole batch before playing any of
+ * it, so a turn is either played in full or not at all.
+ *
+ * date: 10/18/26
+ */
+public class TurnOrders {
+	private final String team;
+	private final ArrayList<Command> orders = new ArrayList<>();
+
+	/**
+	 * Constructor for the orders of a team.
+	 *
+	 * @param team, a String, "player" or "AI", the team giving the orders
+	 */
+	public TurnOrders(String team) {
+		if (!team.equals("player") && !team.equals("AI")) {
+			throw new IllegalArgumentException("Unknown team " + team);
+		}
+		this.team = team;
+	}
+
+	/**
+	 * Adds an order, to be played after the ones added before it.
+	 *
+	 * @param order, the Command to add
+	 * @return TurnOrders, these orders, to add the next one
+	 */
+	public TurnOrders add(Command order) {
+		orders.add(order);
+		return this;
+	}
+
+	/**
+	 * @return String, "player" or "AI", the team giving the orders
+	 */
+	public String getTeam() {
+		return team;
+	}
+
+	/**
+	 * @return int, the number of orders
+	 */
+	public int size() {
+		return orders.size();
+	}
+
+	/**
+	 * @param i, an int, the index of an order, 0 being the first played
+	 * @return Command, the order
+	 */
+	public Command get(int i) {
+		return orders.get(i);
+	}
+}
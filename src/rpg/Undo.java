@@ -0,0 +1,68 @@
+package rpg;
+
+/**
+ * Package private helpers for the undo records returned when an action is applied, each packed
+ * into a single long: the kind of action in the top two bits, whether the acting unit was
+ * defending before it acted in the next bit, the acting unit in the next 27 bits and what else
+ * is needed to take the action back in the low 34 bits. What the low bits hold depends on who
+ * applied the action, see RPGModel.apply() and SearchState.apply().
+ *
+ * Nothing needed to take an action back is stored that can be worked out again, such as the
+ * damage of an attack, which depends only on the attacker and on the defense of the target.
+ *
+ * date: 10/18/26
+ */
+final class Undo {
+	static final int MAX_UNITS = 1 << 27; //units that can be named in a record
+	private static final int KIND_SHIFT = 62;
+	private static final int DEFENDING_SHIFT = 61;
+	private static final int UNIT_SHIFT = 34;
+	private static final long DETAIL_MASK = (1L << UNIT_SHIFT) - 1;
+
+	private Undo() {
+	}
+
+	/**
+	 * @param kind, an int, Action.MOVE, ATTACK or DEFEND
+	 * @param defending, a boolean, true if the unit was defending before it acted
+	 * @param unit, an int, the acting unit, below MAX_UNITS
+	 * @param detail, a long, anything else needed to take the action back, below 2^34
+	 * @return long, the packed record
+	 */
+	static long of(int kind, boolean defending, int unit, long detail) {
+		return ((long) kind << KIND_SHIFT) | (defending ? 1L << DEFENDING_SHIFT : 0)
+				| ((long) unit << UNIT_SHIFT) | detail;
+	}
+
+	/**
+	 * @param record, a long, a packed record
+	 * @return int, Action.MOVE, ATTACK or DEFEND
+	 */
+	static int kindOf(long record) {
+		return (int) (record >>> KIND_SHIFT);
+	}
+
+	/**
+	 * @param record, a long, a packed record
+	 * @return boolean, true if the unit was defending before it acted
+	 */
+	static boolean wasDefending(long record) {
+		return ((record >>> DEFENDING_SHIFT) & 1) != 0;
+	}
+
+	/**
+	 * @param record, a long, a packed record
+	 * @return int, the acting unit
+	 */
+	static int unitOf(long record) {
+		return (int) ((record >>> UNIT_SHIFT) & (MAX_UNITS - 1));
+	}
+
+	/**
+	 * @param record, a long, a packed record
+	 * @return long, the rest of the record
+	 */
+	static long detailOf(long record) {
+		return record & DETAIL_MASK;
+	}
+}
@@ -0,0 +1,46 @@
+package rpg;
+
+/**
+ * This class describes a character losing health to an attack.
+ *
+ * date: 10/18/26
+ */
+public class UnitDamaged implements GameEvent {
+	private final Character character;
+	private final int damage;
+	private final int hp;
+
+	/**
+	 * Constructor for a damage event.
+	 *
+	 * @param character, the Character that was hit
+	 * @param damage, an int, the health it lost
+	 * @param hp, an int, the health it has left, 0 or less if it died
+	 */
+	UnitDamaged(Character character, int damage, int hp) {
+		this.character = character;
+		this.damage = damage;
+		this.hp = hp;
+	}
+
+	/**
+	 * @return Character, the character that was hit
+	 */
+	public Character getCharacter() {
+		return character;
+	}
+
+	/**
+	 * @return int, the health it lost
+	 */
+	public int getDamage() {
+		return damage;
+	}
+
+	/**
+	 * @return int, the health it has left, 0 or less if it died
+	 */
+	public int getHP() {
+		return hp;
+	}
+}
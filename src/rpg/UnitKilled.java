@@ -0,0 +1,46 @@
+package rpg;
+
+/**
+ * This class describes a character leaving the board, because it died or was removed.
+ *
+ * date: 10/18/26
+ */
+public class UnitKilled implements GameEvent {
+	private final Character character;
+	private final int row;
+	private final int col;
+
+	/**
+	 * Constructor for a death event.
+	 *
+	 * @param character, the Character that left the board
+	 * @param row, an int, the row of the tile it was on
+	 * @param col, an int, the column of the tile it was on
+	 */
+	UnitKilled(Character character, int row, int col) {
+		this.character = character;
+		this.row = row;
+		this.col = col;
+	}
+
+	/**
+	 * @return Character, the character that left the board
+	 */
+	public Character getCharacter() {
+		return character;
+	}
+
+	/**
+	 * @return int, the row of the tile it was on
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return int, the column of the tile it was on
+	 */
+	public int getCol() {
+		return col;
+	}
+}
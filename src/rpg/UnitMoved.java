@@ -0,0 +1,54 @@
+package rpg;
+
+/**
+ * This class describes a character moving on the map. It carries the exact route the model moved
+ * the character along, so listeners can animate the move without searching for a path themselves.
+ * The route is a compact int array of positions packed as (row << 16) | col, start first.
+ *
+ * date: 10/18/26
+ */
+public class UnitMoved implements GameEvent {
+	private final Character character;
+	private final int[] path;
+
+	/**
+	 * Constructor for a move event.
+	 *
+	 * @param character, the Character that moved
+	 * @param path, an int[] of packed positions from the starting tile to the destination
+	 */
+	UnitMoved(Character character, int[] path) {
+		this.character = character;
+		this.path = path;
+	}
+
+	/**
+	 * @return Character, the character that moved
+	 */
+	public Character getCharacter() {
+		return character;
+	}
+
+	/**
+	 * @return int, the number of tiles on the route, including the starting tile
+	 */
+	public int getLength() {
+		return path.length;
+	}
+
+	/**
+	 * @param i, an int, the step of the route, 0 being the starting tile
+	 * @return int, the row of the tile at that step
+	 */
+	public int getRow(int i) {
+		return UnitStore.rowOf(path[i]);
+	}
+
+	/**
+	 * @param i, an int, the step of the route, 0 being the starting tile
+	 * @return int, the column of the tile at that step
+	 */
+	public int getCol(int i) {
+		return UnitStore.colOf(path[i]);
+	}
+}
@@ -0,0 +1,263 @@
+package rpg;
+
+import java.util.Arrays;
+
+/**
+ * Package private class that stores every unit of a game as parallel primitive arrays addressed by a
+ * stable unit id. A Character is a lightweight handle holding a store and an id, so sweeps over all
+ * units (HP updates, alive counts, enemy scans) walk plain arrays in order without allocating.
+ *
+ * Positions are packed into a single int as (row << 16) | col, or NO_POS if the unit is off the board.
+ *
+ * The store keeps a Zobrist hash of every unit's health, position, defense and life, updated by
+ * every method that changes one of them, so the hash of a game is always one read away.
+ *
+ * date: 10/18/26
+ */
+class UnitStore {
+	static final byte PLAYER = 0; //faction of the user's vampires
+	static final byte AI = 1; //faction of the AI's werewolves
+	static final byte MOUNTAIN = 2; //faction of the stand-in for mountain tiles
+	static final byte WATER = 3; //faction of the stand-in for water tiles
+	static final int NO_POS = -1; //packed position of a unit that is not on the board
+
+	// team names as seen through Character.getTeam(), indexed by faction
+	private static final String[] TEAMS = {"player", "AI", "mountain", "water"};
+
+	private int size;
+	private int[] hp;
+	private int[] defense;
+	private int[] attack;
+	private int[] pos;
+	private byte[] faction;
+	private long[] defending; //bitset, bit id is set while the unit is defending
+	private long[] alive; //bitset, bit id is set until the unit is killed
+	private long hash; //XOR of the Zobrist keys of every unit
+
+	/**
+	 * Constructs an empty store.
+	 *
+	 * @param capacity, an int, the number of units to make room for up front
+	 */
+	UnitStore(int capacity) {
+		capacity = Math.max(capacity, 1);
+		hp = new int[capacity];
+		defense = new int[capacity];
+		attack = new int[capacity];
+		pos = new int[capacity];
+		faction = new byte[capacity];
+		defending = new long[(capacity + 63) >>> 6];
+		alive = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Adds a unit to the store. The unit starts alive, not defending and off the board.
+	 *
+	 * @param HP, an int representing the unit's health
+	 * @param defense, an int representing the power of the unit's defense
+	 * @param attackPower, an int representing the power of the unit's attack
+	 * @param faction, a byte, PLAYER or AI, or one of the obstacle factions
+	 * @return int, the id of the new unit
+	 */
+	int add(int HP, int defense, int attackPower, byte faction) {
+		if (size == hp.length) {
+			grow(size * 2);
+		}
+		int id = size++;
+		this.hp[id] = HP;
+		this.defense[id] = defense;
+		this.attack[id] = attackPower;
+		this.faction[id] = faction;
+		this.pos[id] = NO_POS;
+		alive[id >>> 6] |= 1L << id;
+		hash ^= Zobrist.key(Zobrist.HP, id, HP) ^ Zobrist.key(Zobrist.ALIVE, id, 0);
+		return id;
+	}
+
+	/**
+	 * Enlarges every array of the store.
+	 *
+	 * @param capacity, an int, the new number of units the store can hold
+	 */
+	private void grow(int capacity) {
+		hp = Arrays.copyOf(hp, capacity);
+		defense = Arrays.copyOf(defense, capacity);
+		attack = Arrays.copyOf(attack, capacity);
+		pos = Arrays.copyOf(pos, capacity);
+		faction = Arrays.copyOf(faction, capacity);
+		defending = Arrays.copyOf(defending, (capacity + 63) >>> 6);
+		alive = Arrays.copyOf(alive, (capacity + 63) >>> 6);
+	}
+
+	/**
+	 * @return int, the number of units ever added to the store, dead or alive
+	 */
+	int size() {
+		return size;
+	}
+
+	int getHP(int id) {
+		return hp[id];
+	}
+
+	/**
+	 * Lowers the HP of a unit.
+	 *
+	 * @param id, an int, the unit
+	 * @param loss, an int, by how much to lower its health
+	 */
+	void lowerHP(int id, int loss) {
+		hash ^= Zobrist.key(Zobrist.HP, id, hp[id]) ^ Zobrist.key(Zobrist.HP, id, hp[id] - loss);
+		hp[id] -= loss;
+	}
+
+	int getDefense(int id) {
+		return defense[id];
+	}
+
+	int getAttack(int id) {
+		return attack[id];
+	}
+
+	byte getFaction(int id) {
+		return faction[id];
+	}
+
+	boolean isDefending(int id) {
+		return (defending[id >>> 6] & (1L << id)) != 0;
+	}
+
+	void setDefending(int id, boolean b) {
+		if (b != isDefending(id)) {
+			hash ^= Zobrist.key(Zobrist.DEFENDING, id, 0);
+		}
+		if (b) {
+			defending[id >>> 6] |= 1L << id;
+		} else {
+			defending[id >>> 6] &= ~(1L << id);
+		}
+	}
+
+	boolean isAlive(int id) {
+		return (alive[id >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Marks a unit as killed and takes it off the board.
+	 *
+	 * @param id, an int, the unit
+	 */
+	void kill(int id) {
+		if (isAlive(id)) {
+			hash ^= Zobrist.key(Zobrist.ALIVE, id, 0);
+		}
+		alive[id >>> 6] &= ~(1L << id);
+		clearPos(id);
+	}
+
+	/**
+	 * Brings a killed unit back to life, off the board, with the health it died with.
+	 *
+	 * @param id, an int, the unit
+	 */
+	void revive(int id) {
+		if (!isAlive(id)) {
+			hash ^= Zobrist.key(Zobrist.ALIVE, id, 0);
+		}
+		alive[id >>> 6] |= 1L << id;
+	}
+
+	/**
+	 * @param id, an int, the unit
+	 * @return int, the packed position of the unit, or NO_POS
+	 */
+	int getPos(int id) {
+		return pos[id];
+	}
+
+	/**
+	 * @param id, an int, the unit
+	 * @param row, an int
+	 * @param col, an int
+	 */
+	void setPos(int id, int row, int col) {
+		clearPos(id);
+		pos[id] = pack(row, col);
+		hash ^= Zobrist.key(Zobrist.POS, id, pos[id]);
+	}
+
+	/**
+	 * Takes a unit off the board without killing it.
+	 *
+	 * @param id, an int, the unit
+	 */
+	void clearPos(int id) {
+		if (pos[id] != NO_POS) {
+			hash ^= Zobrist.key(Zobrist.POS, id, pos[id]);
+		}
+		pos[id] = NO_POS;
+	}
+
+	/**
+	 * @return long, the Zobrist hash of every unit's health, position, defense and life
+	 */
+	long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Counts the living units of a faction.
+	 *
+	 * @param f, a byte, the faction to count
+	 * @return int, the number of living units in the faction
+	 */
+	int aliveCount(byte f) {
+		int count = 0;
+		for (int id = 0; id < size; id++) {
+			if (faction[id] == f && (alive[id >>> 6] & (1L << id)) != 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Packs a row and a column into a single int.
+	 *
+	 * @param row, an int
+	 * @param col, an int
+	 * @return int, the packed position
+	 */
+	static int pack(int row, int col) {
+		return (row << 16) | (col & 0xFFFF);
+	}
+
+	static int rowOf(int packed) {
+		return packed >> 16;
+	}
+
+	static int colOf(int packed) {
+		return (short) packed;
+	}
+
+	/**
+	 * @param f, a byte, a faction
+	 * @return String, the team name of the faction, "player", "AI", "mountain" or "water"
+	 */
+	static String teamOf(byte f) {
+		return TEAMS[f];
+	}
+
+	/**
+	 * @param team, a String, "player", "AI", "mountain" or "water"
+	 * @return byte, the faction with that team name
+	 */
+	static byte factionOf(String team) {
+		for (byte f = 0; f < TEAMS.length; f++) {
+			if (TEAMS[f].equals(team)) {
+				return f;
+			}
+		}
+		throw new IllegalArgumentException("Unknown team: " + team);
+	}
+}
@@ -0,0 +1,38 @@
+package rpg;
+
+/**
+ * Package private helpers for the Zobrist keys that hash a game position into a single long.
+ * A position hashes to the XOR of one key for every fact about it, such as a unit standing on a
+ * tile or a unit having some health, so changing one fact updates the hash with two XORs.
+ *
+ * Keys are not stored in tables: each one is worked out from its fact with the splitmix64
+ * finalizer, which never maps two facts to the same key and spreads them like random numbers.
+ * Boards and armies of any size need no memory for keys.
+ *
+ * date: 10/18/26
+ */
+final class Zobrist {
+	static final int HP = 0; //a unit has some health, the value is the health
+	static final int POS = 1; //a unit stands on a tile, the value is the packed position
+	static final int DEFENDING = 2; //a unit is defending
+	static final int ALIVE = 3; //a unit is alive
+	static final int TURN = 4; //a search is at some ply, the value is the ply
+	static final int SEARCH = 5; //a search is some decision, the value counts the decisions
+
+	private Zobrist() {
+	}
+
+	/**
+	 * @param kind, an int, HP, POS, DEFENDING, ALIVE, TURN or SEARCH
+	 * @param id, an int, the unit, below Undo.MAX_UNITS, or 0 for the facts of a search
+	 * @param value, an int, the value of the fact, or 0 for facts without one
+	 * @return long, the key of the fact
+	 */
+	static long key(int kind, int id, int value) {
+		long z = ((long) kind << 59) ^ ((long) id << 32) ^ (value & 0xFFFFFFFFL);
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}